@@ -0,0 +1,128 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of loading a definition with {@link TuringMachine#addTransition}, a {@link TransitionBatch} or from a
+ * {@link MachineImage}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DefinitionBenchmark {
+    /** number of states of the machine loaded by {@link #addTransitions()} */
+    private static final int BULK_STATES = 1000;
+    private static final Character[] BULK_SYMBOLS = {null, '0', '1', 'x'};
+
+    /** number of states of the machine loaded by {@link #loadMillion()}, one million transitions */
+    private static final int MILLION_STATES = 250_001;
+
+    /** image of the machine loaded by {@link #addTransitions()} */
+    private ByteBuffer image;
+    /** transitions loaded by {@link #loadMillion()} */
+    private TransitionBatch million;
+
+    @Setup
+    public void setUp() throws IOException {
+        var out = new ByteArrayOutputStream();
+        MachineImage.write(((TuringMachineImpl) addTransitions()).freeze(), out);
+        image = ByteBuffer.wrap(out.toByteArray());
+        million = new TransitionBatch(1, (MILLION_STATES - 1) * BULK_SYMBOLS.length);
+        for (int state = 1; state < MILLION_STATES; state++) {
+            for (int i = 0; i < BULK_SYMBOLS.length; i++) {
+                million.add(state, symbol(BULK_SYMBOLS[i]), (state + i) % MILLION_STATES,
+                        symbol(BULK_SYMBOLS[(i + state) % BULK_SYMBOLS.length]), TuringMachine.Movement.values()[i % 3]);
+            }
+        }
+    }
+
+    /**
+     * Loads a machine with {@value #BULK_STATES} states and a transition for every state and symbol.
+     */
+    @Benchmark
+    public TuringMachine addTransitions() {
+        TuringMachine bulk = new TuringMachineImpl();
+        bulk.setAlphabet(Set.of('0', '1', 'x'));
+        bulk.setNumberOfTapes(1);
+        bulk.setNumberOfStates(BULK_STATES);
+        bulk.setHaltingState(0);
+        bulk.setInitialState(1);
+        for (int state = 1; state < BULK_STATES; state++) {
+            for (int i = 0; i < BULK_SYMBOLS.length; i++) {
+                Character write = BULK_SYMBOLS[(i + state) % BULK_SYMBOLS.length];
+                bulk.addTransition(state, BULK_SYMBOLS[i], (state + i) % BULK_STATES, write,
+                        TuringMachine.Movement.values()[i % 3]);
+            }
+        }
+        return bulk;
+    }
+
+    /**
+     * Loads the same machine as {@link #addTransitions()} as one {@link TransitionBatch}.
+     */
+    @Benchmark
+    public TuringMachine addTransitionBatch() {
+        TuringMachineImpl bulk = new TuringMachineImpl();
+        bulk.setAlphabet(Set.of('0', '1', 'x'));
+        bulk.setNumberOfTapes(1);
+        bulk.setNumberOfStates(BULK_STATES);
+        bulk.setHaltingState(0);
+        bulk.setInitialState(1);
+        TransitionBatch batch = new TransitionBatch(1, (BULK_STATES - 1) * BULK_SYMBOLS.length);
+        for (int state = 1; state < BULK_STATES; state++) {
+            for (int i = 0; i < BULK_SYMBOLS.length; i++) {
+                Character write = BULK_SYMBOLS[(i + state) % BULK_SYMBOLS.length];
+                batch.add(state, symbol(BULK_SYMBOLS[i]), (state + i) % BULK_STATES, symbol(write),
+                        TuringMachine.Movement.values()[i % 3]);
+            }
+        }
+        bulk.addTransitions(batch);
+        return bulk;
+    }
+
+    /**
+     * Loads and freezes a machine with one million transitions from a prepared {@link TransitionBatch}.
+     */
+    @Benchmark
+    public Program loadMillion() {
+        TuringMachineImpl bulk = new TuringMachineImpl();
+        bulk.setAlphabet(Set.of('0', '1', 'x'));
+        bulk.setNumberOfTapes(1);
+        bulk.setNumberOfStates(MILLION_STATES);
+        bulk.setHaltingState(0);
+        bulk.setInitialState(1);
+        bulk.addTransitions(million);
+        return bulk.freeze();
+    }
+
+    private static char symbol(Character c) {
+        return c != null ? c : Constants.SPACE;
+    }
+
+    /**
+     * Loads the same machine as {@link #addTransitions()} from its image.
+     */
+    @Benchmark
+    public Program loadImage() {
+        return MachineImage.load(image);
+    }
+}
@@ -0,0 +1,67 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the operations around stepping: reading the tapes (boxed contents or a window of
+ * the view) and resetting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MachineBenchmark {
+    @Param({"TwoTapes", "BusyBeaver"})
+    Machines machine;
+
+    private TuringMachine tm;
+    private final char[] window = new char[64];
+
+    /**
+     * Runs the machine for a while so that the tapes hold some content.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        tm = machine.start();
+        for (int i = 0; i < 100_000 && !tm.isInHaltingState(); i++) {
+            tm.doNextStep();
+        }
+    }
+
+    @Benchmark
+    public List<TuringMachine.TapeContent> getTapeContents() {
+        return tm.getTapeContents();
+    }
+
+    /**
+     * Reads the cells around the head through the view, without boxing.
+     */
+    @Benchmark
+    public char[] copyWindow() {
+        ((TuringMachineImpl) tm).getTapeView(0).copyWindow(window.length / 2, window);
+        return window;
+    }
+
+    @Benchmark
+    public int reset() {
+        tm.reset();
+        return tm.getCurrentState();
+    }
+}
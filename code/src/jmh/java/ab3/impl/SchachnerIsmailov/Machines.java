@@ -0,0 +1,125 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+import ab3.TuringMachine.Movement;
+
+import java.util.Set;
+
+/**
+ * Representative machines for the benchmarks, each with an input that keeps it busy for a while.
+ */
+enum Machines {
+    /** copies the input reversed onto a second tape and XORs both tapes, see Ab3Tests */
+    TwoTapes("01101001".repeat(128)) {
+        @Override
+        TuringMachine create() {
+            TuringMachine tm = new TuringMachineImpl();
+            tm.setAlphabet(Set.of('0', '1'));
+            tm.setNumberOfTapes(2);
+            tm.setNumberOfStates(6);
+            tm.setHaltingState(0);
+            tm.setInitialState(1);
+            for (char c : new char[]{'0', '1'}) {
+                tm.addTransition(1, new Character[]{c, null}, 1, new Character[]{c, null}, new Movement[]{Movement.Right, Movement.Stay});
+                tm.addTransition(2, new Character[]{c, null}, 2, new Character[]{c, c}, new Movement[]{Movement.Left, Movement.Right});
+                tm.addTransition(3, new Character[]{null, c}, 3, new Character[]{null, c}, new Movement[]{Movement.Stay, Movement.Left});
+                for (char d : new char[]{'0', '1'}) {
+                    char xor = c == d ? '0' : '1';
+                    tm.addTransition(4, new Character[]{c, d}, 4, new Character[]{xor, d}, new Movement[]{Movement.Right, Movement.Right});
+                    tm.addTransition(5, new Character[]{c, d}, 5, new Character[]{c, d}, new Movement[]{Movement.Left, Movement.Left});
+                }
+            }
+            tm.addTransition(1, new Character[]{null, null}, 2, new Character[]{null, null}, new Movement[]{Movement.Left, Movement.Stay});
+            tm.addTransition(2, new Character[]{null, null}, 3, new Character[]{null, null}, new Movement[]{Movement.Stay, Movement.Left});
+            tm.addTransition(3, new Character[]{null, null}, 4, new Character[]{null, null}, new Movement[]{Movement.Right, Movement.Right});
+            tm.addTransition(4, new Character[]{null, null}, 5, new Character[]{null, null}, new Movement[]{Movement.Left, Movement.Left});
+            tm.addTransition(5, new Character[]{null, null}, 0, new Character[]{null, null}, new Movement[]{Movement.Stay, Movement.Stay});
+            return tm;
+        }
+    },
+    /** adds one to a binary number, the input carries through every digit */
+    BinaryIncrementer("1".repeat(1024)) {
+        @Override
+        TuringMachine create() {
+            TuringMachine tm = new TuringMachineImpl();
+            tm.setAlphabet(Set.of('0', '1'));
+            tm.setNumberOfTapes(1);
+            tm.setNumberOfStates(3);
+            tm.setHaltingState(0);
+            tm.setInitialState(1);
+            tm.addTransition(1, '0', 1, '0', Movement.Right);
+            tm.addTransition(1, '1', 1, '1', Movement.Right);
+            tm.addTransition(1, null, 2, null, Movement.Left);
+            tm.addTransition(2, '1', 2, '0', Movement.Left);
+            tm.addTransition(2, '0', 0, '1', Movement.Stay);
+            tm.addTransition(2, null, 0, '1', Movement.Stay);
+            return tm;
+        }
+    },
+    /** scans to the end of the input and sweeps back to its start */
+    LeftSweep("a".repeat(1024)) {
+        @Override
+        TuringMachine create() {
+            TuringMachine tm = new TuringMachineImpl();
+            tm.setAlphabet(Set.of('a'));
+            tm.setNumberOfTapes(1);
+            tm.setNumberOfStates(3);
+            tm.setHaltingState(0);
+            tm.setInitialState(1);
+            tm.addTransition(1, 'a', 1, 'a', Movement.Right);
+            tm.addTransition(1, null, 2, null, Movement.Left);
+            tm.addTransition(2, 'a', 2, 'a', Movement.Left);
+            tm.addTransition(2, null, 0, null, Movement.Right);
+            return tm;
+        }
+    },
+    /** 5-state busy beaver, halts after 47,176,870 steps */
+    BusyBeaver("") {
+        @Override
+        TuringMachine create() {
+            TuringMachine tm = new TuringMachineImpl();
+            tm.setAlphabet(Set.of('1'));
+            tm.setNumberOfTapes(1);
+            tm.setNumberOfStates(6);
+            tm.setHaltingState(0);
+            tm.setInitialState(1);
+            tm.addTransition(1, null, 2, '1', Movement.Right);
+            tm.addTransition(1, '1', 3, '1', Movement.Left);
+            tm.addTransition(2, null, 3, '1', Movement.Right);
+            tm.addTransition(2, '1', 2, '1', Movement.Right);
+            tm.addTransition(3, null, 4, '1', Movement.Right);
+            tm.addTransition(3, '1', 5, null, Movement.Left);
+            tm.addTransition(4, null, 1, '1', Movement.Left);
+            tm.addTransition(4, '1', 4, '1', Movement.Left);
+            tm.addTransition(5, null, 0, '1', Movement.Right);
+            tm.addTransition(5, '1', 1, null, Movement.Left);
+            return tm;
+        }
+    };
+
+    private final String input;
+
+    Machines(String input) {
+        this.input = input;
+    }
+
+    abstract TuringMachine create();
+
+    String getInput() {
+        return input;
+    }
+
+    /**
+     * @return a new machine, reset and with the input set
+     */
+    TuringMachine start() {
+        TuringMachine tm = create();
+        restart(tm);
+        return tm;
+    }
+
+    void restart(TuringMachine tm) {
+        tm.reset();
+        tm.setInput(input);
+    }
+}
@@ -0,0 +1,54 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to run a machine from its input until it halts with {@link TuringMachine#run(long)}, on the
+ * dispatch table, with or without skipping sweeps (see {@link Execution#setSweeps(boolean)}), or on a
+ * stepper generated for the machine (see {@link StepperCompiler}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RunBenchmark {
+    @Param
+    Machines machine;
+
+    @Param({"false", "true"})
+    boolean generated;
+
+    @Param({"false", "true"})
+    boolean sweeps;
+
+    private TuringMachine tm;
+
+    @Setup
+    public void setUp() {
+        tm = machine.create();
+        ((TuringMachineImpl) tm).setCodeGeneration(generated);
+        ((TuringMachineImpl) tm).setSweeps(sweeps);
+        machine.restart(tm);
+    }
+
+    @Benchmark
+    public TuringMachine.RunResult run() {
+        machine.restart(tm);
+        return tm.run(Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,60 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Step throughput: one operation is one {@link TuringMachine#doNextStep()}, so the score is steps
+ * per second and {@code gc.alloc.rate.norm} of the gc profiler is bytes allocated per step. The
+ * machine is restarted whenever it halts. With {@code profiled=true} the overhead of the
+ * {@link Profiler} is measured, with {@code sparse=true} the machine runs on a {@link SparseTable}
+ * instead of its dispatch table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SteppingBenchmark {
+    @Param
+    Machines machine;
+
+    @Param({"false", "true"})
+    boolean profiled;
+
+    @Param({"false", "true"})
+    boolean sparse;
+
+    private TuringMachine tm;
+
+    @Setup
+    public void setUp() {
+        tm = machine.start();
+        ((TuringMachineImpl) tm).setProfiling(profiled);
+        if (sparse) {
+            ((TuringMachineImpl) tm).setTableMemoryLimit(0);
+        }
+    }
+
+    @Benchmark
+    public int doNextStep() {
+        if (tm.isInHaltingState()) {
+            machine.restart(tm);
+        }
+        tm.doNextStep();
+        return tm.getCurrentState();
+    }
+}
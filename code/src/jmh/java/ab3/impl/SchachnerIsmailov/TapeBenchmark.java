@@ -0,0 +1,58 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+import ab3.TuringMachine.Movement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for a machine that writes while sweeping left over {@code cells} blank cells, so the tape
+ * grows on the left all the time. The tape grows amortized O(1), so the score for 10^7 cells is
+ * about ten times the one for 10^6.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TapeBenchmark {
+    @Param({"1000000", "10000000"})
+    int cells;
+
+    private TuringMachine tm;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a'));
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(2);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        tm.addTransition(1, null, 1, 'a', Movement.Left);
+        tm.reset();
+        tm.setInput("");
+    }
+
+    @Benchmark
+    public int leftSweep() {
+        for (int i = 0; i < cells; i++) {
+            tm.doNextStep();
+        }
+        return tm.getCurrentState();
+    }
+}
@@ -3,6 +3,7 @@ package ab3;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * Interface zur Implementierung einer Turingmaschine (Mehrband, einseitig beschränkt)
@@ -171,6 +172,60 @@ public interface TuringMachine {
      */
     public boolean isInErrorState();
 
+    /**
+     * Führt Ableitungsschritte aus, bis die Maschine im Halte- oder
+     * Fehlerzustand ist, höchstens aber maxSteps Schritte. Befindet sich die
+     * Maschine bereits im Halte- oder Fehlerzustand, wird kein Schritt
+     * ausgeführt.
+     *
+     * @param maxSteps maximale Anzahl an auszuführenden Schritten
+     * @return Grund für das Anhalten sowie die Anzahl der ausgeführten Schritte
+     * @throws IllegalArgumentException wenn maxSteps negativ ist
+     */
+    public default RunResult run(long maxSteps) throws IllegalArgumentException {
+	return runUntil(tm -> false, maxSteps);
+    }
+
+    /**
+     * Führt Ableitungsschritte aus, bis die Bedingung erfüllt ist oder die
+     * Maschine im Halte- oder Fehlerzustand ist. Die Bedingung wird vor jedem
+     * Schritt geprüft.
+     *
+     * @param condition Bedingung, bei der die Abarbeitung unterbrochen wird
+     * @return Grund für das Anhalten sowie die Anzahl der ausgeführten Schritte
+     */
+    public default RunResult runUntil(Predicate<? super TuringMachine> condition) {
+	return runUntil(condition, Long.MAX_VALUE);
+    }
+
+    /**
+     * Führt Ableitungsschritte aus, bis die Bedingung erfüllt ist oder die
+     * Maschine im Halte- oder Fehlerzustand ist, höchstens aber maxSteps
+     * Schritte. Die Bedingung wird vor jedem Schritt geprüft.
+     *
+     * @param condition Bedingung, bei der die Abarbeitung unterbrochen wird
+     * @param maxSteps maximale Anzahl an auszuführenden Schritten
+     * @return Grund für das Anhalten sowie die Anzahl der ausgeführten Schritte
+     * @throws IllegalArgumentException wenn maxSteps negativ ist
+     */
+    public default RunResult runUntil(Predicate<? super TuringMachine> condition, long maxSteps) throws IllegalArgumentException {
+	if (maxSteps < 0)
+	    throw new IllegalArgumentException();
+	long steps = 0;
+	while (true) {
+	    if (isInHaltingState())
+		return new RunResult(RunResult.Outcome.Halted, steps);
+	    if (isInErrorState())
+		return new RunResult(RunResult.Outcome.Error, steps);
+	    if (condition.test(this))
+		return new RunResult(RunResult.Outcome.ConditionMet, steps);
+	    if (steps == maxSteps)
+		return new RunResult(RunResult.Outcome.BudgetExhausted, steps);
+	    doNextStep();
+	    steps++;
+	}
+    }
+
     /**
      * Liefert die Konfiguration der Maschine für jedes Band. Ist
      * isInErrorState() == true, wird null zurück geliefert. Führende und
@@ -212,6 +267,46 @@ public interface TuringMachine {
 	Stay
     }
 
+    /**
+     * Ergebnis von run(...) bzw. runUntil(...)
+     *
+     * @param outcome Grund für das Anhalten
+     * @param steps Anzahl der ausgeführten Schritte
+     */
+    public record RunResult(Outcome outcome, long steps) {
+	public enum Outcome {
+	    /**
+	     * Maschine ist im Haltezustand
+	     */
+	    Halted,
+
+	    /**
+	     * Maschine ist im Fehlerzustand
+	     */
+	    Error,
+
+	    /**
+	     * Die maximale Anzahl an Schritten wurde ausgeführt
+	     */
+	    BudgetExhausted,
+
+	    /**
+	     * Die Bedingung von runUntil(...) ist erfüllt
+	     */
+	    ConditionMet,
+
+	    /**
+	     * Die Maschine wiederholt eine Konfiguration und wird daher nie halten
+	     */
+	    Loop,
+
+	    /**
+	     * Der Haltezustand ist vom aktuellen Zustand aus nicht erreichbar, die Maschine kann daher nie halten
+	     */
+	    CannotAccept
+	}
+    }
+
     /**
      * Konfiguration eines Bandes samt Schreib-/Lesekopf der TM
      */
@@ -254,9 +349,9 @@ public interface TuringMachine {
 	public boolean equals(Object obj) {
 	    if (obj instanceof TapeContent) {
 		TapeContent tc = (TapeContent) obj;
-		if (belowHead != tc.belowHead) return false;
-		if (!Arrays.equals(leftOfHead, tc.leftOfHead)) return false;
-		if (!Arrays.equals(rightOfHead, tc.rightOfHead)) return false;
+		if (getBelowHead() != tc.getBelowHead()) return false;
+		if (!Arrays.equals(getLeftOfHead(), tc.getLeftOfHead())) return false;
+		if (!Arrays.equals(getRightOfHead(), tc.getRightOfHead())) return false;
 		return true;
 	    } else {
 		return false;
@@ -265,7 +360,7 @@ public interface TuringMachine {
 
 	@Override
 	public String toString() {
-	    return "BEGIN:>" + printArray(leftOfHead) + "'" + belowHead + "'" + printArray(rightOfHead) + "<:END";
+	    return "BEGIN:>" + printArray(getLeftOfHead()) + "'" + getBelowHead() + "'" + printArray(getRightOfHead()) + "<:END";
 	}
 
 	private String printArray(Character[] arr)
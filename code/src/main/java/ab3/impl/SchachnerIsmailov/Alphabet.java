@@ -0,0 +1,140 @@
+package ab3.impl.SchachnerIsmailov;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+
+import static ab3.impl.SchachnerIsmailov.Constants.*;
+
+/**
+ * Tape alphabet interned into dense symbol codes.
+ * <p>
+ * The blank is always code 0, the other symbols follow in ascending order. Symbols added later
+ * with {@link #with(char)} (e.g. input symbols outside the tape alphabet) are appended, so the codes
+ * of an alphabet stay valid in all of its extensions. Codes fit into a char, so an alphabet may hold
+ * every symbol; almost all alphabets have at most {@value #BYTE_CODES} symbols, whose codes fit into
+ * a byte.
+ */
+public final class Alphabet {
+    static final int MAX_SYMBOLS = 1 << 16;
+    /** number of codes that fit into a byte, see {@link ByteCells} and {@link DispatchTable} */
+    static final int BYTE_CODES = 256;
+    static final Alphabet BLANK = new Alphabet(new char[]{SPACE});
+
+    /** code -> symbol */
+    private final char[] symbols;
+    /** symbol -> code, -1 if the symbol is not part of the alphabet */
+    private final int[] codes;
+
+    private Alphabet(char[] symbols) {
+        this.symbols = symbols;
+        char max = SPACE;
+        for (char c : symbols) max = (char) Math.max(max, c);
+        codes = new int[max + 1];
+        Arrays.fill(codes, -1);
+        for (int i = 0; i < symbols.length; i++) codes[symbols[i]] = i;
+    }
+
+    /**
+     * @param symbols the symbols besides the blank, may contain {@code null} for the blank
+     * @throws IllegalArgumentException if there are more than {@value #MAX_SYMBOLS} symbols
+     */
+    static Alphabet of(Collection<Character> symbols) throws IllegalArgumentException {
+        var sorted = new TreeSet<Character>();
+        if (symbols != null) {
+            symbols.stream().filter(c -> c != null && c != SPACE).forEach(sorted::add);
+        }
+        if (sorted.size() >= MAX_SYMBOLS)
+            throw new IllegalArgumentException();
+        char[] interned = new char[sorted.size() + 1];
+        interned[0] = SPACE;
+        int next = 1;
+        for (char c : sorted) interned[next++] = c;
+        return new Alphabet(interned);
+    }
+
+    /**
+     * @param symbols all symbols in the order of their codes, starting with the blank
+     * @throws IllegalArgumentException if the first symbol is not the blank, a symbol occurs twice or
+     * there are more than {@value #MAX_SYMBOLS} symbols
+     */
+    static Alphabet ofCodes(char[] symbols) throws IllegalArgumentException {
+        if (symbols.length == 0 || symbols.length > MAX_SYMBOLS || symbols[0] != SPACE)
+            throw new IllegalArgumentException();
+        Alphabet alphabet = new Alphabet(symbols.clone());
+        for (int code = 0; code < symbols.length; code++) {
+            if (alphabet.code(symbols[code]) != code)
+                throw new IllegalArgumentException();
+        }
+        return alphabet;
+    }
+
+    /**
+     * @return this alphabet if it contains the symbol, otherwise an extension with the symbol appended
+     * @throws IllegalArgumentException if the alphabet is full
+     */
+    Alphabet with(char symbol) throws IllegalArgumentException {
+        if (code(symbol) >= 0) {
+            return this;
+        }
+        if (symbols.length == MAX_SYMBOLS)
+            throw new IllegalArgumentException();
+        char[] extended = Arrays.copyOf(symbols, symbols.length + 1);
+        extended[symbols.length] = symbol;
+        return new Alphabet(extended);
+    }
+
+    /**
+     * @return whether this alphabet is the given one or an extension of it
+     */
+    boolean extendsAlphabet(Alphabet base) {
+        return base.symbols.length <= symbols.length
+                && Arrays.equals(symbols, 0, base.symbols.length, base.symbols, 0, base.symbols.length);
+    }
+
+    /**
+     * @return number of symbols including the blank
+     */
+    public int size() {
+        return symbols.length;
+    }
+
+    public boolean contains(char symbol) {
+        return code(symbol) >= 0;
+    }
+
+    /**
+     * @return code of the symbol, -1 if it is not part of the alphabet
+     */
+    int code(char symbol) {
+        return symbol < codes.length ? codes[symbol] : -1;
+    }
+
+    char symbol(int code) {
+        return symbols[code];
+    }
+
+    /**
+     * @return the symbol as returned by the public API, {@code null} for the blank
+     */
+    Character character(int code) {
+        return code == 0 ? null : symbols[code];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(symbols, ((Alphabet) o).symbols);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(symbols);
+    }
+
+    @Override
+    public String toString() {
+        return new String(symbols);
+    }
+}
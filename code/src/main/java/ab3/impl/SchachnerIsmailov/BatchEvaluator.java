@@ -0,0 +1,121 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Evaluates one machine against many inputs in parallel.
+ * <p>
+ * Every input runs in its own {@link Execution} of one shared, immutable {@link Program}; the
+ * executions only own their tapes and state.
+ */
+public final class BatchEvaluator {
+    /**
+     * Result of running the machine on one input.
+     *
+     * @param index position of the input in the list of inputs
+     * @param input the input
+     * @param result outcome and number of steps
+     * @param tapeContents tape contents at the end, null if the machine is in the error state
+     */
+    public record Result(int index, String input, TuringMachine.RunResult result,
+                         List<TuringMachine.TapeContent> tapeContents) {
+    }
+
+    private final Supplier<Execution> executions;
+    private final Executor executor;
+
+    /**
+     * Creates an evaluator running on the common {@link ForkJoinPool}.
+     */
+    public BatchEvaluator(Program program) {
+        this(program, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an evaluator running on the given executor.
+     */
+    public BatchEvaluator(Program program, Executor executor) {
+        this(program::newExecution, executor);
+    }
+
+    /**
+     * Creates an evaluator for the current definition of the machine, running on the common
+     * {@link ForkJoinPool}. The macro step and loop detection settings the machine has now are used.
+     */
+    public BatchEvaluator(TuringMachineImpl machine) {
+        this(machine, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an evaluator for the current definition of the machine, running on the given
+     * executor. The definition and the execution settings are captured when the evaluator is created,
+     * so later changes of the machine do not affect it, not even those made while a batch is running.
+     */
+    public BatchEvaluator(TuringMachineImpl machine, Executor executor) {
+        this(executionsOf(machine), executor);
+    }
+
+    private static Supplier<Execution> executionsOf(TuringMachineImpl machine) {
+        Program program = machine.freeze();
+        // the tasks only see the immutable snapshot, never the mutable fields of the machine
+        TuringMachineImpl.Settings settings = machine.settings();
+        return () -> settings.configure(program.newExecution());
+    }
+
+    private BatchEvaluator(Supplier<Execution> executions, Executor executor) {
+        this.executions = executions;
+        this.executor = executor;
+    }
+
+    /**
+     * Runs the machine on all inputs, each for at most {@code stepBudget} steps.
+     *
+     * @return the results in the order of the inputs
+     */
+    public Stream<Result> evaluateAll(List<String> inputs, long stepBudget) {
+        List<CompletableFuture<Result>> results = IntStream.range(0, inputs.size())
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> evaluate(i, inputs.get(i), stepBudget), executor))
+                .toList();
+        return results.stream().map(CompletableFuture::join);
+    }
+
+    /**
+     * Runs the machine on all inputs, each for at most {@code stepBudget} steps.
+     *
+     * @return the results in the order they are completed
+     */
+    public Stream<Result> evaluateAllUnordered(List<String> inputs, long stepBudget) {
+        var completion = new ExecutorCompletionService<Result>(executor);
+        for (int i = 0; i < inputs.size(); i++) {
+            int index = i;
+            completion.submit(() -> evaluate(index, inputs.get(index), stepBudget));
+        }
+        return Stream.generate(() -> {
+            try {
+                return completion.take().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }).limit(inputs.size());
+    }
+
+    private Result evaluate(int index, String input, long stepBudget) {
+        Execution execution = executions.get();
+        execution.setInput(input);
+        TuringMachine.RunResult result = execution.run(stepBudget);
+        return new Result(index, input, result, execution.getTapeContents());
+    }
+}
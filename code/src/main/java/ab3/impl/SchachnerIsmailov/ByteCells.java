@@ -0,0 +1,196 @@
+package ab3.impl.SchachnerIsmailov;
+
+import java.util.Arrays;
+
+/**
+ * One byte per cell, for alphabets of up to {@value Alphabet#BYTE_CODES} symbols.
+ * <p>
+ * The cells are stored in chunks of {@code 1 << }{@value #CHUNK_SHIFT} bytes, only a smaller tape
+ * is a single chunk of its capacity, which is accessed directly. Copies share the chunks; a chunk is
+ * copied before its first write (copy-on-write), so copying costs O(chunks) and writing afterwards
+ * O(chunks touched).
+ */
+final class ByteCells extends Cells {
+    /** log2 of the number of cells per chunk */
+    static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private byte[][] chunks;
+    /** the only chunk, null if there are several */
+    private byte[] single;
+    /** whether a chunk is shared with a copy and has to be copied before the next write */
+    private boolean[] shared;
+    /** number of shared chunks */
+    private int sharedChunks;
+
+    /**
+     * Creates blank cells, the capacity is rounded up to whole chunks if it exceeds one chunk.
+     */
+    ByteCells(long capacity) {
+        if (capacity <= CHUNK_SIZE) {
+            chunks = new byte[][]{new byte[(int) capacity]};
+        } else {
+            chunks = new byte[Math.toIntExact((capacity + CHUNK_MASK) >>> CHUNK_SHIFT)][];
+            for (int c = 0; c < chunks.length; c++) {
+                chunks[c] = new byte[CHUNK_SIZE];
+            }
+        }
+        shared = new boolean[chunks.length];
+        nonBlank = new int[chunks.length];
+        single = chunks.length == 1 ? chunks[0] : null;
+    }
+
+    private ByteCells(byte[][] chunks, int[] nonBlank) {
+        this.chunks = chunks;
+        this.nonBlank = nonBlank;
+        single = chunks.length == 1 ? chunks[0] : null;
+        shared = new boolean[chunks.length];
+        Arrays.fill(shared, true);
+        sharedChunks = chunks.length;
+    }
+
+    @Override
+    Cells copy() {
+        Arrays.fill(shared, true);
+        sharedChunks = chunks.length;
+        return new ByteCells(chunks.clone(), nonBlank.clone());
+    }
+
+    @Override
+    long capacity() {
+        return chunks.length == 1 ? chunks[0].length : (long) chunks.length << CHUNK_SHIFT;
+    }
+
+    @Override
+    int countShift() {
+        return CHUNK_SHIFT;
+    }
+
+    @Override
+    long maxCapacity() {
+        return MAX_ARRAY_LENGTH;
+    }
+
+    @Override
+    int maxSymbols() {
+        return Alphabet.BYTE_CODES;
+    }
+
+    @Override
+    int get(long i) {
+        if (single != null) {
+            return single[(int) i] & 0xFF;
+        }
+        return chunks[(int) (i >>> CHUNK_SHIFT)][(int) i & CHUNK_MASK] & 0xFF;
+    }
+
+    @Override
+    void set(long i, int code) {
+        int c = (int) (i >>> CHUNK_SHIFT);
+        if (sharedChunks > 0 && shared[c]) {
+            chunks[c] = chunks[c].clone();
+            shared[c] = false;
+            sharedChunks--;
+            if (single != null) {
+                single = chunks[0];
+            }
+        }
+        byte[] chunk = chunks[c];
+        int j = (int) i & CHUNK_MASK;
+        if ((chunk[j] == 0) != (code == 0)) {
+            nonBlank[c] += code == 0 ? -1 : 1;
+        }
+        chunk[j] = (byte) code;
+    }
+
+    @Override
+    long scan(long from, long to, boolean[] symbols) {
+        long i = from;
+        if (to < from) {
+            while (i > to) {
+                byte[] chunk = chunks[(int) (i >>> CHUNK_SHIFT)];
+                long base = i & ~CHUNK_MASK;
+                int stop = (int) Math.max(to - base, -1);
+                int j = (int) (i - base);
+                while (j > stop && symbols[chunk[j] & 0xFF]) {
+                    j--;
+                }
+                i = base + j;
+                if (j > stop) {
+                    break;
+                }
+            }
+        } else {
+            while (i < to) {
+                byte[] chunk = chunks[(int) (i >>> CHUNK_SHIFT)];
+                long base = i & ~CHUNK_MASK;
+                int stop = (int) Math.min(to - base, chunk.length);
+                int j = (int) (i - base);
+                while (j < stop && symbols[chunk[j] & 0xFF]) {
+                    j++;
+                }
+                i = base + j;
+                if (j < stop) {
+                    break;
+                }
+            }
+        }
+        return i;
+    }
+
+    @Override
+    void resize(long capacity, long shift) {
+        if ((shift & CHUNK_MASK) == 0 && chunks.length > 1) {
+            // moves whole chunks, which stay shared
+            int chunkShift = (int) (shift >>> CHUNK_SHIFT);
+            byte[][] resized = new byte[Math.toIntExact(capacity >>> CHUNK_SHIFT)][];
+            boolean[] resizedShared = new boolean[resized.length];
+            int[] resizedNonBlank = new int[resized.length];
+            System.arraycopy(chunks, 0, resized, chunkShift, chunks.length);
+            System.arraycopy(shared, 0, resizedShared, chunkShift, shared.length);
+            System.arraycopy(nonBlank, 0, resizedNonBlank, chunkShift, nonBlank.length);
+            for (int c = 0; c < resized.length; c++) {
+                if (resized[c] == null) {
+                    resized[c] = new byte[CHUNK_SIZE];
+                }
+            }
+            chunks = resized;
+            shared = resizedShared;
+            nonBlank = resizedNonBlank;
+            single = null;
+            return;
+        }
+        long oldCapacity = capacity();
+        ByteCells resized = new ByteCells(capacity);
+        for (long i = 0; i < oldCapacity; ) {
+            long target = i + shift;
+            int length = (int) Math.min(Math.min(oldCapacity - i, CHUNK_SIZE - (i & CHUNK_MASK)),
+                    CHUNK_SIZE - (target & CHUNK_MASK));
+            int c = (int) (i >>> CHUNK_SHIFT);
+            if (nonBlank[c] > 0) {
+                // blank pieces stay blank, the others are counted for their new chunk
+                byte[] source = chunks[c];
+                int from = (int) i & CHUNK_MASK;
+                int t = (int) (target >>> CHUNK_SHIFT);
+                System.arraycopy(source, from, resized.chunks[t], (int) target & CHUNK_MASK, length);
+                for (int j = from; j < from + length; j++) {
+                    if (source[j] != 0) resized.nonBlank[t]++;
+                }
+            }
+            i += length;
+        }
+        chunks = resized.chunks;
+        nonBlank = resized.nonBlank;
+        single = resized.single;
+        shared = resized.shared;
+        sharedChunks = 0;
+    }
+
+    /**
+     * @return the number of chunks shared with a copy
+     */
+    int sharedChunks() {
+        return sharedChunks;
+    }
+}
@@ -0,0 +1,127 @@
+package ab3.impl.SchachnerIsmailov;
+
+/**
+ * Storage of the symbol codes of a {@link Tape}, indexed from 0 to {@link #capacity()} - 1.
+ * <p>
+ * {@link #create(int, long)} picks {@link ByteCells}, the fastest format, for small tapes. From
+ * {@link #PACKED_MIN_CAPACITY} cells on it picks the most compact format for an alphabet:
+ * {@link PackedCells} with 2 or 4 bits per cell for up to 4 or 16 symbols (including the blank),
+ * {@link ByteCells} otherwise. Tapes too large for the heap use {@link OffHeapCells} instead.
+ * Alphabets of more than {@value Alphabet#BYTE_CODES} symbols always use {@link CharCells}.
+ * <p>
+ * Every format counts the non-blank cells per chunk of its storage in {@link #set(long, int)}, so
+ * {@link #findNonBlank(long, long)} skips blank chunks without reading their cells.
+ */
+abstract class Cells {
+    /**
+     * capacity from which the cells are bit-packed; the shifts and masks cost about a fifth of the
+     * throughput of a plain run (half with generated code), which only pays off for tapes whose
+     * bytes would no longer fit into the caches
+     */
+    static final int PACKED_MIN_CAPACITY = 1 << 20;
+    /**
+     * largest array length the JVM allocates; also the largest number of bytes or words of the cells
+     * kept on the heap, longer tapes move to {@link OffHeapCells}
+     */
+    static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    /** chunk -> number of non-blank cells in it, see {@link #countShift()} */
+    int[] nonBlank;
+
+    /**
+     * @param alphabetSize number of symbols including the blank
+     * @return blank cells on the heap in the format for the alphabet and capacity, with at least the given capacity
+     */
+    static Cells create(int alphabetSize, long capacity) {
+        return create(alphabetSize, capacity, false);
+    }
+
+    /**
+     * @param alphabetSize number of symbols including the blank
+     * @param offHeap whether the cells are stored outside the Java heap, ignored for alphabets too
+     *                large for a byte per cell
+     * @return blank cells in the format for the alphabet and capacity, with at least the given capacity
+     * @throws IllegalStateException if the capacity is too large for the format of a large alphabet
+     */
+    static Cells create(int alphabetSize, long capacity, boolean offHeap) throws IllegalStateException {
+        if (alphabetSize > Alphabet.BYTE_CODES) {
+            return new CharCells(capacity);
+        }
+        if (offHeap) {
+            return new OffHeapCells(capacity);
+        }
+        int bits = capacity >= PACKED_MIN_CAPACITY ? PackedCells.bitsPerCell(alphabetSize) : 0;
+        return bits > 0 ? new PackedCells(capacity, bits) : new ByteCells(capacity);
+    }
+
+    /**
+     * @return an independent copy, sharing the storage with these cells; a chunk or segment of the
+     * storage is copied when either of them first writes into it (copy-on-write)
+     */
+    abstract Cells copy();
+
+    abstract long capacity();
+
+    /**
+     * @return log2 of the number of cells per chunk counted in {@link #nonBlank}
+     */
+    abstract int countShift();
+
+    /**
+     * @return the largest capacity these cells can be resized to
+     */
+    abstract long maxCapacity();
+
+    /**
+     * @return the largest number of symbols (including the blank) a cell can hold
+     */
+    abstract int maxSymbols();
+
+    abstract int get(long i);
+
+    abstract void set(long i, int code);
+
+    /**
+     * @param from first index scanned
+     * @param to index the scan stops at (exclusive), left of {@code from} to scan to the left
+     * @param symbols for each code, whether the scan continues over it
+     * @return the first index from {@code from} towards {@code to} whose code is not in the set, {@code to} if there is none
+     */
+    long scan(long from, long to, boolean[] symbols) {
+        int step = to < from ? -1 : 1;
+        long i = from;
+        while (i != to && symbols[get(i)]) {
+            i += step;
+        }
+        return i;
+    }
+
+    /**
+     * @param from first index searched
+     * @param to index the search stops at (exclusive), left of {@code from} to search to the left
+     * @return the first index from {@code from} towards {@code to} holding a non-blank code, {@code to}
+     * if there is none; chunks without non-blank cells are skipped without reading them
+     */
+    long findNonBlank(long from, long to) {
+        int shift = countShift();
+        int step = to < from ? -1 : 1;
+        long i = from;
+        while (i != to) {
+            int c = (int) (i >>> shift);
+            if (nonBlank[c] == 0) {
+                i = step > 0 ? Math.min((long) (c + 1) << shift, to) : Math.max(((long) c << shift) - 1, to);
+            } else if (get(i) != 0) {
+                return i;
+            } else {
+                i += step;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Replaces the storage by one with the given capacity, the old cells starting at index {@code shift}.
+     * The shift is half the current capacity.
+     */
+    abstract void resize(long capacity, long shift);
+}
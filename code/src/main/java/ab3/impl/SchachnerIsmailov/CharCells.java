@@ -0,0 +1,145 @@
+package ab3.impl.SchachnerIsmailov;
+
+import java.util.Arrays;
+
+/**
+ * Two bytes per cell, for alphabets too large for {@link ByteCells}; the codes of an {@link Alphabet}
+ * always fit into a char. Such alphabets are rare, so these cells are neither packed nor moved off
+ * the heap.
+ * <p>
+ * The cells are stored in chunks of {@code 1 << }{@value #CHUNK_SHIFT} chars like those of
+ * {@link ByteCells}, shared copy-on-write between copies.
+ */
+final class CharCells extends Cells {
+    /** log2 of the number of cells per chunk */
+    static final int CHUNK_SHIFT = 15;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private char[][] chunks;
+    /** whether a chunk is shared with a copy and has to be copied before the next write */
+    private boolean[] shared;
+    /** number of shared chunks */
+    private int sharedChunks;
+
+    /**
+     * Creates blank cells, the capacity is rounded up to whole chunks if it exceeds one chunk.
+     *
+     * @throws IllegalStateException if the capacity exceeds {@link #maxCapacity()}
+     */
+    CharCells(long capacity) throws IllegalStateException {
+        if (capacity > MAX_ARRAY_LENGTH)
+            throw new IllegalStateException("tape too long");
+        if (capacity <= CHUNK_SIZE) {
+            chunks = new char[][]{new char[(int) capacity]};
+        } else {
+            chunks = new char[(int) ((capacity + CHUNK_MASK) >>> CHUNK_SHIFT)][];
+            for (int c = 0; c < chunks.length; c++) {
+                chunks[c] = new char[CHUNK_SIZE];
+            }
+        }
+        shared = new boolean[chunks.length];
+        nonBlank = new int[chunks.length];
+    }
+
+    private CharCells(char[][] chunks, int[] nonBlank) {
+        this.chunks = chunks;
+        this.nonBlank = nonBlank;
+        shared = new boolean[chunks.length];
+        Arrays.fill(shared, true);
+        sharedChunks = chunks.length;
+    }
+
+    @Override
+    Cells copy() {
+        Arrays.fill(shared, true);
+        sharedChunks = chunks.length;
+        return new CharCells(chunks.clone(), nonBlank.clone());
+    }
+
+    @Override
+    long capacity() {
+        return chunks.length == 1 ? chunks[0].length : (long) chunks.length << CHUNK_SHIFT;
+    }
+
+    @Override
+    int countShift() {
+        return CHUNK_SHIFT;
+    }
+
+    @Override
+    long maxCapacity() {
+        return MAX_ARRAY_LENGTH;
+    }
+
+    @Override
+    int maxSymbols() {
+        return Alphabet.MAX_SYMBOLS;
+    }
+
+    @Override
+    int get(long i) {
+        return chunks[(int) (i >>> CHUNK_SHIFT)][(int) i & CHUNK_MASK];
+    }
+
+    @Override
+    void set(long i, int code) {
+        int c = (int) (i >>> CHUNK_SHIFT);
+        if (sharedChunks > 0 && shared[c]) {
+            chunks[c] = chunks[c].clone();
+            shared[c] = false;
+            sharedChunks--;
+        }
+        char[] chunk = chunks[c];
+        int j = (int) i & CHUNK_MASK;
+        if ((chunk[j] == 0) != (code == 0)) {
+            nonBlank[c] += code == 0 ? -1 : 1;
+        }
+        chunk[j] = (char) code;
+    }
+
+    /**
+     * Codes beyond the end of the set stop the scan, a sweep of a {@link DispatchTable} only covers
+     * the codes of its alphabet.
+     */
+    @Override
+    long scan(long from, long to, boolean[] symbols) {
+        int step = to < from ? -1 : 1;
+        long i = from;
+        while (i != to) {
+            int code = get(i);
+            if (code >= symbols.length || !symbols[code]) {
+                break;
+            }
+            i += step;
+        }
+        return i;
+    }
+
+    @Override
+    void resize(long capacity, long shift) {
+        long oldCapacity = capacity();
+        CharCells resized = new CharCells(capacity);
+        for (long i = 0; i < oldCapacity; ) {
+            long target = i + shift;
+            int length = (int) Math.min(Math.min(oldCapacity - i, CHUNK_SIZE - (i & CHUNK_MASK)),
+                    CHUNK_SIZE - (target & CHUNK_MASK));
+            int c = (int) (i >>> CHUNK_SHIFT);
+            if (nonBlank[c] > 0) {
+                // blank pieces stay blank, the others are counted for their new chunk
+                char[] source = chunks[c];
+                int from = (int) i & CHUNK_MASK;
+                int t = (int) (target >>> CHUNK_SHIFT);
+                System.arraycopy(source, from, resized.chunks[t], (int) target & CHUNK_MASK, length);
+                for (int j = from; j < from + length; j++) {
+                    if (source[j] != 0) resized.nonBlank[t]++;
+                }
+            }
+            i += length;
+        }
+        chunks = resized.chunks;
+        nonBlank = resized.nonBlank;
+        shared = resized.shared;
+        sharedChunks = 0;
+    }
+}
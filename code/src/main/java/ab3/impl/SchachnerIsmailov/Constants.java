@@ -2,4 +2,9 @@ package ab3.impl.SchachnerIsmailov;
 
 public class Constants {
     public static final char SPACE = ' ';
+    /**
+     * Wildcard of a transition: read on a tape it matches any symbol, written it keeps the symbol
+     * read. Not allowed as a symbol of the alphabet.
+     */
+    public static final char ANY = '\uFFFF';
 }
@@ -0,0 +1,10 @@
+package ab3.impl.SchachnerIsmailov;
+
+/**
+ * A cycle of configurations found by the {@link LoopDetector}.
+ *
+ * @param start number of steps after which the machine entered the cycle
+ * @param length number of steps of one pass through the cycle
+ */
+public record Cycle(long start, long length) {
+}
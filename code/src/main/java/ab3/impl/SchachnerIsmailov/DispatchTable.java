@@ -0,0 +1,440 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Dense state × symbol dispatch table compiled from the transition map.
+ * <p>
+ * Symbols are indexed by their {@link Alphabet} code in {@code 0 .. |Γ|-1}, the blank always being 0.
+ * The transition for state {@code q} and the symbols {@code c0 .. c(k-1)} read on the {@code k} tapes
+ * is found at {@code q * |Γ|^k + c(k-1) * |Γ|^(k-1) + ... + c0}, so a step costs a few array loads
+ * instead of hashing a {@link TransitionKey}.
+ * <p>
+ * Transitions that stay in their state, write what they read and move the head of a single tape are
+ * marked as sweeps: the machine keeps taking them until that head reaches a symbol outside the
+ * {@link #sweepSymbols(int) symbols} of the sweep, so {@link Execution} skips such runs with a single
+ * scan of the tape (see {@link Tape#sweep(boolean[], boolean, long)}).
+ */
+public final class DispatchTable {
+    /**
+     * Default upper bound for the number of dispatch slots (16 MiB), larger machines run on a
+     * {@link SparseTable}; see {@link TuringMachineImpl#setTableMemoryLimit(long)}.
+     */
+    static final long MAX_SLOTS = 1 << 22;
+    /** upper bound for the number of slots of an array */
+    static final long MAX_ARRAY_SLOTS = Integer.MAX_VALUE - 8;
+
+    private final int numberOfTapes;
+    private final int numberOfSymbols;
+    private final Alphabet alphabet;
+    /** slot -> transition id, -1 if there is no transition */
+    private final int[] dispatch;
+    /** transition id -> next state */
+    private final int[] toState;
+    /** transition id * k + tape -> code of the symbol to write */
+    private final byte[] write;
+    /** transition id * k + tape -> head movement */
+    private final TuringMachine.Movement[] move;
+    /**
+     * transition id -> number of the transition it was compiled from: the transitions without wildcards
+     * followed by the wildcard transitions; null if the ids are the numbers
+     */
+    private int[] source;
+    /** transition id -> tape whose head a sweep moves, -1 if the transition is no sweep */
+    private final byte[] sweepTape;
+    /** transition id -> codes on the swept tape that continue the sweep, null if no sweep */
+    private final boolean[][] sweepSymbols;
+
+    private DispatchTable(int numberOfTapes, Alphabet alphabet, int[] dispatch,
+                          int[] toState, byte[] write, TuringMachine.Movement[] move) {
+        this.numberOfTapes = numberOfTapes;
+        this.numberOfSymbols = alphabet.size();
+        this.alphabet = alphabet;
+        this.dispatch = dispatch;
+        this.toState = toState;
+        this.write = write;
+        this.move = move;
+        this.sweepTape = new byte[toState.length];
+        this.sweepSymbols = new boolean[toState.length][];
+        findSweeps();
+    }
+
+    /**
+     * Marks the sweeps; sweeps on the same tape, in the same direction and with the same symbols
+     * below the other heads share their symbol set.
+     */
+    private void findSweeps() {
+        Arrays.fill(sweepTape, (byte) -1);
+        if (numberOfTapes > Byte.MAX_VALUE) {
+            return;
+        }
+        int stateSlots = stateSlots();
+        Map<Long, boolean[]> groups = new HashMap<>();
+        for (int slot = 0; slot < dispatch.length; slot++) {
+            int id = dispatch[slot];
+            if (id < 0 || toState[id] != slot / stateSlots) {
+                continue;
+            }
+            int tape = -1;
+            int weight = 1;
+            int tapeWeight = 0;
+            for (int i = 0, rest = slot; i < numberOfTapes; i++, rest /= numberOfSymbols, weight *= numberOfSymbols) {
+                if (write(id, i) != rest % numberOfSymbols) {
+                    tape = -2;
+                    break;
+                }
+                if (move(id, i) != TuringMachine.Movement.Stay) {
+                    if (tape != -1) {
+                        tape = -2;
+                        break;
+                    }
+                    tape = i;
+                    tapeWeight = weight;
+                }
+            }
+            if (tape < 0) {
+                continue;
+            }
+            int code = slot / tapeWeight % numberOfSymbols;
+            long base = slot - (long) code * tapeWeight;
+            long group = (base * numberOfTapes + tape) * 2 + move(id, tape).ordinal();
+            boolean[] symbols = groups.computeIfAbsent(group, g -> new boolean[Alphabet.BYTE_CODES]);
+            symbols[code] = true;
+            sweepTape[id] = (byte) tape;
+            sweepSymbols[id] = symbols;
+        }
+    }
+
+    /**
+     * @return number of slots per state, {@code |Γ|^k}
+     */
+    int stateSlots() {
+        int slots = 1;
+        for (int i = 0; i < numberOfTapes; i++) {
+            slots *= numberOfSymbols;
+        }
+        return slots;
+    }
+
+    /**
+     * Compiles the given transitions into a dispatch table.
+     *
+     * @param alphabet the tape alphabet, containing all symbols used by the transitions
+     * @return the table, or {@code null} if it would exceed {@link #MAX_SLOTS} slots, a transition
+     * starts in a state outside of {@code 0 .. numberOfStates-1} or uses a symbol outside the alphabet,
+     * or the alphabet has more than {@value Alphabet#BYTE_CODES} symbols (the codes are stored in bytes)
+     */
+    static DispatchTable compile(Alphabet alphabet, int numberOfStates, int numberOfTapes,
+                                 Map<TransitionKey, TransitionValue> transitions) {
+        return compile(alphabet, numberOfStates, numberOfTapes, transitions, WildcardIndex.EMPTY);
+    }
+
+    /**
+     * Compiles the given transitions and the wildcard transitions into a dispatch table. Every free
+     * slot of a state with wildcard transitions gets the matching one; a wildcard transition that keeps
+     * symbols gets an id for every combination of the symbols it keeps, so the table only holds codes.
+     *
+     * @see #compile(Alphabet, int, int, Map)
+     */
+    static DispatchTable compile(Alphabet alphabet, int numberOfStates, int numberOfTapes,
+                                 Map<TransitionKey, TransitionValue> transitions, WildcardIndex wildcards) {
+        return compile(alphabet, numberOfStates, numberOfTapes, transitions, wildcards, MAX_SLOTS);
+    }
+
+    /**
+     * Compiles the given transitions and the wildcard transitions into a dispatch table of at most
+     * {@code maxSlots} slots.
+     *
+     * @see #compile(Alphabet, int, int, Map, WildcardIndex)
+     */
+    static DispatchTable compile(Alphabet alphabet, int numberOfStates, int numberOfTapes,
+                                 Map<TransitionKey, TransitionValue> transitions, WildcardIndex wildcards, long maxSlots) {
+        if (alphabet.size() > Alphabet.BYTE_CODES
+                || transitions.keySet().stream().anyMatch(key -> key.fromState() < 0 || key.fromState() >= numberOfStates)) {
+            return null;
+        }
+        maxSlots = Math.min(maxSlots, MAX_ARRAY_SLOTS);
+        long slots = numberOfStates;
+        for (int i = 0; i < numberOfTapes && slots <= maxSlots; i++) {
+            slots *= alphabet.size();
+        }
+        if (slots > maxSlots) {
+            return null;
+        }
+
+        int[] dispatch = new int[(int) slots];
+        Arrays.fill(dispatch, -1);
+        int size = transitions.size();
+        int[] toState = new int[size];
+        byte[] write = new byte[size * numberOfTapes];
+        TuringMachine.Movement[] move = new TuringMachine.Movement[size * numberOfTapes];
+        int id = 0;
+        for (var entry : transitions.entrySet()) {
+            TransitionKey key = entry.getKey();
+            TransitionValue value = entry.getValue();
+            int slot = key.fromState();
+            for (int i = numberOfTapes - 1; i >= 0; i--) {
+                int code = alphabet.code(key.readTape()[i]);
+                if (code < 0) {
+                    return null;
+                }
+                slot = slot * alphabet.size() + code;
+            }
+            dispatch[slot] = id;
+            toState[id] = value.toState();
+            for (int i = 0; i < numberOfTapes; i++) {
+                int code = alphabet.code(value.writeTapes()[i]);
+                if (code < 0) {
+                    return null;
+                }
+                write[id * numberOfTapes + i] = (byte) code;
+            }
+            System.arraycopy(value.moveTapes(), 0, move, id * numberOfTapes, numberOfTapes);
+            id++;
+        }
+        if (wildcards.size() == 0) {
+            return new DispatchTable(numberOfTapes, alphabet, dispatch, toState, write, move);
+        }
+
+        // wildcard transitions: id per wildcard and combination of the codes it keeps
+        int stateSlots = (int) (slots / numberOfStates);
+        int[] source = new int[size];
+        for (int i = 0; i < size; i++) {
+            source[i] = i;
+        }
+        Map<Long, Integer> ids = new HashMap<>();
+        char[] read = new char[numberOfTapes];
+        for (int state = 0; state < numberOfStates; state++) {
+            if (!wildcards.hasWildcards(state)) {
+                continue;
+            }
+            for (int slot = state * stateSlots; slot < (state + 1) * stateSlots; slot++) {
+                if (dispatch[slot] >= 0) {
+                    continue;
+                }
+                for (int i = 0, rest = slot; i < numberOfTapes; i++, rest /= alphabet.size()) {
+                    read[i] = alphabet.symbol(rest % alphabet.size());
+                }
+                int wildcard = wildcards.match(state, read);
+                if (wildcard < 0) {
+                    continue;
+                }
+                TransitionValue value = wildcards.value(wildcard);
+                long kept = 0;
+                for (int i = numberOfTapes - 1; i >= 0; i--) {
+                    if (value.writeTapes()[i] == Constants.ANY) {
+                        kept = kept * alphabet.size() + alphabet.code(read[i]);
+                    }
+                }
+                Integer existing = ids.get(wildcard * (long) stateSlots + kept);
+                if (existing != null) {
+                    dispatch[slot] = existing;
+                    continue;
+                }
+                if (id == toState.length) {
+                    int capacity = Math.max(16, 2 * id);
+                    toState = Arrays.copyOf(toState, capacity);
+                    source = Arrays.copyOf(source, capacity);
+                    write = Arrays.copyOf(write, capacity * numberOfTapes);
+                    move = Arrays.copyOf(move, capacity * numberOfTapes);
+                }
+                toState[id] = value.toState();
+                source[id] = size + wildcard;
+                for (int i = 0; i < numberOfTapes; i++) {
+                    char c = value.writeTapes()[i] == Constants.ANY ? read[i] : value.writeTapes()[i];
+                    int code = alphabet.code(c);
+                    if (code < 0) {
+                        return null;
+                    }
+                    write[id * numberOfTapes + i] = (byte) code;
+                }
+                System.arraycopy(value.moveTapes(), 0, move, id * numberOfTapes, numberOfTapes);
+                ids.put(wildcard * (long) stateSlots + kept, id);
+                dispatch[slot] = id++;
+            }
+        }
+        DispatchTable table = new DispatchTable(numberOfTapes, alphabet, dispatch, Arrays.copyOf(toState, id),
+                Arrays.copyOf(write, id * numberOfTapes), Arrays.copyOf(move, id * numberOfTapes));
+        table.source = Arrays.copyOf(source, id);
+        return table;
+    }
+
+    /**
+     * Compiles the transitions of a batch straight into a dispatch table, without creating objects per
+     * transition. A later transition for the same state and symbols replaces the earlier one and keeps
+     * its id, as in the transition map.
+     *
+     * @param alphabet the tape alphabet, containing all symbols used by the transitions
+     * @return the table, or {@code null} if it would exceed {@code maxSlots} slots, the alphabet has more
+     * than {@value Alphabet#BYTE_CODES} symbols, or a transition starts in a state outside of
+     * {@code 0 .. numberOfStates-1} or uses a wildcard or a symbol outside the alphabet
+     */
+    static DispatchTable compile(Alphabet alphabet, int numberOfStates, TransitionBatch batch, long maxSlots) {
+        int numberOfTapes = batch.getNumberOfTapes();
+        if (alphabet.size() > Alphabet.BYTE_CODES) {
+            return null;
+        }
+        maxSlots = Math.min(maxSlots, MAX_ARRAY_SLOTS);
+        long slots = numberOfStates;
+        for (int i = 0; i < numberOfTapes && slots <= maxSlots; i++) {
+            slots *= alphabet.size();
+        }
+        if (slots > maxSlots) {
+            return null;
+        }
+
+        int[] dispatch = new int[(int) slots];
+        Arrays.fill(dispatch, -1);
+        int size = batch.size();
+        int[] toState = new int[size];
+        byte[] write = new byte[size * numberOfTapes];
+        TuringMachine.Movement[] move = new TuringMachine.Movement[size * numberOfTapes];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int slot = batch.fromState(i);
+            if (slot < 0 || slot >= numberOfStates) {
+                return null;
+            }
+            for (int tape = numberOfTapes - 1; tape >= 0; tape--) {
+                // the wildcard is not part of any alphabet
+                int code = alphabet.code(batch.read(i, tape));
+                if (code < 0) {
+                    return null;
+                }
+                slot = slot * alphabet.size() + code;
+            }
+            int id = dispatch[slot] >= 0 ? dispatch[slot] : (dispatch[slot] = count++);
+            toState[id] = batch.toState(i);
+            for (int tape = 0; tape < numberOfTapes; tape++) {
+                int code = alphabet.code(batch.write(i, tape));
+                if (code < 0) {
+                    return null;
+                }
+                write[id * numberOfTapes + tape] = (byte) code;
+                move[id * numberOfTapes + tape] = batch.move(i, tape);
+            }
+        }
+        if (count < size) {
+            toState = Arrays.copyOf(toState, count);
+            write = Arrays.copyOf(write, count * numberOfTapes);
+            move = Arrays.copyOf(move, count * numberOfTapes);
+        }
+        return new DispatchTable(numberOfTapes, alphabet, dispatch, toState, write, move);
+    }
+
+    /**
+     * Creates a table from its arrays without copying them, see {@link MachineImage}.
+     *
+     * @param dispatch slot -> transition id, -1 if there is no transition
+     * @param write transition id * k + tape -> code of the symbol to write
+     * @param move transition id * k + tape -> head movement
+     */
+    static DispatchTable of(Alphabet alphabet, int numberOfTapes, int[] dispatch,
+                            int[] toState, byte[] write, TuringMachine.Movement[] move) {
+        return new DispatchTable(numberOfTapes, alphabet, dispatch, toState, write, move);
+    }
+
+    /**
+     * @return the transitions of this table, in the order of their ids; an id shared by several
+     * slots, as compiled from a wildcard transition, appears with one of them
+     */
+    Map<TransitionKey, TransitionValue> toTransitions() {
+        TransitionKey[] keys = new TransitionKey[toState.length];
+        for (int slot = 0; slot < dispatch.length; slot++) {
+            if (dispatch[slot] >= 0) {
+                char[] read = new char[numberOfTapes];
+                int rest = slot;
+                for (int i = 0; i < numberOfTapes; i++) {
+                    read[i] = alphabet.symbol(rest % numberOfSymbols);
+                    rest /= numberOfSymbols;
+                }
+                keys[dispatch[slot]] = new TransitionKey(rest, read);
+            }
+        }
+        Map<TransitionKey, TransitionValue> transitions = new LinkedHashMap<>();
+        for (int id = 0; id < keys.length; id++) {
+            char[] writeTapes = new char[numberOfTapes];
+            for (int i = 0; i < numberOfTapes; i++) {
+                writeTapes[i] = alphabet.symbol(write(id, i));
+            }
+            transitions.put(keys[id], new TransitionValue(toState[id], writeTapes,
+                    Arrays.copyOfRange(move, id * numberOfTapes, (id + 1) * numberOfTapes)));
+        }
+        return transitions;
+    }
+
+    /**
+     * @return number of transitions
+     */
+    int size() {
+        return toState.length;
+    }
+
+    /**
+     * @return number of slots, {@code states * |Γ|^k}
+     */
+    int slots() {
+        return dispatch.length;
+    }
+
+    int getNumberOfTapes() {
+        return numberOfTapes;
+    }
+
+    int getNumberOfSymbols() {
+        return numberOfSymbols;
+    }
+
+    Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * @return id of the transition in the given slot, -1 if there is none
+     */
+    int transition(int slot) {
+        return dispatch[slot];
+    }
+
+    int toState(int transition) {
+        return toState[transition];
+    }
+
+    /**
+     * @return code of the symbol the transition writes on the given tape
+     */
+    int write(int transition, int tape) {
+        return write[transition * numberOfTapes + tape] & 0xFF;
+    }
+
+    TuringMachine.Movement move(int transition, int tape) {
+        return move[transition * numberOfTapes + tape];
+    }
+
+    /**
+     * @return the number of the transition the id was compiled from, see {@link #source}
+     */
+    int source(int transition) {
+        return source == null ? transition : source[transition];
+    }
+
+    /**
+     * @return the tape whose head the transition sweeps, -1 if the transition is no sweep
+     */
+    int sweepTape(int transition) {
+        return sweepTape[transition];
+    }
+
+    /**
+     * @return for each code, whether the sweep of the transition continues over it; indexed by all
+     * {@value Alphabet#BYTE_CODES} codes, null if the transition is no sweep
+     */
+    boolean[] sweepSymbols(int transition) {
+        return sweepSymbols[transition];
+    }
+}
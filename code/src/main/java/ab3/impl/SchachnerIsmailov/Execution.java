@@ -0,0 +1,670 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+import ab3.TuringMachine.Movement;
+import ab3.TuringMachine.RunResult;
+import ab3.TuringMachine.TapeContent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Run state of a {@link Program}: the tapes, the current state and the helpers used for stepping.
+ * <p>
+ * Executions are cheap to create (O(number of tapes)) and independent of each other, but a single
+ * execution must not be used by several threads at once.
+ */
+public final class Execution {
+    private Program program;
+    private int currentState;
+    private Tape[] tapes;
+    /** scratch buffer for the symbols read in a step on the transition map */
+    private char[] readBuffer;
+    /** reusable lookup keys per state, all sharing {@link #readBuffer} */
+    private TransitionKey[] probeKeys;
+    /** scratch buffer for the packed keys of a step on the sparse table */
+    private long[] sparseKey;
+    /** block size for macro steps, 0 if disabled */
+    private int macroBlockSize;
+    private int macroCacheSize;
+    private MacroEngine macroEngine;
+    private boolean codeGeneration;
+    /** generated stepper, null if code generation is disabled or not possible */
+    private Stepper stepper;
+    /** whether {@link #run(long)} skips the runs of sweep transitions */
+    private boolean sweeps = true;
+    /** whether {@link #run(long)} stops as soon as the halting state became unreachable */
+    private boolean earlyRejection;
+    /** whether new tapes store their cells outside the Java heap */
+    private boolean offHeapTapes;
+    private boolean loopDetection;
+    private LoopDetector loopDetector;
+    /** configuration the loop detector started from */
+    private int loopDetectionState;
+    private Tape[] loopDetectionTapes;
+    private Cycle cycle;
+    /** counts the steps, null if not profiled */
+    private Profiler profiler;
+    /**
+     * tape -> content handed out that still reads from the tape, detached before the tape changes;
+     * handed out again until then
+     */
+    private final LazyTapeContent[] attachedContents;
+
+    /**
+     * @param program the program, may be null if it is set with {@link #setProgram(Program)} before stepping
+     */
+    Execution(Program program, int state, int numberOfTapes) {
+        this.currentState = state;
+        this.tapes = blankTapes(numberOfTapes, Alphabet.BLANK, false);
+        this.attachedContents = new LazyTapeContent[numberOfTapes];
+        setProgram(program);
+    }
+
+    private Execution(Program program, int state, Tape[] tapes) {
+        this.currentState = state;
+        this.tapes = tapes;
+        this.attachedContents = new LazyTapeContent[tapes.length];
+        setProgram(program);
+    }
+
+    private static Tape[] blankTapes(int numberOfTapes, Alphabet alphabet, boolean offHeap) {
+        return IntStream.range(0, numberOfTapes)
+                .mapToObj(i -> new Tape(alphabet, "", offHeap))
+                .toArray(Tape[]::new);
+    }
+
+    private Alphabet alphabet() {
+        return program == null ? Alphabet.BLANK : program.getTapeAlphabet();
+    }
+
+    public Program getProgram() {
+        return program;
+    }
+
+    /**
+     * Switches to another program with the same number of tapes, keeping tapes and state. Used by
+     * {@link TuringMachineImpl} when its definition changes.
+     */
+    void setProgram(Program program) {
+        detachContents();
+        this.program = program;
+        readBuffer = null;
+        probeKeys = null;
+        sparseKey = null;
+        macroEngine = null;
+        stepper = null;
+        if (program == null) {
+            return;
+        }
+        for (Tape tape : tapes) {
+            tape.recode(program.getTapeAlphabet());
+        }
+        if (codeGeneration) {
+            stepper = program.newStepper();
+        }
+        if (profiler != null) {
+            profiler.bind(program);
+        }
+        DispatchTable table = program.getDispatchTable();
+        if (table == null) {
+            readBuffer = new char[tapes.length];
+            probeKeys = new TransitionKey[program.getNumberOfStates()];
+            if (program.getSparseTable() != null) {
+                sparseKey = program.getSparseTable().newKey();
+            }
+        } else if (macroBlockSize > 0) {
+            macroEngine = MacroEngine.create(table, program.getNumberOfStates(), program.getHaltingState(),
+                    macroBlockSize, macroCacheSize);
+        }
+    }
+
+    /**
+     * Enables macro steps for {@link #run(long)}: the tape is divided into blocks of the given size and
+     * the effect of the steps taken inside a block is cached (see {@link MacroEngine}). Only used for
+     * single-tape machines that fit into a {@link DispatchTable}, otherwise the machine is stepped as usual.
+     *
+     * @param blockSize number of cells per block, 0 to disable macro steps
+     * @param cacheSize maximum number of cached macro steps
+     */
+    public void setMacroSteps(int blockSize, int cacheSize) throws IllegalArgumentException {
+        if (blockSize < 0 || cacheSize < 1)
+            throw new IllegalArgumentException();
+        this.macroBlockSize = blockSize;
+        this.macroCacheSize = cacheSize;
+        setProgram(program);
+    }
+
+    /**
+     * Enables or disables a stepper generated for the program (see {@link StepperCompiler}) for
+     * {@link #run(long)}. The stepper is compiled once per program on first use, which takes some
+     * time; programs that are too large run on the dispatch table as usual.
+     */
+    public void setCodeGeneration(boolean enabled) {
+        this.codeGeneration = enabled;
+        setProgram(program);
+    }
+
+    /**
+     * Enables or disables skipping sweeps in {@link #run(long)}: when a transition that stays in its
+     * state, writes what it reads and moves a single head (see {@link DispatchTable}) is taken, the
+     * head is moved over all cells the transition would be repeated on with one scan of the tape,
+     * counting a step per cell. Enabled by default; only used on a dispatch table and while the
+     * execution is neither profiled nor detecting loops.
+     */
+    public void setSweeps(boolean enabled) {
+        this.sweeps = enabled;
+    }
+
+    /**
+     * Enables or disables early rejection: {@link #run(long)} stops with
+     * {@link RunResult.Outcome#CannotAccept} as soon as the machine is in a state from which the
+     * halting state cannot be reached (see {@link Reachability}), instead of running until the budget
+     * is used up or the error state is entered. The analysis is done once per program. Macro steps and
+     * generated steppers are not used while early rejection is enabled.
+     * <p>
+     * Only {@link #run(long)} and {@link #runUntil(Predicate, long)} stop early; {@link #doNextStep()}
+     * keeps stepping in a state that cannot halt, use {@link #canHalt()} to check it between steps.
+     */
+    public void setEarlyRejection(boolean enabled) {
+        this.earlyRejection = enabled;
+    }
+
+    /**
+     * @return whether the halting state can still be reached from the current state, see {@link Reachability}
+     */
+    public boolean canHalt() {
+        return program.getReachability().canHalt(currentState);
+    }
+
+    /**
+     * Stores the cells of the tapes created by the next {@link #setInput(String)} or {@link #reset()}
+     * outside the Java heap (see {@link OffHeapCells}), for tapes too large for the heap.
+     */
+    public void setOffHeapTapes(boolean enabled) {
+        this.offHeapTapes = enabled;
+    }
+
+    /**
+     * Enables or disables the detection of infinite loops (see {@link LoopDetector}). When the
+     * machine repeats a configuration, {@link #getDetectedCycle()} reports the cycle and
+     * {@link #run(long)} stops with {@link RunResult.Outcome#Loop}. Macro steps are not used while
+     * loops are detected.
+     */
+    public void setLoopDetection(boolean enabled) {
+        this.loopDetection = enabled;
+        restartLoopDetection();
+    }
+
+    /**
+     * @return the cycle the machine is in, counted from the last {@link #setInput(String)} or
+     * {@link #reset()}; null if none was found (yet)
+     */
+    public Cycle getDetectedCycle() {
+        return cycle;
+    }
+
+    /**
+     * Counts the steps of this execution with the given profiler. Macro steps are not used while
+     * the execution is profiled.
+     *
+     * @param profiler the profiler, null to disable profiling
+     */
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+        if (profiler != null && program != null) {
+            profiler.bind(program);
+        }
+        attachProfiler();
+    }
+
+    public Profiler getProfiler() {
+        return profiler;
+    }
+
+    private void attachProfiler() {
+        for (Tape tape : tapes) {
+            tape.setProfiler(profiler);
+        }
+    }
+
+    private void restartLoopDetection() {
+        cycle = null;
+        if (loopDetection) {
+            loopDetector = new LoopDetector(currentState, tapes, true);
+            loopDetectionState = currentState;
+            loopDetectionTapes = Arrays.stream(tapes).map(Tape::copy).toArray(Tape[]::new);
+        } else {
+            loopDetector = null;
+            loopDetectionTapes = null;
+        }
+    }
+
+    /**
+     * Clears all tapes and returns to the initial state.
+     */
+    public void reset() {
+        currentState = program.getInitialState();
+        // the old tapes are not changed anymore
+        Arrays.fill(attachedContents, null);
+        tapes = blankTapes(program.getNumberOfTapes(), program.getTapeAlphabet(), offHeapTapes);
+        attachProfiler();
+        restartLoopDetection();
+    }
+
+    /**
+     * @return the current configuration; the tapes share their cells copy-on-write with this
+     * execution, so only the parts written afterwards are copied (see {@link Cells#copy()})
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(program, currentState, Arrays.stream(tapes).map(Tape::copy).toArray(Tape[]::new));
+    }
+
+    /**
+     * Returns to the configuration of the given snapshot, keeping the program and the settings of
+     * this execution.
+     *
+     * @throws IllegalArgumentException if the snapshot has another number of tapes
+     */
+    public void restore(Snapshot snapshot) throws IllegalArgumentException {
+        if (snapshot.getNumberOfTapes() != tapes.length)
+            throw new IllegalArgumentException();
+        Arrays.fill(attachedContents, null);
+        currentState = snapshot.getState();
+        tapes = snapshot.copyTapes();
+        if (program != null) {
+            for (Tape tape : tapes) {
+                tape.recode(program.getTapeAlphabet());
+            }
+        }
+        attachProfiler();
+        restartLoopDetection();
+    }
+
+    /**
+     * @return an independent execution of the same program in the current configuration and with
+     * the same settings, except that it is not profiled; the tapes are shared copy-on-write
+     */
+    public Execution fork() {
+        Execution fork = new Execution(null, currentState, Arrays.stream(tapes).map(Tape::copy).toArray(Tape[]::new));
+        fork.macroBlockSize = macroBlockSize;
+        fork.macroCacheSize = macroCacheSize;
+        fork.codeGeneration = codeGeneration;
+        fork.sweeps = sweeps;
+        fork.earlyRejection = earlyRejection;
+        fork.offHeapTapes = offHeapTapes;
+        fork.setProgram(program);
+        fork.setLoopDetection(loopDetection);
+        return fork;
+    }
+
+    /**
+     * Sets the content of the input tape (tape 0) and puts its head on the first symbol.
+     *
+     * @throws IllegalArgumentException if the input has more symbols outside the tape alphabet than fit into a tape
+     */
+    public void setInput(String content) throws IllegalArgumentException {
+        tapes[0] = new Tape(alphabet(), content, offHeapTapes);
+        tapes[0].setProfiler(profiler);
+        attachedContents[0] = null;
+        restartLoopDetection();
+    }
+
+    public int getCurrentState() {
+        return currentState;
+    }
+
+    void setCurrentState(int state) {
+        currentState = state;
+        restartLoopDetection();
+    }
+
+    public boolean isInHaltingState() {
+        return currentState == program.getHaltingState();
+    }
+
+    public boolean isInErrorState() {
+        return currentState >= program.getNumberOfStates();
+    }
+
+    /**
+     * Executes one step.
+     *
+     * @throws IllegalStateException if the machine is in the halting or error state
+     */
+    public void doNextStep() throws IllegalStateException {
+        if (isInHaltingState() || isInErrorState())
+            throw new IllegalStateException();
+        detachContents();
+        step();
+    }
+
+    /**
+     * @see TuringMachine#run(long)
+     */
+    public RunResult run(long maxSteps) throws IllegalArgumentException {
+        return execute(null, maxSteps);
+    }
+
+    /**
+     * @see TuringMachine#runUntil(Predicate, long)
+     */
+    public RunResult runUntil(Predicate<? super Execution> condition, long maxSteps) throws IllegalArgumentException {
+        return execute(Objects.requireNonNull(condition), maxSteps);
+    }
+
+    /**
+     * Steps in one tight loop until the machine stops, the condition (if any) holds or the budget is used up.
+     */
+    private RunResult execute(Predicate<? super Execution> condition, long maxSteps) {
+        if (maxSteps < 0)
+            throw new IllegalArgumentException();
+        int haltingState = program.getHaltingState();
+        int numberOfStates = program.getNumberOfStates();
+        long steps = 0;
+        detachContents();
+        if (profiler != null) {
+            profiler.resume();
+        }
+        Reachability reachability = earlyRejection ? program.getReachability() : null;
+        if (condition == null && macroEngine != null && loopDetector == null && profiler == null && reachability == null) {
+            long macroSteps = macroEngine.run(tapes[0], currentState, maxSteps);
+            if (macroSteps >= 0) {
+                steps = macroSteps;
+                currentState = macroEngine.getState();
+                tapes[0] = macroEngine.getTape(tapes[0].isOffHeap());
+            }
+        } else if (condition == null && stepper != null && loopDetector == null && profiler == null && reachability == null) {
+            steps = stepper.run(tapes, currentState, maxSteps);
+            currentState = stepper.getState();
+        }
+        DispatchTable sweepTable = sweeps && condition == null && loopDetector == null && profiler == null
+                ? program.getDispatchTable() : null;
+        while (true) {
+            if (currentState == haltingState)
+                return new RunResult(RunResult.Outcome.Halted, steps);
+            if (currentState >= numberOfStates)
+                return new RunResult(RunResult.Outcome.Error, steps);
+            if (cycle != null)
+                return new RunResult(RunResult.Outcome.Loop, steps);
+            if (reachability != null && !reachability.canHalt(currentState))
+                return new RunResult(RunResult.Outcome.CannotAccept, steps);
+            if (condition != null) {
+                if (condition.test(this))
+                    return new RunResult(RunResult.Outcome.ConditionMet, steps);
+                detachContents();
+            }
+            if (steps == maxSteps)
+                return new RunResult(RunResult.Outcome.BudgetExhausted, steps);
+            if (sweepTable != null) {
+                int transition = stepCompiled(sweepTable);
+                steps++;
+                if (transition >= 0 && sweepTable.sweepTape(transition) >= 0 && steps < maxSteps) {
+                    int tape = sweepTable.sweepTape(transition);
+                    steps += tapes[tape].sweep(sweepTable.sweepSymbols(transition),
+                            sweepTable.move(transition, tape) == Movement.Right, maxSteps - steps);
+                }
+            } else {
+                step();
+                steps++;
+            }
+        }
+    }
+
+    private void step() {
+        LoopDetector detector = loopDetector;
+        int fromState = currentState;
+        if (detector != null) {
+            detector.beforeStep(tapes);
+        }
+        Profiler profiler = this.profiler;
+        DispatchTable table = program.getDispatchTable();
+        if (table != null) {
+            int transition = stepCompiled(table);
+            if (profiler != null) {
+                profiler.step(fromState, transition < 0 ? -1 : table.source(transition));
+            }
+        } else if (program.getSparseTable() != null) {
+            int transition = stepSparse(program.getSparseTable());
+            if (profiler != null) {
+                profiler.step(fromState, transition);
+            }
+        } else {
+            TransitionKey key = stepInterpreted();
+            if (profiler != null) {
+                profiler.step(fromState, key == null ? -1 : profiler.transitionId(key));
+            }
+        }
+        if (detector != null && detector.afterStep(fromState, currentState, tapes)) {
+            cycle = new Cycle(findCycleStart(detector.getLength()), detector.getLength());
+        }
+    }
+
+    /**
+     * Replays the run from the configuration the loop detector started from with two copies of the
+     * execution, one of them the cycle length ahead, until both are in the same configuration.
+     */
+    private long findCycleStart(long length) {
+        Execution behind = twin(loopDetectionState, loopDetectionTapes);
+        Execution ahead = twin(loopDetectionState, loopDetectionTapes);
+        for (long i = 0; i < length; i++) {
+            ahead.step();
+        }
+        long start = 0;
+        while (behind.loopDetector.getHash() != ahead.loopDetector.getHash()
+                || !LoopDetector.sameConfiguration(behind.currentState, behind.tapes, ahead.currentState, ahead.tapes)) {
+            behind.step();
+            ahead.step();
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * @return an execution of the same program in the given configuration, maintaining a
+     * configuration hash but not searching for loops
+     */
+    private Execution twin(int state, Tape[] tapes) {
+        Execution twin = new Execution(program, state, Arrays.stream(tapes).map(Tape::copy).toArray(Tape[]::new));
+        twin.loopDetector = new LoopDetector(state, twin.tapes, false);
+        return twin;
+    }
+
+    /**
+     * @return the id of the executed transition, -1 if none matched
+     */
+    private int stepCompiled(DispatchTable table) {
+        int numberOfSymbols = table.getNumberOfSymbols();
+        int slot = currentState;
+        for (int i = tapes.length - 1; i >= 0; i--) {
+            int code = tapes[i].read();
+            if (code >= numberOfSymbols) {
+                currentState = program.getNumberOfStates(); ///< error state
+                return -1;
+            }
+            slot = slot * numberOfSymbols + code;
+        }
+        int transition = slot < 0 ? -1 : table.transition(slot);
+        if (transition < 0) {
+            currentState = program.getNumberOfStates(); ///< error state
+        } else {
+            currentState = table.toState(transition);
+            for (int i = 0; i < tapes.length; i++) {
+                Tape tape = tapes[i];
+                tape.write(table.write(transition, i));
+                tape.move(table.move(transition, i));
+            }
+        }
+        return transition;
+    }
+
+    /**
+     * @return the id of the executed transition, numbered like {@link DispatchTable#source(int)}; -1 if none matched
+     */
+    private int stepSparse(SparseTable table) {
+        int transition = table.key(currentState, tapes, sparseKey) ? table.find(sparseKey) : -1;
+        if (transition < 0) {
+            for (int i = 0; i < tapes.length; i++) {
+                readBuffer[i] = tapes[i].readSymbol();
+            }
+            int wildcard = stepWildcard();
+            return wildcard < 0 ? -1 : table.size() + wildcard;
+        }
+        currentState = table.toState(transition);
+        for (int i = 0; i < tapes.length; i++) {
+            Tape tape = tapes[i];
+            tape.write(table.write(transition, i));
+            tape.move(table.move(transition, i));
+        }
+        return transition;
+    }
+
+    /**
+     * @return the key of the executed transition, the wildcard key if a wildcard transition matched; null if none matched
+     */
+    private TransitionKey stepInterpreted() {
+        char[] read = readBuffer;
+        for(int i = 0; i < tapes.length; i++) {
+            read[i] = tapes[i].readSymbol();
+        }
+        TransitionKey key = probeKey(currentState);
+        TransitionValue tValue = program.getTransitions().get(key);
+        if (tValue == null) {
+            int wildcard = stepWildcard();
+            return wildcard < 0 ? null : program.getWildcards().key(wildcard);
+        }
+        apply(tValue);
+        return key;
+    }
+
+    /**
+     * Takes the wildcard transition matching the symbols in {@link #readBuffer}.
+     *
+     * @return the id of the wildcard transition, -1 if none matched
+     */
+    private int stepWildcard() {
+        WildcardIndex wildcards = program.getWildcards();
+        int wildcard = wildcards.match(currentState, readBuffer);
+        if (wildcard < 0) {
+            currentState = program.getNumberOfStates(); ///< error state
+        } else {
+            apply(wildcards.value(wildcard));
+        }
+        return wildcard;
+    }
+
+    private void apply(TransitionValue tValue) {
+        currentState = tValue.toState();
+
+        char[] write = tValue.writeTapes();
+        Movement[] move = tValue.moveTapes();
+        for (int i = 0; i < tapes.length; i++) {
+            Tape tape = tapes[i];
+            if (write[i] != Constants.ANY) {
+                tape.writeSymbol(write[i]);
+            }
+            tape.move(move[i]);
+        }
+    }
+
+    /**
+     * @return a lookup key for the given state and the symbols currently in {@link #readBuffer}
+     */
+    private TransitionKey probeKey(int state) {
+        if (state < 0 || state >= probeKeys.length) {
+            return new TransitionKey(state, readBuffer);
+        }
+        TransitionKey key = probeKeys[state];
+        if (key == null) {
+            key = probeKeys[state] = new TransitionKey(state, readBuffer);
+        }
+        return key;
+    }
+
+    /**
+     * @return the content of all tapes, null if the machine is in the error state
+     */
+    public List<TapeContent> getTapeContents() {
+        if(isInErrorState())
+            return null;
+        return IntStream.range(0, tapes.length)
+                .mapToObj(this::getTapeContent)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the content of the given tape, null if the machine is in the error state; the
+     * symbols are only boxed when they are requested
+     */
+    public TapeContent getTapeContent(int tape) {
+        if (isInErrorState())
+            return null;
+        if (attachedContents[tape] == null) {
+            attachedContents[tape] = new LazyTapeContent(tapes[tape]);
+        }
+        return attachedContents[tape];
+    }
+
+    /**
+     * @return a live, read-only view of the given tape, null if the machine is in the error state;
+     * it keeps following the tape after {@link #reset()}, {@link #setInput(String)} or
+     * {@link #restore(Snapshot)} replaced it
+     * @throws IndexOutOfBoundsException if the tape does not exist
+     */
+    public TapeView getTapeView(int tape) throws IndexOutOfBoundsException {
+        Objects.checkIndex(tape, tapes.length);
+        if (isInErrorState())
+            return null;
+        return new LiveTapeView(tape);
+    }
+
+    private void detachContents() {
+        for (int tape = 0; tape < attachedContents.length; tape++) {
+            if (attachedContents[tape] != null) {
+                attachedContents[tape].detach();
+                attachedContents[tape] = null;
+            }
+        }
+    }
+
+    /**
+     * View of whichever tape the execution currently has at an index, so it does not go stale
+     * when the tape is replaced.
+     */
+    private final class LiveTapeView implements TapeView {
+        private final int tape;
+
+        LiveTapeView(int tape) {
+            this.tape = tape;
+        }
+
+        @Override
+        public long start() {
+            return tapes[tape].start();
+        }
+
+        @Override
+        public long length() {
+            return tapes[tape].length();
+        }
+
+        @Override
+        public long headPosition() {
+            return tapes[tape].headPosition();
+        }
+
+        @Override
+        public char symbolAt(long position) {
+            return tapes[tape].symbolAt(position);
+        }
+
+        @Override
+        public void copyRange(long from, long to, char[] destination) throws IllegalArgumentException {
+            tapes[tape].copyRange(from, to, destination);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+
+/**
+ * {@link TuringMachine.TapeContent} that boxes the symbols of a tape only when they are requested.
+ * <p>
+ * The content reads from the live tape until {@link #detach()} is called, which the
+ * {@link Execution} does before the tape changes.
+ */
+final class LazyTapeContent extends TuringMachine.TapeContent {
+    /** tape the symbols are read from, null once both sides are materialized */
+    private Tape tape;
+    private final long from;
+    private final long head;
+    private final long to;
+    private final Character belowHead;
+    private Character[] leftOfHead;
+    private Character[] rightOfHead;
+
+    LazyTapeContent(Tape tape) {
+        super(null, null, null);
+        this.tape = tape;
+        this.from = tape.firstUsed();
+        this.head = tape.getHead();
+        this.to = tape.lastUsed();
+        this.belowHead = tape.getAlphabet().character(tape.read());
+    }
+
+    /**
+     * Makes this content independent of later changes of the tape.
+     */
+    void detach() {
+        if (tape != null) {
+            tape = tape.copy();
+        }
+    }
+
+    @Override
+    public Character[] getLeftOfHead() {
+        if (leftOfHead == null) {
+            leftOfHead = tape.toCharacters(from, head);
+            release();
+        }
+        return leftOfHead;
+    }
+
+    @Override
+    public Character getBelowHead() {
+        return belowHead;
+    }
+
+    @Override
+    public Character[] getRightOfHead() {
+        if (rightOfHead == null) {
+            rightOfHead = tape.toCharacters(head + 1, to + 1);
+            release();
+        }
+        return rightOfHead;
+    }
+
+    private void release() {
+        if (leftOfHead != null && rightOfHead != null) {
+            tape = null;
+        }
+    }
+}
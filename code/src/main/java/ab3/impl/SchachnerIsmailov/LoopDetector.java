@@ -0,0 +1,177 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Detects machines that repeat a configuration and therefore never halt.
+ * <p>
+ * The detector keeps a Zobrist-style hash of the whole configuration (state, head positions and
+ * tape content), which is updated with a few XORs per step. Brent's algorithm compares it with the
+ * hash at the last power-of-two checkpoint; a match is confirmed against an exact copy of the
+ * checkpoint configuration, so hash collisions never report a cycle. Besides the hash, only the
+ * checkpoint configuration is stored.
+ */
+final class LoopDetector {
+    /**
+     * Exact copy of a configuration, compared when the hashes match.
+     */
+    private record Configuration(int state, long[] heads, TuringMachine.TapeContent[] contents) {
+        static Configuration of(int state, Tape[] tapes) {
+            return new Configuration(state,
+                    Arrays.stream(tapes).mapToLong(Tape::getHead).toArray(),
+                    Arrays.stream(tapes).map(Tape::getContent).toArray(TuringMachine.TapeContent[]::new));
+        }
+
+        boolean matches(int state, Tape[] tapes) {
+            if (state != this.state) {
+                return false;
+            }
+            for (int i = 0; i < tapes.length; i++) {
+                if (tapes[i].getHead() != heads[i]) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < tapes.length; i++) {
+                TuringMachine.TapeContent content = tapes[i].getContent();
+                if (!Objects.equals(content.getBelowHead(), contents[i].getBelowHead())
+                        || !Arrays.equals(content.getLeftOfHead(), contents[i].getLeftOfHead())
+                        || !Arrays.equals(content.getRightOfHead(), contents[i].getRightOfHead())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final boolean searching;
+    private long hash;
+    private long steps;
+    /** head positions and codes of the symbols below the heads before the current step */
+    private final long[] positions;
+    private final int[] codes;
+
+    private long checkpointHash;
+    private long checkpointStep;
+    private Configuration checkpoint;
+    private long power = 1;
+    private long length;
+
+    /**
+     * @param searching true to search for cycles, false to only maintain the configuration hash
+     */
+    LoopDetector(int state, Tape[] tapes, boolean searching) {
+        this.searching = searching;
+        this.positions = new long[tapes.length];
+        this.codes = new int[tapes.length];
+        hash = hash(state, tapes);
+        if (searching) {
+            setCheckpoint(state, tapes);
+        }
+    }
+
+    void beforeStep(Tape[] tapes) {
+        for (int i = 0; i < tapes.length; i++) {
+            positions[i] = tapes[i].getHead();
+            codes[i] = tapes[i].read();
+        }
+    }
+
+    /**
+     * Updates the hash after a step and checks for a cycle.
+     *
+     * @return true if a cycle was found in this step
+     */
+    boolean afterStep(int fromState, int toState, Tape[] tapes) {
+        hash ^= state(fromState) ^ state(toState);
+        for (int i = 0; i < tapes.length; i++) {
+            Tape tape = tapes[i];
+            long position = positions[i];
+            hash ^= cell(i, position, codes[i]) ^ cell(i, position, tape.codeAt(position));
+            hash ^= head(i, position) ^ head(i, tape.getHead());
+        }
+        steps++;
+        if (!searching || length > 0) {
+            return false;
+        }
+        if (hash == checkpointHash && checkpoint.matches(toState, tapes)) {
+            length = steps - checkpointStep;
+            return true;
+        }
+        if (steps - checkpointStep == power) {
+            power *= 2;
+            setCheckpoint(toState, tapes);
+        }
+        return false;
+    }
+
+    private void setCheckpoint(int state, Tape[] tapes) {
+        checkpointHash = hash;
+        checkpointStep = steps;
+        checkpoint = Configuration.of(state, tapes);
+    }
+
+    long getHash() {
+        return hash;
+    }
+
+    /**
+     * @return length of the cycle found, 0 if none was found yet
+     */
+    long getLength() {
+        return length;
+    }
+
+    /**
+     * @return true if both configurations are equal
+     */
+    static boolean sameConfiguration(int state, Tape[] tapes, int otherState, Tape[] otherTapes) {
+        return Configuration.of(otherState, otherTapes).matches(state, tapes);
+    }
+
+    /**
+     * @return the hash of the given configuration, the XOR of {@link #state(int)}, the
+     * {@link #head(int, long)} of every tape and the {@link #cell(int, long, int)} of every non-blank cell
+     */
+    static long hash(int state, Tape[] tapes) {
+        long hash = state(state);
+        for (int i = 0; i < tapes.length; i++) {
+            Tape tape = tapes[i];
+            hash ^= head(i, tape.getHead());
+            for (long position = tape.getLeftmost(); position <= tape.getRightmost(); position++) {
+                hash ^= cell(i, position, tape.codeAt(position));
+            }
+        }
+        return hash;
+    }
+
+    static long state(int state) {
+        return mix(0x5DEECE66DL ^ state);
+    }
+
+    /**
+     * Positions beyond ±2^47 may share their hash with a position on another tape, which only costs
+     * a comparison with the checkpoint.
+     */
+    static long head(int tape, long position) {
+        return mix(0xB5AD4ECEDA1CE2A9L ^ ((long) tape << 48) ^ position);
+    }
+
+    static long cell(int tape, long position, int code) {
+        if (code == 0) {
+            return 0;
+        }
+        return mix(mix(0x9E3779B97F4A7C15L ^ ((long) tape << 48) ^ position) ^ code);
+    }
+
+    /**
+     * SplitMix64 finalizer
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
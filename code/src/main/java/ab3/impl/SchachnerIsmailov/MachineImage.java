@@ -0,0 +1,265 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Versioned binary image of a frozen {@link Program}.
+ * <p>
+ * Loading an image validates the transitions and writes them straight into the arrays of the
+ * {@link DispatchTable}, without creating objects per transition; the transition map is only built
+ * if the program needs it later. Programs too large for a dispatch table are loaded into a map.
+ * The layout, all values big-endian:
+ * <pre>
+ * int  magic "TMIM", int version
+ * int  numberOfStates, numberOfTapes, initialState, haltingState
+ * int  n, n chars:  the alphabet of the machine
+ * int  m, m chars:  the tape alphabet in the order of the symbol codes, starting with the blank
+ * int  t, t records of 8 + 3k bytes for k tapes:
+ *      int fromState, int toState, k bytes codes read, k bytes codes written, k bytes movement ordinals
+ * </pre>
+ */
+public final class MachineImage {
+    static final int MAGIC = 0x544D494D;
+    static final int VERSION = 1;
+
+    private static final TuringMachine.Movement[] MOVEMENTS = TuringMachine.Movement.values();
+
+    private MachineImage() {
+    }
+
+    /**
+     * Writes the image of the program to the given file, replacing it.
+     *
+     * @throws IllegalArgumentException if the program cannot be written, see {@link #write(Program, OutputStream)}
+     */
+    public static void write(Program program, Path file) throws IOException, IllegalArgumentException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(program, out);
+        }
+    }
+
+    /**
+     * Writes the image of the program to the given stream, which is not closed.
+     *
+     * @throws IllegalArgumentException if the program is nondeterministic, has wildcard transitions or
+     * more than {@value Alphabet#BYTE_CODES} symbols, whose codes do not fit into the image
+     */
+    public static void write(Program program, OutputStream stream) throws IOException, IllegalArgumentException {
+        if (program.isNondeterministic() || program.getWildcards().size() > 0
+                || program.getTapeAlphabet().size() > Alphabet.BYTE_CODES)
+            throw new IllegalArgumentException();
+        Alphabet alphabet = program.getTapeAlphabet();
+        var out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(program.getNumberOfStates());
+        out.writeInt(program.getNumberOfTapes());
+        out.writeInt(program.getInitialState());
+        out.writeInt(program.getHaltingState());
+        out.writeInt(program.getAlphabet().size());
+        for (char c : program.getAlphabet()) {
+            out.writeChar(c);
+        }
+        out.writeInt(alphabet.size());
+        for (int code = 0; code < alphabet.size(); code++) {
+            out.writeChar(alphabet.symbol(code));
+        }
+        out.writeInt(program.getTransitions().size());
+        for (var entry : program.getTransitions().entrySet()) {
+            out.writeInt(entry.getKey().fromState());
+            out.writeInt(entry.getValue().toState());
+            for (char c : entry.getKey().readTape()) {
+                out.writeByte(alphabet.code(c));
+            }
+            for (char c : entry.getValue().writeTapes()) {
+                out.writeByte(alphabet.code(c));
+            }
+            for (TuringMachine.Movement move : entry.getValue().moveTapes()) {
+                out.writeByte(move.ordinal());
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Loads an image by mapping the given file into memory, with the default memory limit of the
+     * dispatch table.
+     *
+     * @throws IllegalArgumentException if the file is not a valid image
+     */
+    public static Program load(Path file) throws IOException, IllegalArgumentException {
+        return load(file, DispatchTable.MAX_SLOTS * Integer.BYTES);
+    }
+
+    /**
+     * Loads an image by mapping the given file into memory.
+     *
+     * @param tableMemoryLimit memory limit of the dispatch table in bytes, see
+     *                         {@link TuringMachineImpl#setTableMemoryLimit(long)}
+     * @throws IllegalArgumentException if the file is not a valid image or the limit is negative
+     */
+    public static Program load(Path file, long tableMemoryLimit) throws IOException, IllegalArgumentException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), tableMemoryLimit);
+        }
+    }
+
+    /**
+     * Loads an image from the remaining bytes of the buffer, with the default memory limit of the
+     * dispatch table.
+     *
+     * @throws IllegalArgumentException if the buffer does not hold a valid image
+     */
+    public static Program load(ByteBuffer image) throws IllegalArgumentException {
+        return load(image, DispatchTable.MAX_SLOTS * Integer.BYTES);
+    }
+
+    /**
+     * Loads an image from the remaining bytes of the buffer.
+     *
+     * @param tableMemoryLimit memory limit of the dispatch table in bytes, see
+     *                         {@link TuringMachineImpl#setTableMemoryLimit(long)}
+     * @throws IllegalArgumentException if the buffer does not hold a valid image or the limit is negative
+     */
+    public static Program load(ByteBuffer image, long tableMemoryLimit) throws IllegalArgumentException {
+        if (tableMemoryLimit < 0)
+            throw new IllegalArgumentException();
+        try {
+            return read(image.duplicate(), tableMemoryLimit / Integer.BYTES);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static Program read(ByteBuffer image, long maxSlots) throws IllegalArgumentException {
+        if (image.getInt() != MAGIC || image.getInt() != VERSION)
+            throw new IllegalArgumentException();
+        int numberOfStates = image.getInt();
+        int numberOfTapes = image.getInt();
+        int initialState = image.getInt();
+        int haltingState = image.getInt();
+        if (numberOfStates < 1 || numberOfTapes < 1 || haltingState < 0 || haltingState >= numberOfStates
+                || initialState < 0 || initialState >= numberOfStates)
+            throw new IllegalArgumentException();
+        Set<Character> alphabet = new HashSet<>();
+        for (int i = image.getInt(); i > 0; i--) {
+            alphabet.add(image.getChar());
+        }
+        int size = image.getInt();
+        if (size < 1 || size > Alphabet.BYTE_CODES)
+            throw new IllegalArgumentException();
+        char[] symbols = new char[size];
+        for (int code = 0; code < size; code++) {
+            symbols[code] = image.getChar();
+        }
+        Alphabet tapeAlphabet = Alphabet.ofCodes(symbols);
+        int count = image.getInt();
+        if (count < 0 || (long) count * (8 + 3L * numberOfTapes) > image.remaining())
+            throw new IllegalArgumentException();
+
+        // the same bound as DispatchTable.compile, so the program is compiled as if it was built in code
+        maxSlots = Math.min(maxSlots, DispatchTable.MAX_ARRAY_SLOTS);
+        long slots = numberOfStates;
+        for (int i = 0; i < numberOfTapes && slots <= maxSlots; i++) {
+            slots *= size;
+        }
+        if (slots > maxSlots) {
+            Map<TransitionKey, TransitionValue> transitions = readTransitions(image, count, tapeAlphabet,
+                    numberOfStates, numberOfTapes, haltingState);
+            return new Program(alphabet, tapeAlphabet, numberOfStates, numberOfTapes, initialState, haltingState, transitions,
+                    Map.of(), maxSlots);
+        }
+
+        int[] dispatch = new int[(int) slots];
+        Arrays.fill(dispatch, -1);
+        int[] toState = new int[count];
+        byte[] write = new byte[count * numberOfTapes];
+        TuringMachine.Movement[] move = new TuringMachine.Movement[count * numberOfTapes];
+        for (int id = 0; id < count; id++) {
+            int fromState = state(image.getInt(), numberOfStates);
+            toState[id] = state(image.getInt(), numberOfStates);
+            if (fromState == haltingState)
+                throw new IllegalArgumentException();
+            int base = image.position();
+            int slot = fromState;
+            for (int i = numberOfTapes - 1; i >= 0; i--) {
+                slot = slot * size + code(image.get(base + i), size);
+            }
+            if (dispatch[slot] >= 0)
+                throw new IllegalArgumentException();
+            dispatch[slot] = id;
+            image.position(base + numberOfTapes);
+            for (int i = 0; i < numberOfTapes; i++) {
+                write[id * numberOfTapes + i] = (byte) code(image.get(), size);
+            }
+            for (int i = 0; i < numberOfTapes; i++) {
+                move[id * numberOfTapes + i] = movement(image.get());
+            }
+        }
+        DispatchTable table = DispatchTable.of(tapeAlphabet, numberOfTapes, dispatch, toState, write, move);
+        return new Program(alphabet, tapeAlphabet, numberOfStates, numberOfTapes, initialState, haltingState, table);
+    }
+
+    /**
+     * Reads the transitions into a map, for programs too large for a dispatch table.
+     */
+    private static Map<TransitionKey, TransitionValue> readTransitions(ByteBuffer image, int count, Alphabet alphabet,
+                                                                       int numberOfStates, int numberOfTapes, int haltingState) {
+        Map<TransitionKey, TransitionValue> transitions = new LinkedHashMap<>();
+        for (int id = 0; id < count; id++) {
+            int fromState = state(image.getInt(), numberOfStates);
+            int toState = state(image.getInt(), numberOfStates);
+            if (fromState == haltingState)
+                throw new IllegalArgumentException();
+            char[] read = new char[numberOfTapes];
+            char[] write = new char[numberOfTapes];
+            TuringMachine.Movement[] move = new TuringMachine.Movement[numberOfTapes];
+            for (int i = 0; i < numberOfTapes; i++) {
+                read[i] = alphabet.symbol(code(image.get(), alphabet.size()));
+            }
+            for (int i = 0; i < numberOfTapes; i++) {
+                write[i] = alphabet.symbol(code(image.get(), alphabet.size()));
+            }
+            for (int i = 0; i < numberOfTapes; i++) {
+                move[i] = movement(image.get());
+            }
+            if (transitions.put(new TransitionKey(fromState, read), new TransitionValue(toState, write, move)) != null)
+                throw new IllegalArgumentException();
+        }
+        return transitions;
+    }
+
+    private static int state(int state, int numberOfStates) throws IllegalArgumentException {
+        if (state < 0 || state >= numberOfStates)
+            throw new IllegalArgumentException();
+        return state;
+    }
+
+    private static int code(byte code, int size) throws IllegalArgumentException {
+        if ((code & 0xFF) >= size)
+            throw new IllegalArgumentException();
+        return code & 0xFF;
+    }
+
+    private static TuringMachine.Movement movement(byte ordinal) throws IllegalArgumentException {
+        if (ordinal < 0 || ordinal >= MOVEMENTS.length)
+            throw new IllegalArgumentException();
+        return MOVEMENTS[ordinal];
+    }
+}
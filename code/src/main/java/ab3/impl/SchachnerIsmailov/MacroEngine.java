@@ -0,0 +1,365 @@
+package ab3.impl.SchachnerIsmailov;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Macro-machine acceleration for single-tape machines.
+ * <p>
+ * The tape is divided into blocks of {@code blockSize} cells and kept as two stacks of runs of equal
+ * blocks left and right of the block under the head. Whenever the head is on the left or right edge
+ * of a block, the engine simulates the machine on that block alone until the head leaves it, and
+ * caches the effect (new block content, next state, exit position and number of steps) for the tuple
+ * (state, block content, entry side). The next time the same tuple is found, the whole run of steps
+ * is applied as one macro step. If the machine leaves the block in the state it entered it with, and
+ * the blocks ahead are a run of the same content, the macro step is applied to the whole run at once.
+ * The cache is bounded and evicts the least recently used entries.
+ * <p>
+ * Macro steps are only taken if they fit into the remaining step budget, so the resulting tape,
+ * state and step count are exactly the ones of plain stepping.
+ */
+final class MacroEngine {
+    /**
+     * Simulations inside a block that take longer are not cached (the machine is probably looping there).
+     */
+    private static final int MAX_MACRO_STEPS = 1 << 16;
+    private static final MacroStep NO_MACRO_STEP = new MacroStep(0, 0, 0, 0);
+
+    /**
+     * Effect of a macro step.
+     *
+     * @param block new block content
+     * @param state next state
+     * @param head head position after the step, relative to the block start (-1 or blockSize when it left the block)
+     * @param steps number of steps taken
+     */
+    private record MacroStep(long block, int state, int head, long steps) {
+    }
+
+    /**
+     * Run-length encoded blocks on one side of the head, the top of the stack being next to the head.
+     */
+    private static final class BlockStack {
+        private long[] blocks = new long[16];
+        private long[] counts = new long[16];
+        private int size;
+
+        void push(long block, long count) {
+            if (size > 0 && blocks[size - 1] == block) {
+                counts[size - 1] += count;
+                return;
+            }
+            if (size == blocks.length) {
+                blocks = java.util.Arrays.copyOf(blocks, size * 2);
+                counts = java.util.Arrays.copyOf(counts, size * 2);
+            }
+            blocks[size] = block;
+            counts[size] = count;
+            size++;
+        }
+
+        /**
+         * @return the block next to the head, the blank block if the stack is empty
+         */
+        long peek() {
+            return size == 0 ? 0 : blocks[size - 1];
+        }
+
+        /**
+         * @return number of blocks in the run next to the head, 0 if the stack is empty
+         */
+        long peekCount() {
+            return size == 0 ? 0 : counts[size - 1];
+        }
+
+        void drop(long count) {
+            if (size > 0 && (counts[size - 1] -= count) == 0) {
+                size--;
+            }
+        }
+
+        long pop() {
+            long block = peek();
+            drop(1);
+            return block;
+        }
+    }
+
+    private final DispatchTable table;
+    private final int numberOfStates;
+    private final int haltingState;
+    private final int blockSize;
+    private final int numberOfSymbols;
+    /** numberOfSymbols^i */
+    private final long[] powers;
+    private final Map<Long, MacroStep> cache;
+    private final int[] buffer;
+    private final int[] codes;
+
+    private BlockStack left;
+    private BlockStack right;
+    /** block under the head, its position on the tape and the head position inside of it */
+    private long block;
+    private long blockStart;
+    private int head;
+    private int state;
+
+    private MacroEngine(DispatchTable table, int numberOfStates, int haltingState, int blockSize, int cacheSize) {
+        this.table = table;
+        this.numberOfStates = numberOfStates;
+        this.haltingState = haltingState;
+        this.blockSize = blockSize;
+        this.numberOfSymbols = table.getNumberOfSymbols();
+        this.powers = new long[blockSize];
+        powers[0] = 1;
+        for (int i = 1; i < blockSize; i++) {
+            powers[i] = powers[i - 1] * numberOfSymbols;
+        }
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, MacroStep> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        this.buffer = new int[blockSize];
+        this.codes = new int[blockSize];
+    }
+
+    /**
+     * Creates an engine for the given single-tape machine.
+     *
+     * @return the engine, or {@code null} if the machine has more than one tape or the cache keys
+     * (state, block content, entry side) do not fit into a long
+     */
+    static MacroEngine create(DispatchTable table, int numberOfStates, int haltingState, int blockSize, int cacheSize) {
+        if (table.getNumberOfTapes() != 1) {
+            return null;
+        }
+        long keys = 2L * numberOfStates;
+        for (int i = 0; i < blockSize; i++) {
+            if (keys > Long.MAX_VALUE / table.getNumberOfSymbols()) {
+                return null;
+            }
+            keys *= table.getNumberOfSymbols();
+        }
+        return new MacroEngine(table, numberOfStates, haltingState, blockSize, cacheSize);
+    }
+
+    /**
+     * Runs the machine until it halts, fails or has taken {@code maxSteps} steps. The resulting
+     * tape and state are available from {@link #getTape(boolean)} and {@link #getState()}.
+     *
+     * @return number of steps taken, or -1 if the tape contains symbols outside the tape alphabet
+     */
+    long run(Tape tape, int state, long maxSteps) {
+        if (!load(tape)) {
+            return -1;
+        }
+        long steps = 0;
+        while (state >= 0 && state < numberOfStates && state != haltingState && steps < maxSteps) {
+            MacroStep macroStep = head == 0 || head == blockSize - 1 ? lookup(state, block, head) : NO_MACRO_STEP;
+            if (macroStep == NO_MACRO_STEP || macroStep.steps() > maxSteps - steps) {
+                state = step(state);
+                steps++;
+                continue;
+            }
+            steps += macroStep.steps();
+            if (macroStep.head() == blockSize) {
+                left.push(macroStep.block(), 1);
+                if (head == 0 && macroStep.state() == state && right.peek() == block) {
+                    long repeat = Math.min(right.peekCount(), (maxSteps - steps) / macroStep.steps());
+                    left.push(macroStep.block(), repeat);
+                    right.drop(repeat);
+                    blockStart += repeat * blockSize;
+                    steps += repeat * macroStep.steps();
+                }
+                block = right.pop();
+                blockStart += blockSize;
+                head = 0;
+            } else if (macroStep.head() < 0) {
+                right.push(macroStep.block(), 1);
+                if (head == blockSize - 1 && macroStep.state() == state && left.peek() == block) {
+                    long repeat = Math.min(left.peekCount(), (maxSteps - steps) / macroStep.steps());
+                    right.push(macroStep.block(), repeat);
+                    left.drop(repeat);
+                    blockStart -= repeat * blockSize;
+                    steps += repeat * macroStep.steps();
+                }
+                block = left.pop();
+                blockStart -= blockSize;
+                head = blockSize - 1;
+            } else {
+                block = macroStep.block();
+                head = macroStep.head();
+            }
+            state = macroStep.state();
+        }
+        this.state = state;
+        return steps;
+    }
+
+    int getState() {
+        return state;
+    }
+
+    /**
+     * @param offHeap whether the cells of the tape are stored outside the Java heap
+     * @return a new tape with the content after {@link #run(Tape, int, long)}
+     */
+    Tape getTape(boolean offHeap) {
+        Tape tape = new Tape(table.getAlphabet(), "", offHeap);
+        write(tape, blockStart, block, 1);
+        long position = blockStart;
+        for (int i = left.size - 1; i >= 0; i--) {
+            position -= left.counts[i] * blockSize;
+            write(tape, position, left.blocks[i], left.counts[i]);
+        }
+        position = blockStart + blockSize;
+        for (int i = right.size - 1; i >= 0; i--) {
+            write(tape, position, right.blocks[i], right.counts[i]);
+            position += right.counts[i] * blockSize;
+        }
+        tape.moveTo(blockStart + head);
+        return tape;
+    }
+
+    private void write(Tape tape, long position, long block, long count) {
+        if (block == 0) {
+            return;
+        }
+        for (int i = 0; i < blockSize; i++) {
+            buffer[i] = digit(block, i);
+        }
+        for (long i = 0; i < count; i++) {
+            tape.write(position, buffer);
+            position += blockSize;
+        }
+    }
+
+    /**
+     * Splits the tape into blocks.
+     *
+     * @return false if the tape contains symbols outside the tape alphabet
+     */
+    private boolean load(Tape tape) {
+        left = new BlockStack();
+        right = new BlockStack();
+        head = Math.floorMod(tape.getHead(), blockSize);
+        blockStart = tape.getHead() - head;
+        if (tape.getLeftmost() <= tape.getRightmost()) {
+            long first = tape.getLeftmost() - Math.floorMod(tape.getLeftmost(), blockSize);
+            for (long position = first; position < blockStart; position += blockSize) {
+                if (!read(tape, position, left)) {
+                    return false;
+                }
+            }
+            long last = tape.getRightmost() - Math.floorMod(tape.getRightmost(), blockSize);
+            for (long position = last; position > blockStart; position -= blockSize) {
+                if (!read(tape, position, right)) {
+                    return false;
+                }
+            }
+        }
+        BlockStack current = new BlockStack();
+        if (!read(tape, blockStart, current)) {
+            return false;
+        }
+        block = current.peek();
+        return true;
+    }
+
+    private boolean read(Tape tape, long position, BlockStack stack) {
+        tape.read(position, buffer);
+        long block = 0;
+        for (int i = blockSize - 1; i >= 0; i--) {
+            int code = buffer[i];
+            if (code >= numberOfSymbols) {
+                return false;
+            }
+            block = block * numberOfSymbols + code;
+        }
+        stack.push(block, 1);
+        return true;
+    }
+
+    /**
+     * Executes a single step on the block under the head.
+     */
+    private int step(int state) {
+        int code = digit(block, head);
+        int transition = state < 0 ? -1 : table.transition(state * numberOfSymbols + code);
+        if (transition < 0) {
+            return numberOfStates; ///< error state
+        }
+        block += (table.write(transition, 0) - code) * powers[head];
+        switch (table.move(transition, 0)) {
+            case Left -> {
+                if (--head < 0) {
+                    right.push(block, 1);
+                    block = left.pop();
+                    blockStart -= blockSize;
+                    head = blockSize - 1;
+                }
+            }
+            case Right -> {
+                if (++head == blockSize) {
+                    left.push(block, 1);
+                    block = right.pop();
+                    blockStart += blockSize;
+                    head = 0;
+                }
+            }
+            case Stay -> {
+            }
+        }
+        return table.toState(transition);
+    }
+
+    private int digit(long block, int position) {
+        return (int) (block / powers[position] % numberOfSymbols);
+    }
+
+    private MacroStep lookup(int state, long block, int head) {
+        long key = ((block * numberOfStates) + state) * 2 + (head == 0 ? 0 : 1);
+        MacroStep macroStep = cache.get(key);
+        if (macroStep == null) {
+            macroStep = simulate(state, block, head);
+            cache.put(key, macroStep);
+        }
+        return macroStep;
+    }
+
+    /**
+     * Runs the machine on the block alone until the head leaves it, the machine halts or fails.
+     */
+    private MacroStep simulate(int state, long block, int head) {
+        for (int i = 0; i < blockSize; i++) {
+            codes[i] = digit(block, i);
+        }
+        long steps = 0;
+        while (head >= 0 && head < blockSize && state != haltingState && state < numberOfStates) {
+            if (steps == MAX_MACRO_STEPS) {
+                return NO_MACRO_STEP;
+            }
+            int transition = table.transition(state * numberOfSymbols + codes[head]);
+            steps++;
+            if (transition < 0) {
+                state = numberOfStates; ///< error state
+            } else {
+                codes[head] = table.write(transition, 0);
+                switch (table.move(transition, 0)) {
+                    case Left -> head--;
+                    case Right -> head++;
+                    case Stay -> {
+                    }
+                }
+                state = table.toState(transition);
+            }
+        }
+        long result = 0;
+        for (int i = blockSize - 1; i >= 0; i--) {
+            result = result * numberOfSymbols + codes[i];
+        }
+        return new MacroStep(result, state, head, steps);
+    }
+}
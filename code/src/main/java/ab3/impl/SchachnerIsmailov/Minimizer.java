@@ -0,0 +1,236 @@
+package ab3.impl.SchachnerIsmailov;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optimization pass over the definition of a machine, see {@link TuringMachineImpl#minimize()}.
+ * <p>
+ * The pass works in three steps:
+ * <ol>
+ *     <li>Transitions that can never fire are dropped, together with the states they would lead to.
+ *     Starting from the initial state, a transition fires at most if its state is reached and every
+ *     symbol it reads can be on its tape: any symbol on the input tape, but only the blank and the
+ *     symbols written by fireable transitions on the other tapes, which start blank. A wildcard
+ *     transition is kept as it is, it only has to be able to read one of the symbols it matches.</li>
+ *     <li>Equivalent states are merged by partition refinement (Moore's algorithm): starting from the
+ *     halting state and all other states, blocks are split until all states of a block have
+ *     transitions for the same symbols, writing and moving the same and leading into the same blocks.</li>
+ *     <li>The blocks are numbered densely, in the order of their smallest original state.</li>
+ * </ol>
+ * The minimized machine takes exactly the same steps on every input, so tape contents, step counts
+ * and accept/reject are unchanged; only the state numbers differ.
+ */
+public final class Minimizer {
+    /**
+     * Size of a definition before and after {@link TuringMachineImpl#minimize()}.
+     */
+    public record Report(int statesBefore, int statesAfter, int transitionsBefore, int transitionsAfter) {
+        @Override
+        public String toString() {
+            return "states " + statesBefore + " -> " + statesAfter
+                    + ", transitions " + transitionsBefore + " -> " + transitionsAfter;
+        }
+    }
+
+    /** original state -> minimized state, -1 for dropped states */
+    private final int[] stateMap;
+    private final int numberOfStates;
+    private final Map<TransitionKey, TransitionValue> transitions = new LinkedHashMap<>();
+    private final Map<TransitionKey, List<TransitionValue>> alternatives = new LinkedHashMap<>();
+    private final Report report;
+
+    private Minimizer(Program program) {
+        int states = program.getNumberOfStates();
+        int tapes = program.getNumberOfTapes();
+        int haltingState = program.getHaltingState();
+        Map<Integer, List<TransitionKey>> outgoing = new HashMap<>();
+        int before = 0;
+        for (TransitionKey key : program.getTransitions().keySet()) {
+            outgoing.computeIfAbsent(key.fromState(), q -> new ArrayList<>()).add(key);
+            before += program.getChoices(key).size();
+        }
+        for (TransitionKey key : program.getWildcards().toMap().keySet()) {
+            outgoing.computeIfAbsent(key.fromState(), q -> new ArrayList<>()).add(key);
+            before++;
+        }
+
+        // 1. fireable transitions and the states they reach
+        boolean[] reached = new boolean[states];
+        List<Set<Character>> readable = new ArrayList<>();
+        for (int t = 0; t < tapes; t++) {
+            readable.add(new HashSet<>(Set.of(Constants.SPACE)));
+        }
+        Set<TransitionKey> fireable = new HashSet<>();
+        reached[haltingState] = true;
+        reached[program.getInitialState()] = true;
+        Deque<Integer> work = new ArrayDeque<>(List.of(program.getInitialState()));
+        while (!work.isEmpty()) {
+            int state = work.poll();
+            boolean grown = false;
+            for (TransitionKey key : outgoing.getOrDefault(state, List.of())) {
+                if (fireable.contains(key) || !canRead(key, readable)) {
+                    continue;
+                }
+                fireable.add(key);
+                for (TransitionValue value : program.getChoices(key)) {
+                    if (!reached[value.toState()]) {
+                        reached[value.toState()] = true;
+                        work.add(value.toState());
+                    }
+                    for (int t = 1; t < tapes; t++) {
+                        // a kept symbol was readable before
+                        if (value.writeTapes()[t] != Constants.ANY) {
+                            grown |= readable.get(t).add(value.writeTapes()[t]);
+                        }
+                    }
+                }
+            }
+            // a new readable symbol may enable transitions of states visited before
+            if (grown) {
+                for (int q = 0; q < states; q++) {
+                    if (reached[q]) {
+                        work.add(q);
+                    }
+                }
+            }
+        }
+
+        // 2. partition refinement, block[q] = -1 for states not reached
+        int[] block = new int[states];
+        for (int q = 0; q < states; q++) {
+            block[q] = !reached[q] ? -1 : q == haltingState ? 0 : 1;
+        }
+        int blocks = countBlocks(block);
+        while (true) {
+            Map<List<Object>, Integer> signatures = new HashMap<>();
+            int[] refined = new int[states];
+            for (int q = 0; q < states; q++) {
+                refined[q] = block[q] < 0 ? -1
+                        : signatures.computeIfAbsent(signature(program, q, block, outgoing, fireable), s -> signatures.size());
+            }
+            int refinedBlocks = signatures.size();
+            block = refined;
+            if (refinedBlocks == blocks) {
+                break;
+            }
+            blocks = refinedBlocks;
+        }
+
+        // 3. dense numbering in the order of the smallest original state of each block
+        stateMap = new int[states];
+        int[] number = new int[states];
+        Arrays.fill(number, -1);
+        int next = 0;
+        for (int q = 0; q < states; q++) {
+            if (block[q] < 0) {
+                stateMap[q] = -1;
+            } else {
+                if (number[block[q]] < 0) {
+                    number[block[q]] = next++;
+                }
+                stateMap[q] = number[block[q]];
+            }
+        }
+        numberOfStates = Math.max(2, next);
+
+        boolean[] emitted = new boolean[states];
+        for (int q = 0; q < states; q++) {
+            if (block[q] < 0 || emitted[stateMap[q]]) {
+                continue;
+            }
+            emitted[stateMap[q]] = true;
+            for (TransitionKey key : outgoing.getOrDefault(q, List.of())) {
+                if (!fireable.contains(key)) {
+                    continue;
+                }
+                TransitionKey mapped = new TransitionKey(stateMap[q], key.readTape());
+                List<TransitionValue> choices = program.getChoices(key);
+                transitions.put(mapped, map(choices.get(0)));
+                for (TransitionValue value : choices.subList(1, choices.size())) {
+                    alternatives.computeIfAbsent(mapped, k -> new ArrayList<>()).add(map(value));
+                }
+            }
+        }
+        int after = transitions.size() + alternatives.values().stream().mapToInt(List::size).sum();
+        report = new Report(states, numberOfStates, before, after);
+    }
+
+    /**
+     * Minimizes the given program.
+     */
+    static Minimizer minimize(Program program) {
+        return new Minimizer(program);
+    }
+
+    private static boolean canRead(TransitionKey key, List<Set<Character>> readable) {
+        for (int t = 1; t < readable.size(); t++) {
+            char c = key.readTape()[t];
+            if (c != Constants.ANY && !readable.get(t).contains(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int countBlocks(int[] block) {
+        return (int) Arrays.stream(block).filter(b -> b >= 0).distinct().count();
+    }
+
+    /**
+     * @return the block of the state and its fireable transitions, with the targets replaced by their blocks
+     */
+    private static List<Object> signature(Program program, int state, int[] block,
+                                          Map<Integer, List<TransitionKey>> outgoing, Set<TransitionKey> fireable) {
+        List<Object> signature = new ArrayList<>();
+        signature.add(block[state]);
+        List<TransitionKey> keys = new ArrayList<>(outgoing.getOrDefault(state, List.of()));
+        keys.removeIf(key -> !fireable.contains(key));
+        keys.sort(Comparator.comparing(key -> new String(key.readTape())));
+        for (TransitionKey key : keys) {
+            signature.add(new String(key.readTape()));
+            for (TransitionValue value : program.getChoices(key)) {
+                signature.add(new String(value.writeTapes()));
+                signature.add(List.of(value.moveTapes()));
+                signature.add(block[value.toState()]);
+            }
+        }
+        return signature;
+    }
+
+    private TransitionValue map(TransitionValue value) {
+        return new TransitionValue(stateMap[value.toState()], value.writeTapes(), value.moveTapes());
+    }
+
+    /**
+     * @return the minimized state of the given original state, -1 if it was dropped
+     */
+    int mapState(int state) {
+        return state >= 0 && state < stateMap.length ? stateMap[state] : -1;
+    }
+
+    int getNumberOfStates() {
+        return numberOfStates;
+    }
+
+    Map<TransitionKey, TransitionValue> getTransitions() {
+        return transitions;
+    }
+
+    Map<TransitionKey, List<TransitionValue>> getAlternatives() {
+        return alternatives;
+    }
+
+    Report getReport() {
+        return report;
+    }
+}
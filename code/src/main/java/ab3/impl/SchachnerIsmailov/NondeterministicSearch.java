@@ -0,0 +1,217 @@
+package ab3.impl.SchachnerIsmailov;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Breadth-first search through the configurations of a nondeterministic {@link Program}.
+ * <p>
+ * Every level of the configuration tree is expanded in parallel chunks on an executor. Configurations
+ * are deduplicated by a 64-bit fingerprint (the hash of the {@link LoopDetector}, updated per step),
+ * kept in a concurrent set; a fingerprint collision may therefore prune a branch, with a probability
+ * of about n²/2⁶⁵ for n configurations. The input is accepted as soon as any branch reaches the
+ * halting state. Branches without a transition die; the input is rejected when no branch is left.
+ * <p>
+ * A search object runs one search at a time.
+ */
+public final class NondeterministicSearch {
+    /**
+     * @param outcome why the search stopped
+     * @param depth number of steps of the accepting branch, or the levels searched otherwise
+     * @param accepting configuration in the halting state, null unless accepted
+     */
+    public record Result(Outcome outcome, long depth, Snapshot accepting) {
+        public enum Outcome {
+            /** a branch reached the halting state */
+            Accepted,
+            /** every branch died or repeated a configuration */
+            Rejected,
+            /** the maximum depth was reached */
+            DepthExhausted,
+            /** the maximum number of configurations was reached */
+            MemoryExhausted
+        }
+    }
+
+    /**
+     * @param depth levels expanded so far
+     * @param frontier configurations in the current level
+     * @param peakFrontier largest level so far
+     * @param configurations distinct configurations seen
+     * @param generated configurations generated by transitions
+     * @param duplicates generated configurations that were seen before
+     */
+    public record Statistics(long depth, long frontier, long peakFrontier, long configurations, long generated, long duplicates) {
+        /**
+         * @return fraction of the generated configurations that were seen before
+         */
+        public double dedupHitRate() {
+            return generated == 0 ? 0 : (double) duplicates / generated;
+        }
+    }
+
+    /**
+     * Configuration in the search tree with its fingerprint.
+     */
+    private record Node(int state, Tape[] tapes, long fingerprint) {
+    }
+
+    /** configurations expanded by one task */
+    private static final int CHUNK_SIZE = 256;
+
+    private final Program program;
+    private final Executor executor;
+    private long maxConfigurations = 1_000_000;
+
+    private volatile long depth;
+    private volatile long frontier;
+    private volatile long peakFrontier;
+    private volatile long configurations;
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    /**
+     * Creates a search running on the common {@link ForkJoinPool}.
+     */
+    public NondeterministicSearch(Program program) {
+        this(program, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a search running on the given executor.
+     */
+    public NondeterministicSearch(Program program, Executor executor) {
+        this.program = program;
+        this.executor = executor;
+    }
+
+    /**
+     * Limits the memory of the search: it stops with {@link Result.Outcome#MemoryExhausted} when more
+     * distinct configurations were seen. Every configuration costs its fingerprint, and the ones in
+     * the current level their tapes.
+     */
+    public void setMaxConfigurations(long maxConfigurations) throws IllegalArgumentException {
+        if (maxConfigurations < 1)
+            throw new IllegalArgumentException();
+        this.maxConfigurations = maxConfigurations;
+    }
+
+    /**
+     * @return the statistics of the current or last search
+     */
+    public Statistics getStatistics() {
+        return new Statistics(depth, frontier, peakFrontier, configurations, generated.sum(), duplicates.sum());
+    }
+
+    /**
+     * Searches for an accepting branch on the given input (tape 0, other tapes blank).
+     *
+     * @param maxDepth maximum number of steps of a branch
+     * @throws IllegalArgumentException if {@code maxDepth} is negative
+     */
+    public Result search(String input, long maxDepth) throws IllegalArgumentException {
+        if (maxDepth < 0)
+            throw new IllegalArgumentException();
+        Tape[] tapes = new Tape[program.getNumberOfTapes()];
+        tapes[0] = new Tape(program.getTapeAlphabet(), input);
+        for (int i = 1; i < tapes.length; i++) {
+            tapes[i] = new Tape(program.getTapeAlphabet(), "");
+        }
+        Node root = new Node(program.getInitialState(), tapes, LoopDetector.hash(program.getInitialState(), tapes));
+        generated.reset();
+        duplicates.reset();
+        depth = peakFrontier = 0;
+        frontier = configurations = 1;
+        if (root.state() == program.getHaltingState()) {
+            return new Result(Result.Outcome.Accepted, 0, snapshot(root));
+        }
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        seen.add(root.fingerprint());
+        AtomicReference<Node> accepting = new AtomicReference<>();
+        List<Node> level = List.of(root);
+        while (!level.isEmpty()) {
+            if (depth == maxDepth) {
+                return new Result(Result.Outcome.DepthExhausted, depth, null);
+            }
+            List<CompletableFuture<List<Node>>> tasks = new ArrayList<>();
+            for (int from = 0; from < level.size(); from += CHUNK_SIZE) {
+                List<Node> chunk = level.subList(from, Math.min(level.size(), from + CHUNK_SIZE));
+                tasks.add(CompletableFuture.supplyAsync(() -> expand(chunk, seen, accepting), executor));
+            }
+            List<Node> next = new ArrayList<>();
+            for (CompletableFuture<List<Node>> task : tasks) {
+                next.addAll(task.join());
+            }
+            depth++;
+            configurations = seen.size();
+            frontier = next.size();
+            peakFrontier = Math.max(peakFrontier, next.size());
+            if (accepting.get() != null) {
+                return new Result(Result.Outcome.Accepted, depth, snapshot(accepting.get()));
+            }
+            if (seen.size() > maxConfigurations) {
+                return new Result(Result.Outcome.MemoryExhausted, depth, null);
+            }
+            level = next;
+        }
+        return new Result(Result.Outcome.Rejected, depth, null);
+    }
+
+    /**
+     * @return the unseen successors of the given configurations
+     */
+    private List<Node> expand(List<Node> nodes, Set<Long> seen, AtomicReference<Node> accepting) {
+        List<Node> successors = new ArrayList<>();
+        char[] read = new char[program.getNumberOfTapes()];
+        for (Node node : nodes) {
+            if (accepting.get() != null || seen.size() > maxConfigurations) {
+                break;
+            }
+            Tape[] tapes = node.tapes();
+            for (int i = 0; i < tapes.length; i++) {
+                read[i] = tapes[i].readSymbol();
+            }
+            for (TransitionValue value : program.getChoices(new TransitionKey(node.state(), read))) {
+                Node successor = step(node, value);
+                generated.increment();
+                if (!seen.add(successor.fingerprint())) {
+                    duplicates.increment();
+                } else if (successor.state() == program.getHaltingState()) {
+                    accepting.compareAndSet(null, successor);
+                } else {
+                    successors.add(successor);
+                }
+            }
+        }
+        return successors;
+    }
+
+    /**
+     * @return the configuration after applying the transition to the given one, whose tapes are not changed
+     */
+    private static Node step(Node node, TransitionValue value) {
+        Tape[] tapes = new Tape[node.tapes().length];
+        long fingerprint = node.fingerprint() ^ LoopDetector.state(node.state()) ^ LoopDetector.state(value.toState());
+        for (int i = 0; i < tapes.length; i++) {
+            Tape tape = tapes[i] = node.tapes()[i].copy();
+            long position = tape.getHead();
+            fingerprint ^= LoopDetector.cell(i, position, tape.read());
+            tape.writeSymbol(value.writeTapes()[i]);
+            fingerprint ^= LoopDetector.cell(i, position, tape.read());
+            tape.move(value.moveTapes()[i]);
+            fingerprint ^= LoopDetector.head(i, position) ^ LoopDetector.head(i, tape.getHead());
+        }
+        return new Node(value.toState(), tapes, fingerprint);
+    }
+
+    private Snapshot snapshot(Node node) {
+        return new Snapshot(program, node.state(), node.tapes());
+    }
+}
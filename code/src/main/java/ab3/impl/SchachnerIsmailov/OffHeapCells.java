@@ -0,0 +1,253 @@
+package ab3.impl.SchachnerIsmailov;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * One byte per cell in segments of a memory-mapped {@link SegmentFile} outside the Java heap.
+ * <p>
+ * Segments are allocated when a non-blank symbol is first written into them, so parts of the tape
+ * the head only passed over cost no memory, and growing the tape only moves segment numbers. Only
+ * the {@value #RESIDENT_SEGMENTS} segments used last are mapped; older mappings are evicted and the
+ * operating system writes their cells back to the file, so the memory of a tape stays bounded
+ * however long it grows.
+ * Copies share the file and the segments; a segment is copied before its first write while
+ * another copy still references it (copy-on-write), so copying costs O(segments) and writing
+ * afterwards O(segments touched). The segments of cells that are garbage collected are reused.
+ * The number of segments is always even, so growing by half the capacity on each side shifts the
+ * content by whole segments.
+ */
+final class OffHeapCells extends Cells {
+    /** log2 of the number of cells per segment */
+    static final int SEGMENT_SHIFT = 20;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    /** number of segments a tape keeps mapped */
+    static final int RESIDENT_SEGMENTS = 32;
+    /** largest capacity, the segment numbers have to fit into an array */
+    static final long MAX_CAPACITY = (long) (MAX_ARRAY_LENGTH & ~1) << SEGMENT_SHIFT;
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * Releases the segments of cells that were garbage collected.
+     */
+    private static final class Release implements Runnable {
+        /** null until the first segment is allocated */
+        private SegmentFile file;
+        /** segment -> slot in the file, -1 if not allocated yet (all blank) */
+        private int[] slots;
+
+        @Override
+        public void run() {
+            for (int slot : slots) {
+                if (slot >= 0) {
+                    file.release(slot);
+                }
+            }
+        }
+    }
+
+    private final Release release = new Release();
+    /** segment -> slot in {@link #release}{@code .file}, -1 if not allocated yet (all blank) */
+    private int[] slots;
+    /** whether a segment is owned by these cells, otherwise it may be shared and is copied before writing */
+    private boolean[] owned;
+    /** segments mapped in {@link #mappings}, -1 for free entries, replaced round-robin */
+    private final int[] mapped = new int[RESIDENT_SEGMENTS];
+    private final ByteBuffer[] mappings = new ByteBuffer[RESIDENT_SEGMENTS];
+    private int nextMapping;
+    /** segment of {@link #current}, -1 if none */
+    private int currentSegment = -1;
+    private ByteBuffer current;
+
+    OffHeapCells(long capacity) throws IllegalArgumentException {
+        this(null, new int[segments(capacity)], null);
+        Arrays.fill(slots, -1);
+    }
+
+    /**
+     * @param nonBlank non-blank cells per segment, null for blank cells
+     */
+    private OffHeapCells(SegmentFile file, int[] slots, int[] nonBlank) {
+        this.slots = release.slots = slots;
+        this.nonBlank = nonBlank != null ? nonBlank : new int[slots.length];
+        release.file = file;
+        owned = new boolean[slots.length];
+        Arrays.fill(mapped, -1);
+        CLEANER.register(this, release);
+    }
+
+    /**
+     * @return an even number of segments holding the given capacity
+     * @throws IllegalArgumentException if the capacity exceeds {@link #MAX_CAPACITY}
+     */
+    private static int segments(long capacity) throws IllegalArgumentException {
+        if (capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("capacity " + capacity + " too large");
+        long length = (capacity + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+        return (int) Math.max(2, length + (length & 1));
+    }
+
+    @Override
+    Cells copy() {
+        Arrays.fill(owned, false);
+        if (release.file != null) {
+            release.file.retain(slots);
+        }
+        return new OffHeapCells(release.file, slots.clone(), nonBlank.clone());
+    }
+
+    @Override
+    long capacity() {
+        return (long) slots.length << SEGMENT_SHIFT;
+    }
+
+    @Override
+    int countShift() {
+        return SEGMENT_SHIFT;
+    }
+
+    @Override
+    long maxCapacity() {
+        return MAX_CAPACITY;
+    }
+
+    @Override
+    int maxSymbols() {
+        return Alphabet.BYTE_CODES;
+    }
+
+    @Override
+    int get(long i) {
+        int segment = (int) (i >>> SEGMENT_SHIFT);
+        if (segment != currentSegment) {
+            if (slots[segment] < 0) {
+                return 0;
+            }
+            select(segment);
+        }
+        return current.get((int) i & SEGMENT_MASK) & 0xFF;
+    }
+
+    @Override
+    void set(long i, int code) {
+        int segment = (int) (i >>> SEGMENT_SHIFT);
+        if (!owned[segment]) {
+            if (slots[segment] < 0 && code == 0) {
+                return;
+            }
+            own(segment);
+        }
+        if (segment != currentSegment) {
+            select(segment);
+        }
+        int j = (int) i & SEGMENT_MASK;
+        if ((current.get(j) == 0) != (code == 0)) {
+            nonBlank[segment] += code == 0 ? -1 : 1;
+        }
+        current.put(j, (byte) code);
+    }
+
+    /**
+     * Gives the segment a slot that no other cells reference, copying its cells if it is shared.
+     */
+    private void own(int segment) {
+        int slot = slots[segment];
+        owned[segment] = true;
+        if (slot >= 0 && release.file.isExclusive(slot)) {
+            return;
+        }
+        if (release.file == null) {
+            release.file = new SegmentFile(SEGMENT_SIZE);
+        }
+        int copy = release.file.allocate(slot < 0);
+        ByteBuffer mapping = release.file.map(copy);
+        if (slot >= 0) {
+            select(segment);
+            mapping.put(0, current, 0, SEGMENT_SIZE);
+            release.file.release(slot);
+        }
+        slots[segment] = copy;
+        map(segment, mapping);
+    }
+
+    /**
+     * Makes the given allocated segment the current one, mapping it if it is not mapped.
+     */
+    private void select(int segment) {
+        for (int i = 0; i < RESIDENT_SEGMENTS; i++) {
+            if (mapped[i] == segment) {
+                currentSegment = segment;
+                current = mappings[i];
+                return;
+            }
+        }
+        map(segment, release.file.map(slots[segment]));
+    }
+
+    /**
+     * Makes the given mapping the current one for the segment, replacing its previous mapping or
+     * evicting the oldest one.
+     */
+    private void map(int segment, ByteBuffer mapping) {
+        int entry = nextMapping;
+        for (int i = 0; i < RESIDENT_SEGMENTS; i++) {
+            if (mapped[i] == segment) {
+                entry = i;
+            }
+        }
+        if (entry == nextMapping) {
+            nextMapping = (nextMapping + 1) % RESIDENT_SEGMENTS;
+        }
+        mapped[entry] = segment;
+        mappings[entry] = mapping;
+        currentSegment = segment;
+        current = mapping;
+    }
+
+    @Override
+    void resize(long capacity, long shift) {
+        int[] resized = new int[segments(capacity)];
+        Arrays.fill(resized, -1);
+        boolean[] resizedOwned = new boolean[resized.length];
+        int[] resizedNonBlank = new int[resized.length];
+        int segmentShift = (int) (shift >>> SEGMENT_SHIFT);
+        System.arraycopy(slots, 0, resized, segmentShift, slots.length);
+        System.arraycopy(owned, 0, resizedOwned, segmentShift, owned.length);
+        System.arraycopy(nonBlank, 0, resizedNonBlank, segmentShift, nonBlank.length);
+        slots = release.slots = resized;
+        owned = resizedOwned;
+        nonBlank = resizedNonBlank;
+        for (int i = 0; i < RESIDENT_SEGMENTS; i++) {
+            if (mapped[i] >= 0) {
+                mapped[i] += segmentShift;
+            }
+        }
+        if (currentSegment >= 0) {
+            currentSegment += segmentShift;
+        }
+    }
+
+    /**
+     * @return the number of allocated segments
+     */
+    int allocatedSegments() {
+        int count = 0;
+        for (int slot : slots) {
+            if (slot >= 0) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of segments currently mapped into memory
+     */
+    int mappedSegments() {
+        int count = 0;
+        for (int segment : mapped) {
+            if (segment >= 0) count++;
+        }
+        return count;
+    }
+}
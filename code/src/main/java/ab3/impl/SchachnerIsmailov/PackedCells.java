@@ -0,0 +1,239 @@
+package ab3.impl.SchachnerIsmailov;
+
+import java.util.Arrays;
+
+/**
+ * Cells packed into {@code long} words with 2 bits per cell (up to 3 symbols besides the blank) or
+ * 4 bits per cell (up to 15); reads and writes are a shift and mask on the word holding the cell.
+ * <p>
+ * The number of words is always even, so growing by half the capacity on each side shifts the
+ * content by whole words. {@link #scan(long, long, boolean[])} skips a whole word at once if all its
+ * cells hold the same symbol.
+ * <p>
+ * The words are stored in chunks of {@code 1 << }{@value #CHUNK_SHIFT} words, only a smaller tape is
+ * a single chunk. Copies share the chunks; a chunk is copied before its first write (copy-on-write),
+ * so copying costs O(chunks) and writing afterwards O(chunks touched).
+ */
+final class PackedCells extends Cells {
+    /** log2 of the number of words per chunk */
+    static final int CHUNK_SHIFT = 13;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int bitsPerCell;
+    /** log2 of bitsPerCell */
+    private final int bitsShift;
+    /** log2 of the number of cells per word */
+    private final int cellsShift;
+    private final int cellMask;
+    private final long symbolMask;
+    /** word with the lowest bit of every cell set, a code times this fills all cells with the code */
+    private final long ones;
+    private long[][] chunks;
+    /** whether a chunk is shared with a copy and has to be copied before the next write */
+    private boolean[] shared;
+    /** number of shared chunks */
+    private int sharedChunks;
+
+    /**
+     * Creates blank cells, the capacity is rounded up to an even number of words, or to whole chunks
+     * if it exceeds one chunk.
+     */
+    PackedCells(long capacity, int bitsPerCell) {
+        this.bitsPerCell = bitsPerCell;
+        this.bitsShift = Integer.numberOfTrailingZeros(bitsPerCell);
+        this.cellsShift = 6 - bitsShift;
+        this.cellMask = (1 << cellsShift) - 1;
+        this.symbolMask = (1L << bitsPerCell) - 1;
+        this.ones = Long.divideUnsigned(-1L, symbolMask);
+        long length = (capacity + cellMask) >>> cellsShift;
+        if (length <= CHUNK_SIZE) {
+            chunks = new long[][]{new long[(int) Math.max(2, length + (length & 1))]};
+        } else {
+            chunks = newChunks(Math.toIntExact((length + CHUNK_MASK) >>> CHUNK_SHIFT));
+        }
+        shared = new boolean[chunks.length];
+        nonBlank = new int[chunks.length];
+    }
+
+    private PackedCells(PackedCells cells) {
+        bitsPerCell = cells.bitsPerCell;
+        bitsShift = cells.bitsShift;
+        cellsShift = cells.cellsShift;
+        cellMask = cells.cellMask;
+        symbolMask = cells.symbolMask;
+        ones = cells.ones;
+        chunks = cells.chunks.clone();
+        nonBlank = cells.nonBlank.clone();
+        shared = new boolean[chunks.length];
+        Arrays.fill(shared, true);
+        Arrays.fill(cells.shared, true);
+        sharedChunks = cells.sharedChunks = chunks.length;
+    }
+
+    private static long[][] newChunks(int count) {
+        long[][] chunks = new long[count][];
+        for (int c = 0; c < count; c++) {
+            chunks[c] = new long[CHUNK_SIZE];
+        }
+        return chunks;
+    }
+
+    /**
+     * @return number of words
+     */
+    private long words() {
+        return chunks.length == 1 ? chunks[0].length : (long) chunks.length << CHUNK_SHIFT;
+    }
+
+    /**
+     * @return number of non-blank cells in the word
+     */
+    private int nonBlankCells(long word) {
+        long any = word;
+        for (int bit = 1; bit < bitsPerCell; bit++) {
+            any |= word >>> bit;
+        }
+        return Long.bitCount(any & ones);
+    }
+
+    private long word(long w) {
+        return chunks[(int) (w >>> CHUNK_SHIFT)][(int) w & CHUNK_MASK];
+    }
+
+    /**
+     * @return bits per cell for an alphabet of the given size (including the blank), 0 if the
+     * alphabet is too large to be packed
+     */
+    static int bitsPerCell(int alphabetSize) {
+        if (alphabetSize <= 4) return 2;
+        if (alphabetSize <= 16) return 4;
+        return 0;
+    }
+
+    @Override
+    Cells copy() {
+        return new PackedCells(this);
+    }
+
+    @Override
+    long capacity() {
+        return words() << cellsShift;
+    }
+
+    @Override
+    int countShift() {
+        return CHUNK_SHIFT + cellsShift;
+    }
+
+    @Override
+    long maxCapacity() {
+        return (long) MAX_ARRAY_LENGTH << cellsShift;
+    }
+
+    @Override
+    int maxSymbols() {
+        return 1 << bitsPerCell;
+    }
+
+    @Override
+    int get(long i) {
+        return (int) (word(i >>> cellsShift) >>> (((int) i & cellMask) << bitsShift) & symbolMask);
+    }
+
+    @Override
+    void set(long i, int code) {
+        long w = i >>> cellsShift;
+        int c = (int) (w >>> CHUNK_SHIFT);
+        if (sharedChunks > 0 && shared[c]) {
+            chunks[c] = chunks[c].clone();
+            shared[c] = false;
+            sharedChunks--;
+        }
+        long[] chunk = chunks[c];
+        int word = (int) w & CHUNK_MASK;
+        int shift = ((int) i & cellMask) << bitsShift;
+        long old = chunk[word];
+        if ((old >>> shift & symbolMask) == 0 != (code == 0)) {
+            nonBlank[c] += code == 0 ? -1 : 1;
+        }
+        chunk[word] = old & ~(symbolMask << shift) | (long) code << shift;
+    }
+
+    @Override
+    long scan(long from, long to, boolean[] symbols) {
+        int step = to < from ? -1 : 1;
+        int cellsPerWord = cellMask + 1;
+        long i = from;
+        while (i != to) {
+            // at the first cell of a word in scan direction, skip the word if it is uniform
+            int first = step > 0 ? (int) i & cellMask : cellMask - ((int) i & cellMask);
+            if (first == 0 && (step > 0 ? to - i >= cellsPerWord : i - to >= cellsPerWord)) {
+                long word = word(i >>> cellsShift);
+                if (word == (word & symbolMask) * ones && symbols[(int) (word & symbolMask)]) {
+                    i += step * cellsPerWord;
+                    continue;
+                }
+            }
+            if (!symbols[get(i)]) {
+                break;
+            }
+            i += step;
+        }
+        return i;
+    }
+
+    @Override
+    void resize(long capacity, long shift) {
+        long wordShift = shift >>> cellsShift;
+        if ((wordShift & CHUNK_MASK) == 0 && chunks.length > 1) {
+            // moves whole chunks, which stay shared
+            int chunkShift = (int) (wordShift >>> CHUNK_SHIFT);
+            long[][] resized = new long[Math.toIntExact(capacity >>> cellsShift >>> CHUNK_SHIFT)][];
+            boolean[] resizedShared = new boolean[resized.length];
+            int[] resizedNonBlank = new int[resized.length];
+            System.arraycopy(chunks, 0, resized, chunkShift, chunks.length);
+            System.arraycopy(shared, 0, resizedShared, chunkShift, shared.length);
+            System.arraycopy(nonBlank, 0, resizedNonBlank, chunkShift, nonBlank.length);
+            for (int c = 0; c < resized.length; c++) {
+                if (resized[c] == null) {
+                    resized[c] = new long[CHUNK_SIZE];
+                }
+            }
+            chunks = resized;
+            shared = resizedShared;
+            nonBlank = resizedNonBlank;
+            return;
+        }
+        long words = words();
+        PackedCells resized = new PackedCells(capacity, bitsPerCell);
+        for (long w = 0; w < words; ) {
+            long target = w + wordShift;
+            int length = (int) Math.min(Math.min(words - w, CHUNK_SIZE - (w & CHUNK_MASK)),
+                    CHUNK_SIZE - (target & CHUNK_MASK));
+            int c = (int) (w >>> CHUNK_SHIFT);
+            if (nonBlank[c] > 0) {
+                // blank pieces stay blank, the others are counted for their new chunk
+                long[] source = chunks[c];
+                int from = (int) w & CHUNK_MASK;
+                int t = (int) (target >>> CHUNK_SHIFT);
+                System.arraycopy(source, from, resized.chunks[t], (int) target & CHUNK_MASK, length);
+                for (int j = from; j < from + length; j++) {
+                    resized.nonBlank[t] += nonBlankCells(source[j]);
+                }
+            }
+            w += length;
+        }
+        chunks = resized.chunks;
+        nonBlank = resized.nonBlank;
+        shared = resized.shared;
+        sharedChunks = 0;
+    }
+
+    /**
+     * @return the number of chunks shared with a copy
+     */
+    int sharedChunks() {
+        return sharedChunks;
+    }
+}
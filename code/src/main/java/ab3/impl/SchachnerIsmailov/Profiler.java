@@ -0,0 +1,227 @@
+package ab3.impl.SchachnerIsmailov;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static ab3.impl.SchachnerIsmailov.Constants.*;
+
+/**
+ * Counts the steps of an {@link Execution} per state and per transition, the time spent per state
+ * and how often the tapes had to grow.
+ * <p>
+ * The counters are plain {@code long[]} indexed by transition id (the order in which the
+ * transitions were added); the hits per state are derived from them. Time is sampled: every {@value #SAMPLE_INTERVAL} steps the wall-clock
+ * time since the last sample is charged to the current state. The counters are written by the thread
+ * running the execution without synchronization, other threads (e.g. over JMX) may see slightly
+ * stale values.
+ */
+public final class Profiler implements ProfilerMXBean {
+    private static final int SAMPLE_INTERVAL = 64;
+    private static final int SAMPLE_MASK = SAMPLE_INTERVAL - 1;
+
+    private Program program;
+    /** transitions in id order */
+    private TransitionKey[] transitions = new TransitionKey[0];
+    /** transition ids, only used for programs without a dispatch table */
+    private Map<TransitionKey, Integer> transitionIds;
+    private long steps;
+    /** steps per state that did not match any transition */
+    private long[] failedHits = new long[0];
+    private long[] stateNanos = new long[0];
+    private long[] transitionHits = new long[0];
+    private long leftGrowths;
+    private long rightGrowths;
+    /** time of the last sample, 0 if sampling has to be restarted */
+    private long lastSample;
+
+    /**
+     * Prepares the counters for the given program, they are cleared if the program changed.
+     */
+    void bind(Program program) {
+        if (this.program == program) {
+            return;
+        }
+        this.program = program;
+        // numbered like DispatchTable#source: the transitions without wildcards, then the wildcard transitions
+        transitions = IntStream.range(0, 2).boxed()
+                .flatMap(i -> (i == 0 ? program.getTransitions() : program.getWildcards().toMap()).keySet().stream())
+                .toArray(TransitionKey[]::new);
+        transitionIds = null;
+        if (program.getDispatchTable() == null && program.getSparseTable() == null) {
+            transitionIds = new HashMap<>();
+            for (int i = 0; i < transitions.length; i++) {
+                transitionIds.put(transitions[i], i);
+            }
+        }
+        failedHits = new long[program.getNumberOfStates()];
+        stateNanos = new long[program.getNumberOfStates()];
+        transitionHits = new long[transitions.length];
+        reset();
+    }
+
+    /**
+     * @return the id of the transition, -1 if there is none
+     */
+    int transitionId(TransitionKey key) {
+        Integer id = transitionIds == null ? null : transitionIds.get(key);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Records a step from the given state with the given transition (-1 if none matched).
+     */
+    void step(int state, int transition) {
+        if (transition >= 0) {
+            transitionHits[transition]++;
+        } else if (state >= 0 && state < failedHits.length) {
+            failedHits[state]++;
+        }
+        if ((++steps & SAMPLE_MASK) == 0) {
+            sample(state);
+        }
+    }
+
+    private void sample(int state) {
+        long now = System.nanoTime();
+        if (lastSample != 0 && state >= 0 && state < stateNanos.length) {
+            stateNanos[state] += now - lastSample;
+        }
+        lastSample = now;
+    }
+
+    /**
+     * Restarts time sampling, so that the time between two runs is not charged to any state.
+     */
+    void resume() {
+        lastSample = 0;
+    }
+
+    void tapeGrown(boolean left) {
+        if (left) {
+            leftGrowths++;
+        } else {
+            rightGrowths++;
+        }
+    }
+
+    @Override
+    public long getSteps() {
+        return steps;
+    }
+
+    @Override
+    public long[] getStateHits() {
+        long[] stateHits = failedHits.clone();
+        for (int i = 0; i < transitions.length; i++) {
+            stateHits[transitions[i].fromState()] += transitionHits[i];
+        }
+        return stateHits;
+    }
+
+    @Override
+    public long[] getStateNanos() {
+        return stateNanos.clone();
+    }
+
+    @Override
+    public long[] getTransitionHits() {
+        return transitionHits.clone();
+    }
+
+    @Override
+    public long getLeftGrowths() {
+        return leftGrowths;
+    }
+
+    @Override
+    public long getRightGrowths() {
+        return rightGrowths;
+    }
+
+    @Override
+    public String getReport() {
+        return report(20);
+    }
+
+    @Override
+    public void reset() {
+        steps = 0;
+        Arrays.fill(failedHits, 0);
+        Arrays.fill(stateNanos, 0);
+        Arrays.fill(transitionHits, 0);
+        leftGrowths = 0;
+        rightGrowths = 0;
+        lastSample = 0;
+    }
+
+    /**
+     * @param limit maximum number of states and transitions listed
+     * @return the states and transitions with the most hits, in descending order
+     */
+    public String report(int limit) {
+        long[] stateHits = getStateHits();
+        long[] stateNanos = this.stateNanos.clone();
+        long[] transitionHits = this.transitionHits.clone();
+        long totalNanos = Arrays.stream(stateNanos).sum();
+        var report = new StringBuilder();
+        report.append(String.format("steps: %d, tape growths: %d left, %d right%n", steps, leftGrowths, rightGrowths));
+        report.append(String.format("%-8s %14s %7s %7s%n", "state", "hits", "steps%", "time%"));
+        hottest(stateHits, limit).forEach(state -> report.append(String.format("%-8d %14d %6.2f%% %6.2f%%%n",
+                state, stateHits[state], percent(stateHits[state], steps), percent(stateNanos[state], totalNanos))));
+        report.append(String.format("%-24s %14s %7s%n", "transition", "hits", "steps%"));
+        hottest(transitionHits, limit).forEach(id -> report.append(String.format("%-24s %14d %6.2f%%%n",
+                label(transitions[id]), transitionHits[id], percent(transitionHits[id], steps))));
+        return report.toString();
+    }
+
+    private static IntStream hottest(long[] hits, int limit) {
+        return IntStream.range(0, hits.length)
+                .filter(i -> hits[i] > 0)
+                .boxed()
+                .sorted(Comparator.comparingLong((Integer i) -> hits[i]).reversed())
+                .limit(limit)
+                .mapToInt(Integer::intValue);
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+
+    private static String label(TransitionKey key) {
+        return "(" + key.fromState() + ", " + new String(key.readTape()).replace(SPACE, '_').replace(ANY, '*') + ')';
+    }
+
+    /**
+     * Registers this profiler with the platform MBean server.
+     *
+     * @param name distinguishes several profilers, e.g. the name of the machine
+     * @return the name the profiler is registered under
+     * @throws IllegalStateException if the profiler cannot be registered, e.g. because the name is taken
+     */
+    public ObjectName register(String name) throws IllegalStateException {
+        try {
+            var objectName = new ObjectName(Profiler.class.getPackageName() + ":type=Profiler,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Removes this profiler from the platform MBean server.
+     */
+    public void unregister(ObjectName objectName) throws IllegalStateException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
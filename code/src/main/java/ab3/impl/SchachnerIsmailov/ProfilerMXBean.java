@@ -0,0 +1,37 @@
+package ab3.impl.SchachnerIsmailov;
+
+/**
+ * Management interface of a {@link Profiler}, see {@link Profiler#register(String)}.
+ */
+public interface ProfilerMXBean {
+    long getSteps();
+
+    /**
+     * @return executed steps per state
+     */
+    long[] getStateHits();
+
+    /**
+     * @return sampled nanoseconds per state
+     */
+    long[] getStateNanos();
+
+    /**
+     * @return hits per transition, in the order the transitions were added
+     */
+    long[] getTransitionHits();
+
+    long getLeftGrowths();
+
+    long getRightGrowths();
+
+    /**
+     * @return the hotspot report, see {@link Profiler#report(int)}
+     */
+    String getReport();
+
+    /**
+     * Sets all counters to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,279 @@
+package ab3.impl.SchachnerIsmailov;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static ab3.impl.SchachnerIsmailov.Constants.*;
+
+/**
+ * Immutable, validated definition of a machine together with its compiled {@link DispatchTable}.
+ * <p>
+ * A program is created once per machine (see {@link TuringMachineImpl#freeze()}) and can be shared
+ * between threads; every run gets its own cheap {@link Execution}. Nondeterministic programs have
+ * several transitions per key, which are explored by a {@link NondeterministicSearch}.
+ * <p>
+ * Transitions reading {@link Constants#ANY} on some tape are kept apart in a {@link WildcardIndex} and
+ * only used if no transition without wildcards matches. Transitions without wildcards that write
+ * {@link Constants#ANY} are stored with the symbols they keep.
+ */
+public final class Program {
+    private final Set<Character> alphabet;
+    /** interned alphabet, including all symbols used by the transitions */
+    private final Alphabet tapeAlphabet;
+    private final int numberOfStates;
+    private final int numberOfTapes;
+    private final int initialState;
+    private final int haltingState;
+    /** transition map, built from {@link #dispatchTable} on first use for programs loaded from an image */
+    private volatile Map<TransitionKey, TransitionValue> transitions;
+    /** all transitions per key of a nondeterministic program, the first one being in {@link #transitions}; empty otherwise */
+    private final Map<TransitionKey, List<TransitionValue>> choices;
+    /** transitions with wildcards, empty for programs loaded from an image */
+    private final WildcardIndex wildcards;
+    /** compiled form of {@link #transitions} and {@link #wildcards}, null if it would be too large */
+    private final DispatchTable dispatchTable;
+    /** compiled form of {@link #transitions} if there is no dispatch table, null if there is one */
+    private final SparseTable sparseTable;
+    /** factory of generated steppers, compiled on first use */
+    private Supplier<Stepper> steppers;
+    private boolean steppersCompiled;
+    /** analysis of the transition graph, computed on first use */
+    private volatile Reachability reachability;
+
+    Program(Set<Character> alphabet, Alphabet tapeAlphabet, int numberOfStates, int numberOfTapes, int initialState, int haltingState,
+            Map<TransitionKey, TransitionValue> transitions) {
+        this(alphabet, tapeAlphabet, numberOfStates, numberOfTapes, initialState, haltingState, transitions, Map.of());
+    }
+
+    /**
+     * @param alternatives further transitions per key of a nondeterministic program, besides the one in {@code transitions}
+     */
+    Program(Set<Character> alphabet, Alphabet tapeAlphabet, int numberOfStates, int numberOfTapes, int initialState, int haltingState,
+            Map<TransitionKey, TransitionValue> transitions, Map<TransitionKey, List<TransitionValue>> alternatives) {
+        this(alphabet, tapeAlphabet, numberOfStates, numberOfTapes, initialState, haltingState, transitions, alternatives,
+                DispatchTable.MAX_SLOTS);
+    }
+
+    /**
+     * @param maxSlots maximum number of slots of the dispatch table, a {@link SparseTable} is used for larger machines
+     */
+    Program(Set<Character> alphabet, Alphabet tapeAlphabet, int numberOfStates, int numberOfTapes, int initialState, int haltingState,
+            Map<TransitionKey, TransitionValue> transitions, Map<TransitionKey, List<TransitionValue>> alternatives, long maxSlots) {
+        this.alphabet = alphabet == null ? Set.of() : Collections.unmodifiableSet(new HashSet<>(alphabet));
+        this.numberOfStates = numberOfStates;
+        this.numberOfTapes = numberOfTapes;
+        this.initialState = initialState;
+        this.haltingState = haltingState;
+        Map<TransitionKey, TransitionValue> exact = new LinkedHashMap<>();
+        Map<TransitionKey, TransitionValue> wildcards = new LinkedHashMap<>();
+        // symbols used by transitions are included as well, in case the alphabet was replaced afterwards
+        for (var entry : transitions.entrySet()) {
+            TransitionKey key = entry.getKey();
+            if (WildcardIndex.isWildcard(key)) {
+                wildcards.put(key, entry.getValue());
+            } else {
+                exact.put(key, keep(key, entry.getValue()));
+            }
+            for (char c : key.readTape()) if (c != ANY) tapeAlphabet = tapeAlphabet.with(c);
+            for (char c : entry.getValue().writeTapes()) if (c != ANY) tapeAlphabet = tapeAlphabet.with(c);
+        }
+        this.transitions = Collections.unmodifiableMap(exact);
+        Map<TransitionKey, List<TransitionValue>> choices = new LinkedHashMap<>();
+        for (var entry : alternatives.entrySet()) {
+            List<TransitionValue> values = new ArrayList<>();
+            values.add(this.transitions.get(entry.getKey()));
+            for (TransitionValue value : entry.getValue()) {
+                values.add(keep(entry.getKey(), value));
+                for (char c : value.writeTapes()) if (c != ANY) tapeAlphabet = tapeAlphabet.with(c);
+            }
+            choices.put(entry.getKey(), List.copyOf(values));
+        }
+        this.choices = Collections.unmodifiableMap(choices);
+        this.tapeAlphabet = tapeAlphabet;
+        this.wildcards = wildcards.isEmpty() ? WildcardIndex.EMPTY
+                : new WildcardIndex(tapeAlphabet, numberOfStates, numberOfTapes, wildcards);
+        this.dispatchTable = DispatchTable.compile(tapeAlphabet, numberOfStates, numberOfTapes, this.transitions, this.wildcards, maxSlots);
+        this.sparseTable = dispatchTable != null ? null
+                : SparseTable.compile(tapeAlphabet, numberOfStates, numberOfTapes, this.transitions);
+    }
+
+    /**
+     * Creates a program running on a prebuilt dispatch table (see {@link MachineImage} and
+     * {@link TuringMachineImpl#addTransitions(TransitionBatch)}); the transition map is only built when
+     * it is needed, e.g. for profiling or code generation.
+     */
+    Program(Set<Character> alphabet, Alphabet tapeAlphabet, int numberOfStates, int numberOfTapes, int initialState, int haltingState,
+            DispatchTable dispatchTable) {
+        this.alphabet = alphabet == null ? Set.of() : Collections.unmodifiableSet(new HashSet<>(alphabet));
+        this.tapeAlphabet = tapeAlphabet;
+        this.numberOfStates = numberOfStates;
+        this.numberOfTapes = numberOfTapes;
+        this.initialState = initialState;
+        this.haltingState = haltingState;
+        this.choices = Map.of();
+        this.wildcards = WildcardIndex.EMPTY;
+        this.dispatchTable = dispatchTable;
+        this.sparseTable = null;
+    }
+
+    /**
+     * @return the value with the symbols the transition keeps written explicitly
+     */
+    private static TransitionValue keep(TransitionKey key, TransitionValue value) {
+        char[] write = value.writeTapes();
+        for (int i = 0; i < write.length; i++) {
+            if (write[i] == ANY) {
+                write = write.clone();
+                for (int j = i; j < write.length; j++) {
+                    if (write[j] == ANY) write[j] = key.readTape()[j];
+                }
+                return new TransitionValue(value.toState(), write, value.moveTapes());
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return a new execution in the initial configuration, with blank tapes
+     */
+    public Execution newExecution() {
+        return new Execution(this, initialState, numberOfTapes);
+    }
+
+    public Set<Character> getAlphabet() {
+        return alphabet;
+    }
+
+    public int getNumberOfStates() {
+        return numberOfStates;
+    }
+
+    public int getNumberOfTapes() {
+        return numberOfTapes;
+    }
+
+    public int getInitialState() {
+        return initialState;
+    }
+
+    public int getHaltingState() {
+        return haltingState;
+    }
+
+    Alphabet getTapeAlphabet() {
+        return tapeAlphabet;
+    }
+
+    Map<TransitionKey, TransitionValue> getTransitions() {
+        Map<TransitionKey, TransitionValue> result = transitions;
+        if (result == null) {
+            synchronized (this) {
+                if (transitions == null) {
+                    transitions = Collections.unmodifiableMap(dispatchTable.toTransitions());
+                }
+                result = transitions;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the transitions reading {@link Constants#ANY} on some tape
+     */
+    WildcardIndex getWildcards() {
+        return wildcards;
+    }
+
+    /**
+     * @return further transitions per key besides the one in {@link #getTransitions()}, in the order
+     * they were added
+     */
+    Map<TransitionKey, List<TransitionValue>> getAlternatives() {
+        Map<TransitionKey, List<TransitionValue>> alternatives = new LinkedHashMap<>();
+        choices.forEach((key, values) -> alternatives.put(key, values.subList(1, values.size())));
+        return alternatives;
+    }
+
+    /**
+     * @return whether some key has several transitions, see {@link #getChoices(TransitionKey)}
+     */
+    public boolean isNondeterministic() {
+        return !choices.isEmpty();
+    }
+
+    /**
+     * @return all transitions for the given key, in the order they were added; empty if there is none.
+     * For a key without wildcards that has no transition, the matching wildcard transition is returned
+     * as applied to the symbols of the key (see {@link WildcardIndex#resolve(int, char[])}).
+     */
+    List<TransitionValue> getChoices(TransitionKey key) {
+        List<TransitionValue> values = choices.get(key);
+        if (values != null) {
+            return values;
+        }
+        TransitionValue value = getTransitions().get(key);
+        if (value != null) {
+            return List.of(value);
+        }
+        if (wildcards.size() == 0) {
+            return List.of();
+        }
+        if (WildcardIndex.isWildcard(key)) {
+            value = wildcards.toMap().get(key);
+            return value == null ? List.of() : List.of(value);
+        }
+        int wildcard = wildcards.match(key.fromState(), key.readTape());
+        return wildcard < 0 ? List.of() : List.of(wildcards.resolve(wildcard, key.readTape()));
+    }
+
+    /**
+     * @return the dispatch table, null if the machine is too large for one and runs on the {@link #getSparseTable() sparse table}
+     */
+    DispatchTable getDispatchTable() {
+        return dispatchTable;
+    }
+
+    /**
+     * @return the sparse table of a machine that is too large for a dispatch table, null if there is a dispatch table
+     */
+    SparseTable getSparseTable() {
+        return sparseTable;
+    }
+
+    /**
+     * @return the analysis of the transition graph, see {@link Reachability}
+     */
+    Reachability getReachability() {
+        Reachability result = reachability;
+        if (result == null) {
+            synchronized (this) {
+                if (reachability == null) {
+                    reachability = new Reachability(this);
+                }
+                result = reachability;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return a new generated stepper for this program, null if none can be generated (see {@link StepperCompiler})
+     */
+    Stepper newStepper() {
+        Supplier<Stepper> factory;
+        synchronized (this) {
+            if (!steppersCompiled) {
+                steppers = StepperCompiler.compile(this);
+                steppersCompiled = true;
+            }
+            factory = steppers;
+        }
+        return factory == null ? null : factory.get();
+    }
+}
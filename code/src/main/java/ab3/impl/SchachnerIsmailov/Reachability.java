@@ -0,0 +1,310 @@
+package ab3.impl.SchachnerIsmailov;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Static analysis of the transition graph of a {@link Program}, computed once per program.
+ * <p>
+ * The graph has an edge from {@code q} to {@code p} for every transition from {@code q} to {@code p},
+ * whatever the tapes hold. A state from which no path leads to the halting state can never accept:
+ * a run that enters it either runs forever or ends in the error state. These states are found by a
+ * breadth-first search backwards from the halting state, in O(states + transitions).
+ * <p>
+ * A state is incomplete if it has no transition for some combination of symbols it can read, so a run
+ * may end in the error state there. Any symbol can be on the input tape, but the other tapes start
+ * blank and only hold the symbols written by transitions that can read theirs, as in {@link Minimizer}
+ * but from any state. Wildcard transitions cover every symbol they match.
+ */
+final class Reachability {
+    /** state -> whether the halting state is reachable from it */
+    private final boolean[] canHalt;
+    /** state -> whether it lacks a transition for some readable symbols */
+    private final boolean[] incomplete;
+
+    Reachability(Program program) {
+        int numberOfStates = program.getNumberOfStates();
+        int haltingState = program.getHaltingState();
+
+        int[][] edges = edges(program);
+        int[] from = edges[0];
+        int[] to = edges[1];
+        // backward edges grouped by target state: the transitions from sources[first[p] .. first[p+1]-1] lead to p
+        int[] first = new int[numberOfStates + 1];
+        for (int p : to) {
+            first[p + 1]++;
+        }
+        for (int p = 0; p < numberOfStates; p++) {
+            first[p + 1] += first[p];
+        }
+        int[] sources = new int[from.length];
+        int[] next = Arrays.copyOf(first, numberOfStates);
+        for (int i = 0; i < from.length; i++) {
+            sources[next[to[i]]++] = from[i];
+        }
+
+        canHalt = new boolean[numberOfStates];
+        int[] queue = new int[numberOfStates];
+        int head = 0;
+        int tail = 0;
+        canHalt[haltingState] = true;
+        queue[tail++] = haltingState;
+        while (head < tail) {
+            int p = queue[head++];
+            for (int i = first[p]; i < first[p + 1]; i++) {
+                if (!canHalt[sources[i]]) {
+                    canHalt[sources[i]] = true;
+                    queue[tail++] = sources[i];
+                }
+            }
+        }
+
+        incomplete = program.getDispatchTable() != null && !program.isNondeterministic()
+                ? incomplete(program, program.getDispatchTable()) : incomplete(program);
+        incomplete[haltingState] = false;
+    }
+
+    /**
+     * Counts the readable slots filled per state; wildcard transitions are expanded in the table.
+     */
+    private static boolean[] incomplete(Program program, DispatchTable table) {
+        int tapes = table.getNumberOfTapes();
+        int symbols = table.getNumberOfSymbols();
+        boolean[][] readable = new boolean[tapes][symbols];
+        Arrays.fill(readable[0], true);
+        for (int t = 1; t < tapes; t++) {
+            readable[t][table.getAlphabet().code(Constants.SPACE)] = true;
+        }
+        int stateSlots = table.stateSlots();
+        // a wildcard keeping a symbol fills slots for symbols that may never be readable, so only the
+        // writes of readable slots count, until no more symbols become readable
+        boolean grown = tapes > 1;
+        while (grown) {
+            grown = false;
+            for (int slot = 0; slot < table.slots(); slot++) {
+                int transition = table.transition(slot);
+                if (transition >= 0 && isReadable(slot % stateSlots, readable, symbols)) {
+                    for (int t = 1; t < tapes; t++) {
+                        if (!readable[t][table.write(transition, t)]) {
+                            readable[t][table.write(transition, t)] = true;
+                            grown = true;
+                        }
+                    }
+                }
+            }
+        }
+        long combinations = 1;
+        for (boolean[] tape : readable) {
+            int count = 0;
+            for (boolean r : tape) {
+                if (r) count++;
+            }
+            combinations *= count;
+        }
+        long[] covered = new long[program.getNumberOfStates()];
+        for (int slot = 0; slot < table.slots(); slot++) {
+            if (table.transition(slot) >= 0 && isReadable(slot % stateSlots, readable, symbols)) {
+                covered[slot / stateSlots]++;
+            }
+        }
+        boolean[] incomplete = new boolean[covered.length];
+        for (int q = 0; q < covered.length; q++) {
+            incomplete[q] = covered[q] < combinations;
+        }
+        return incomplete;
+    }
+
+    /**
+     * @param codes the symbol codes of a slot within its state, the first tape in the lowest digit
+     */
+    private static boolean isReadable(int codes, boolean[][] readable, int symbols) {
+        for (boolean[] tape : readable) {
+            if (!tape[codes % symbols]) {
+                return false;
+            }
+            codes /= symbols;
+        }
+        return true;
+    }
+
+    /**
+     * Checks per state whether its transitions and wildcard transitions cover all readable symbols.
+     */
+    private static boolean[] incomplete(Program program) {
+        int tapes = program.getNumberOfTapes();
+        Map<TransitionKey, TransitionValue> wildcards = program.getWildcards().toMap();
+        List<List<char[]>> patterns = new ArrayList<>();
+        for (int q = 0; q < program.getNumberOfStates(); q++) {
+            patterns.add(new ArrayList<>());
+        }
+        List<Set<Character>> readable = new ArrayList<>();
+        readable.add(new HashSet<>());
+        for (int code = 0; code < program.getTapeAlphabet().size(); code++) {
+            readable.get(0).add(program.getTapeAlphabet().symbol(code));
+        }
+        for (int t = 1; t < tapes; t++) {
+            readable.add(new HashSet<>(Set.of(Constants.SPACE)));
+        }
+        Map<TransitionKey, List<TransitionValue>> outgoing = new LinkedHashMap<>();
+        for (TransitionKey key : program.getTransitions().keySet()) {
+            outgoing.put(key, program.getChoices(key));
+        }
+        wildcards.forEach((key, value) -> outgoing.put(key, List.of(value)));
+        for (TransitionKey key : outgoing.keySet()) {
+            if (key.fromState() >= 0 && key.fromState() < patterns.size()) {
+                patterns.get(key.fromState()).add(key.readTape());
+            }
+        }
+        // only the writes of transitions that can read their symbols count, as in the dispatch table
+        boolean grown = tapes > 1;
+        while (grown) {
+            grown = false;
+            for (var entry : outgoing.entrySet()) {
+                if (canRead(entry.getKey(), readable)) {
+                    for (TransitionValue value : entry.getValue()) {
+                        grown |= addWritten(value, readable);
+                    }
+                }
+            }
+        }
+        boolean[] incomplete = new boolean[patterns.size()];
+        for (int q = 0; q < incomplete.length; q++) {
+            incomplete[q] = !covers(patterns.get(q), 0, readable);
+        }
+        return incomplete;
+    }
+
+    /**
+     * @return whether the symbols the transition reads on the tapes after the input tape can be there
+     */
+    private static boolean canRead(TransitionKey key, List<Set<Character>> readable) {
+        for (int t = 1; t < readable.size(); t++) {
+            char c = key.readTape()[t];
+            if (c != Constants.ANY && !readable.get(t).contains(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether a symbol became readable
+     */
+    private static boolean addWritten(TransitionValue value, List<Set<Character>> readable) {
+        boolean grown = false;
+        for (int t = 1; t < readable.size(); t++) {
+            // a kept symbol was readable before
+            if (value.writeTapes()[t] != Constants.ANY) {
+                grown |= readable.get(t).add(value.writeTapes()[t]);
+            }
+        }
+        return grown;
+    }
+
+    /**
+     * @return whether every combination of readable symbols on the tapes from {@code tape} on matches
+     * one of the patterns, which all match the tapes before
+     */
+    private static boolean covers(List<char[]> patterns, int tape, List<Set<Character>> readable) {
+        if (tape == readable.size()) {
+            return !patterns.isEmpty();
+        }
+        List<char[]> any = new ArrayList<>();
+        Map<Character, List<char[]>> bySymbol = new HashMap<>();
+        for (char[] pattern : patterns) {
+            if (pattern[tape] == Constants.ANY) {
+                any.add(pattern);
+            } else if (readable.get(tape).contains(pattern[tape])) {
+                bySymbol.computeIfAbsent(pattern[tape], c -> new ArrayList<>()).add(pattern);
+            }
+        }
+        for (List<char[]> matching : bySymbol.values()) {
+            matching.addAll(any);
+            if (!covers(matching, tape + 1, readable)) {
+                return false;
+            }
+        }
+        // the symbols without a pattern of their own are only matched by the wildcards
+        return bySymbol.size() == readable.get(tape).size() || covers(any, tape + 1, readable);
+    }
+
+    /**
+     * @return the sources and targets of all transitions, including the alternatives of a nondeterministic program
+     */
+    private static int[][] edges(Program program) {
+        DispatchTable table = program.getDispatchTable();
+        if (table != null && !program.isNondeterministic()) {
+            int stateSlots = table.stateSlots();
+            int count = 0;
+            for (int slot = 0; slot < table.slots(); slot++) {
+                if (table.transition(slot) >= 0) count++;
+            }
+            int[] from = new int[count];
+            int[] to = new int[count];
+            count = 0;
+            for (int slot = 0; slot < table.slots(); slot++) {
+                int transition = table.transition(slot);
+                if (transition >= 0) {
+                    from[count] = slot / stateSlots;
+                    to[count++] = table.toState(transition);
+                }
+            }
+            return new int[][]{from, to};
+        }
+        Map<TransitionKey, TransitionValue> transitions = program.getTransitions();
+        Map<TransitionKey, TransitionValue> wildcards = program.getWildcards().toMap();
+        int count = wildcards.size();
+        for (TransitionKey key : transitions.keySet()) {
+            count += program.getChoices(key).size();
+        }
+        int[] from = new int[count];
+        int[] to = new int[count];
+        int i = 0;
+        for (TransitionKey key : transitions.keySet()) {
+            for (TransitionValue value : program.getChoices(key)) {
+                from[i] = key.fromState();
+                to[i++] = value.toState();
+            }
+        }
+        for (var entry : wildcards.entrySet()) {
+            from[i] = entry.getKey().fromState();
+            to[i++] = entry.getValue().toState();
+        }
+        return new int[][]{from, to};
+    }
+
+    /**
+     * @return whether the halting state can be reached from the given state; false for the error state
+     */
+    boolean canHalt(int state) {
+        return state >= 0 && state < canHalt.length && canHalt[state];
+    }
+
+    /**
+     * @return whether the given state lacks a transition for some symbols it can read, so a run may end
+     * in the error state there; false for the halting state
+     */
+    boolean isIncomplete(int state) {
+        return incomplete[state];
+    }
+
+    /**
+     * @return the states from which the halting state cannot be reached, in ascending order
+     */
+    int[] getDoomedStates() {
+        int[] doomed = new int[canHalt.length];
+        int count = 0;
+        for (int state = 0; state < canHalt.length; state++) {
+            if (!canHalt[state]) {
+                doomed[count++] = state;
+            }
+        }
+        return Arrays.copyOf(doomed, count);
+    }
+}
@@ -0,0 +1,134 @@
+package ab3.impl.SchachnerIsmailov;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Temporary file holding the segments of {@link OffHeapCells}, shared by the copies of a tape.
+ * <p>
+ * The file is divided into slots of one segment each, which are memory-mapped on demand, so the
+ * operating system pages cells out to the file instead of keeping them in memory. A slot is
+ * reference counted by the cells using it; a slot without references is reused for the next
+ * segment allocated. The file is closed when it is no longer reachable and deleted when it is
+ * closed (on Unix already when it is opened). All methods may be called from several threads, as
+ * copies of a tape may run in parallel.
+ */
+final class SegmentFile {
+    private static final Cleaner CLEANER = Cleaner.create();
+    /** blank cells copied over a reused slot, shared by all files and never written */
+    private static final ByteBuffer BLANK = ByteBuffer.allocateDirect(1 << 16);
+
+    private final FileChannel channel;
+    private final int segmentSize;
+    /** slot -> number of cells referencing it */
+    private int[] references = new int[16];
+    /** slots without references */
+    private int[] free = new int[16];
+    private int freeCount;
+    /** number of slots in the file */
+    private int slots;
+
+    /**
+     * Creates an empty file in the default temporary-file directory.
+     *
+     * @throws UncheckedIOException if the file cannot be created
+     */
+    SegmentFile(int segmentSize) throws UncheckedIOException {
+        this.segmentSize = segmentSize;
+        try {
+            Path path = Files.createTempFile("tape", ".cells");
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        FileChannel channel = this.channel;
+        CLEANER.register(this, () -> {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // the cells are gone, there is nobody to report to
+            }
+        });
+    }
+
+    /**
+     * @param blank whether the slot has to be blank, otherwise the caller overwrites all of it
+     * @return a slot referenced once
+     * @throws UncheckedIOException if a reused slot cannot be cleared
+     */
+    synchronized int allocate(boolean blank) throws UncheckedIOException {
+        if (freeCount == 0) {
+            if (slots == references.length) {
+                references = Arrays.copyOf(references, 2 * slots);
+            }
+            references[slots] = 1;
+            // the file grows when the slot is mapped, new parts of the file are blank
+            return slots++;
+        }
+        int slot = free[--freeCount];
+        references[slot] = 1;
+        if (blank) {
+            clear(map(slot));
+        }
+        return slot;
+    }
+
+    /**
+     * Blanks the mapped slot in place, without allocating a segment-sized buffer.
+     */
+    private void clear(ByteBuffer mapping) {
+        for (int i = 0; i < segmentSize; i += BLANK.capacity()) {
+            mapping.put(i, BLANK, 0, Math.min(BLANK.capacity(), segmentSize - i));
+        }
+    }
+
+    /**
+     * Adds a reference to each of the given slots, ignoring negative ones.
+     */
+    synchronized void retain(int[] slots) {
+        for (int slot : slots) {
+            if (slot >= 0) {
+                references[slot]++;
+            }
+        }
+    }
+
+    /**
+     * Removes a reference to the given slot, which is reused once no cells reference it.
+     */
+    synchronized void release(int slot) {
+        if (--references[slot] == 0) {
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, 2 * freeCount);
+            }
+            free[freeCount++] = slot;
+        }
+    }
+
+    /**
+     * @return whether the given slot is referenced only once, so it can be written without copying it
+     */
+    synchronized boolean isExclusive(int slot) {
+        return references[slot] == 1;
+    }
+
+    /**
+     * @return the contents of the given slot, mapped into memory until the buffer is garbage collected
+     * @throws UncheckedIOException if the slot cannot be mapped
+     */
+    ByteBuffer map(int slot) throws UncheckedIOException {
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, (long) slot * segmentSize, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
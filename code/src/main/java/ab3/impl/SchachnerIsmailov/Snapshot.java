@@ -0,0 +1,43 @@
+package ab3.impl.SchachnerIsmailov;
+
+/**
+ * Immutable configuration of an {@link Execution}: its program, state and tapes.
+ * <p>
+ * The tapes share their cells copy-on-write with the execution they were taken from (see
+ * {@link Cells#copy()}), so taking a snapshot does not copy the tapes. A snapshot can be restored
+ * any number of times, also into other executions of a program with the same number of tapes.
+ */
+public final class Snapshot {
+    private final Program program;
+    private final int state;
+    private final Tape[] tapes;
+
+    Snapshot(Program program, int state, Tape[] tapes) {
+        this.program = program;
+        this.state = state;
+        this.tapes = tapes;
+    }
+
+    public Program getProgram() {
+        return program;
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    public int getNumberOfTapes() {
+        return tapes.length;
+    }
+
+    /**
+     * @return copies of the tapes, sharing their cells with this snapshot
+     */
+    Tape[] copyTapes() {
+        Tape[] copies = new Tape[tapes.length];
+        for (int i = 0; i < tapes.length; i++) {
+            copies[i] = tapes[i].copy();
+        }
+        return copies;
+    }
+}
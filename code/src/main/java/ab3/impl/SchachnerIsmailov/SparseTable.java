@@ -0,0 +1,196 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Transition table for machines whose {@link DispatchTable} would exceed its memory limit.
+ * <p>
+ * The state and the codes of the symbols read are packed into a single long, or into several for
+ * machines with many tapes: every field takes as many bits as its largest value needs and does not
+ * straddle two longs. The packed keys are stored in an open-addressing hash table with linear probing
+ * that is at most half full, so a lookup costs a few array loads instead of allocating and hashing a
+ * {@link TransitionKey} and following the nodes of a {@link java.util.HashMap}. The transitions are
+ * stored in parallel int arrays indexed by id, numbered in the order of the transition map.
+ */
+final class SparseTable {
+    private static final TuringMachine.Movement[] MOVEMENTS = TuringMachine.Movement.values();
+
+    private final int numberOfTapes;
+    private final int numberOfSymbols;
+    /** number of longs per key */
+    private final int words;
+    /** tape -> long of the key holding its code */
+    private final int[] tapeWord;
+    /** tape -> position of its code in {@link #tapeWord}; the state is in the lowest bits of the first long */
+    private final int[] tapeShift;
+    /** hash -> index into {@link #ids}, {@code 64 - log2(capacity)} */
+    private final int hashShift;
+    /** index * words + word -> packed key */
+    private final long[] keys;
+    /** index -> transition id, -1 if the index is free */
+    private final int[] ids;
+    /** transition id -> next state */
+    private final int[] toState;
+    /** transition id * k + tape -> code of the symbol to write {@code << 2 |} ordinal of the movement */
+    private final int[] actions;
+
+    private SparseTable(Alphabet alphabet, int numberOfStates, int numberOfTapes, int size) {
+        this.numberOfTapes = numberOfTapes;
+        this.numberOfSymbols = alphabet.size();
+        int stateBits = bits(numberOfStates - 1);
+        int codeBits = bits(numberOfSymbols - 1);
+        tapeWord = new int[numberOfTapes];
+        tapeShift = new int[numberOfTapes];
+        int word = 0;
+        int shift = stateBits;
+        for (int i = 0; i < numberOfTapes; i++) {
+            if (shift + codeBits > Long.SIZE) {
+                word++;
+                shift = 0;
+            }
+            tapeWord[i] = word;
+            tapeShift[i] = shift;
+            shift += codeBits;
+        }
+        words = word + 1;
+        // at most half full
+        int capacity = Math.max(2, Integer.highestOneBit(Math.max(1, size)) << 2);
+        hashShift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        keys = new long[capacity * words];
+        ids = new int[capacity];
+        Arrays.fill(ids, -1);
+        toState = new int[size];
+        actions = new int[size * numberOfTapes];
+    }
+
+    private static int bits(int value) {
+        return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(value));
+    }
+
+    /**
+     * Compiles the given transitions into a sparse table.
+     *
+     * @param alphabet the tape alphabet, containing all symbols used by the transitions
+     * @return the table, or {@code null} if a transition uses a symbol outside the alphabet
+     */
+    static SparseTable compile(Alphabet alphabet, int numberOfStates, int numberOfTapes,
+                               Map<TransitionKey, TransitionValue> transitions) {
+        SparseTable table = new SparseTable(alphabet, numberOfStates, numberOfTapes, transitions.size());
+        long[] key = table.newKey();
+        int id = 0;
+        for (var entry : transitions.entrySet()) {
+            TransitionKey transitionKey = entry.getKey();
+            TransitionValue value = entry.getValue();
+            table.toState[id] = value.toState();
+            for (int i = 0; i < numberOfTapes; i++) {
+                int code = alphabet.code(value.writeTapes()[i]);
+                if (code < 0) {
+                    return null;
+                }
+                table.actions[id * numberOfTapes + i] = code << 2 | value.moveTapes()[i].ordinal();
+            }
+            int state = transitionKey.fromState();
+            // a transition of a state that does not exist keeps its id but is never found
+            if (state >= 0 && state < numberOfStates) {
+                Arrays.fill(key, 0);
+                key[0] = state;
+                for (int i = 0; i < numberOfTapes; i++) {
+                    int code = alphabet.code(transitionKey.readTape()[i]);
+                    if (code < 0) {
+                        return null;
+                    }
+                    key[table.tapeWord[i]] |= (long) code << table.tapeShift[i];
+                }
+                table.insert(key, id);
+            }
+            id++;
+        }
+        return table;
+    }
+
+    private void insert(long[] key, int id) {
+        int index = index(key);
+        while (ids[index] >= 0) {
+            index = (index + 1) & (ids.length - 1);
+        }
+        System.arraycopy(key, 0, keys, index * words, words);
+        ids[index] = id;
+    }
+
+    private int index(long[] key) {
+        long hash = 0;
+        for (int word = 0; word < words; word++) {
+            hash = (hash + key[word]) * 0x9E3779B97F4A7C15L;
+        }
+        return (int) (hash >>> hashShift);
+    }
+
+    /**
+     * @return a buffer for the keys of {@link #key(int, Tape[], long[])}
+     */
+    long[] newKey() {
+        return new long[words];
+    }
+
+    /**
+     * Packs the given state and the symbols below the heads into the given key.
+     *
+     * @return false if a tape holds a symbol outside the alphabet, which has no transition in this table
+     */
+    boolean key(int state, Tape[] tapes, long[] key) {
+        Arrays.fill(key, 0);
+        key[0] = state;
+        for (int i = 0; i < numberOfTapes; i++) {
+            int code = tapes[i].read();
+            if (code >= numberOfSymbols) {
+                return false;
+            }
+            key[tapeWord[i]] |= (long) code << tapeShift[i];
+        }
+        return true;
+    }
+
+    /**
+     * @return id of the transition with the given key, -1 if there is none
+     */
+    int find(long[] key) {
+        int index = index(key);
+        int mask = ids.length - 1;
+        if (words == 1) {
+            long packed = key[0];
+            while (ids[index] >= 0 && keys[index] != packed) {
+                index = (index + 1) & mask;
+            }
+            return ids[index];
+        }
+        while (ids[index] >= 0 && !Arrays.equals(keys, index * words, (index + 1) * words, key, 0, words)) {
+            index = (index + 1) & mask;
+        }
+        return ids[index];
+    }
+
+    /**
+     * @return number of transitions
+     */
+    int size() {
+        return toState.length;
+    }
+
+    int toState(int transition) {
+        return toState[transition];
+    }
+
+    /**
+     * @return code of the symbol the transition writes on the given tape
+     */
+    int write(int transition, int tape) {
+        return actions[transition * numberOfTapes + tape] >>> 2;
+    }
+
+    TuringMachine.Movement move(int transition, int tape) {
+        return MOVEMENTS[actions[transition * numberOfTapes + tape] & 3];
+    }
+}
@@ -0,0 +1,19 @@
+package ab3.impl.SchachnerIsmailov;
+
+/**
+ * Runs a fixed machine on tapes, see {@link StepperCompiler}. Implementations are not thread-safe.
+ */
+interface Stepper {
+    /**
+     * Steps until the machine halts, is in the error state or the budget is used up. A state
+     * without a generated case (e.g. a negative one) stops the run without a step.
+     *
+     * @return the number of steps taken
+     */
+    long run(Tape[] tapes, int state, long maxSteps);
+
+    /**
+     * @return the state after the last {@link #run(Tape[], int, long)}
+     */
+    int getState();
+}
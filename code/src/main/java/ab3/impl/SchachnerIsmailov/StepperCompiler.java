@@ -0,0 +1,235 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Generates a {@link Stepper} specialized to one program.
+ * <p>
+ * The generated class has one method per state that switches over the symbol code(s) below the head(s)
+ * and performs the writes and moves of the matching transition inline, plus a loop that switches
+ * over the current state. Its source is compiled in memory with the system Java compiler and
+ * loaded as a hidden class. Programs with many states or transitions per state are not compiled,
+ * as the JIT would not compile the resulting huge methods.
+ */
+final class StepperCompiler {
+    static final int MAX_STATES = 512;
+    static final int MAX_TRANSITIONS_PER_STATE = 64;
+
+    private static final String PACKAGE = StepperCompiler.class.getPackageName();
+    private static final String CLASS_NAME = "GeneratedStepper";
+
+    private StepperCompiler() {
+    }
+
+    /**
+     * @return a factory for steppers of the program, null if the program is too large or the
+     * stepper could not be compiled (e.g. no compiler is available at runtime)
+     */
+    static Supplier<Stepper> compile(Program program) {
+        String source = generate(program);
+        if (source == null) {
+            return null;
+        }
+        byte[] bytes = compileSource(source);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Stepper.class));
+            return () -> {
+                try {
+                    return (Stepper) constructor.invokeExact();
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the source of the stepper, null if the program is too large or has wildcard transitions
+     */
+    static String generate(Program program) {
+        int numberOfTapes = program.getNumberOfTapes();
+        int numberOfStates = program.getNumberOfStates();
+        if (numberOfStates > MAX_STATES || numberOfTapes < 1 || program.getWildcards().size() > 0) {
+            return null;
+        }
+        Alphabet alphabet = program.getTapeAlphabet();
+        var byState = new TreeMap<Integer, List<Map.Entry<TransitionKey, TransitionValue>>>();
+        for (var entry : program.getTransitions().entrySet()) {
+            int fromState = entry.getKey().fromState();
+            if (fromState < 0 || fromState >= numberOfStates) {
+                return null;
+            }
+            byState.computeIfAbsent(fromState, s -> new ArrayList<>()).add(entry);
+        }
+        if (byState.values().stream().anyMatch(list -> list.size() > MAX_TRANSITIONS_PER_STATE)) {
+            return null;
+        }
+
+        var src = new StringBuilder();
+        src.append("package ").append(PACKAGE).append(";\n\n");
+        src.append("final class ").append(CLASS_NAME).append(" implements Stepper {\n");
+        src.append("    private static final int ERROR = ").append(numberOfStates).append(";\n");
+        src.append("    private int state;\n\n");
+        src.append("    public int getState() { return state; }\n\n");
+        src.append("    public long run(Tape[] tapes, int state, long maxSteps) {\n");
+        for (int i = 0; i < numberOfTapes; i++) {
+            src.append("        Tape t").append(i).append(" = tapes[").append(i).append("];\n");
+        }
+        src.append("        long steps = 0;\n");
+        src.append("        while (steps < maxSteps) {\n");
+        src.append("            switch (state) {\n");
+        for (int state = 0; state < numberOfStates; state++) {
+            if (state == program.getHaltingState()) {
+                continue;
+            }
+            src.append("                case ").append(state).append(": state = state").append(state).append('(');
+            appendTapes(src, numberOfTapes);
+            src.append("); break;\n");
+        }
+        src.append("                default: this.state = state; return steps;\n");
+        src.append("            }\n");
+        src.append("            steps++;\n");
+        src.append("        }\n");
+        src.append("        this.state = state;\n");
+        src.append("        return steps;\n");
+        src.append("    }\n");
+
+        for (int state = 0; state < numberOfStates; state++) {
+            if (state == program.getHaltingState()) {
+                continue;
+            }
+            src.append("\n    private static int state").append(state).append('(');
+            for (int i = 0; i < numberOfTapes; i++) {
+                src.append(i > 0 ? ", " : "").append("Tape t").append(i);
+            }
+            src.append(") {\n");
+            var transitions = byState.getOrDefault(state, List.of());
+            if (numberOfTapes == 1) {
+                src.append("        switch (t0.read()) {\n");
+                for (var entry : transitions) {
+                    src.append("            case ").append(alphabet.code(entry.getKey().readTape()[0])).append(":\n");
+                    appendTransition(src, alphabet, entry.getKey(), entry.getValue(), "                ");
+                }
+                src.append("            default: return ERROR;\n");
+                src.append("        }\n");
+            } else {
+                for (int i = 0; i < numberOfTapes; i++) {
+                    src.append("        int c").append(i).append(" = t").append(i).append(".read();\n");
+                }
+                for (var entry : transitions) {
+                    char[] read = entry.getKey().readTape();
+                    src.append("        if (");
+                    for (int i = 0; i < numberOfTapes; i++) {
+                        src.append(i > 0 ? " && " : "").append('c').append(i).append(" == ").append(alphabet.code(read[i]));
+                    }
+                    src.append(") {\n");
+                    appendTransition(src, alphabet, entry.getKey(), entry.getValue(), "            ");
+                    src.append("        }\n");
+                }
+                src.append("        return ERROR;\n");
+            }
+            src.append("    }\n");
+        }
+        src.append("}\n");
+        return src.toString();
+    }
+
+    private static void appendTapes(StringBuilder src, int numberOfTapes) {
+        for (int i = 0; i < numberOfTapes; i++) {
+            src.append(i > 0 ? ", " : "").append('t').append(i);
+        }
+    }
+
+    private static void appendTransition(StringBuilder src, Alphabet alphabet, TransitionKey key, TransitionValue value,
+                                         String indent) {
+        char[] read = key.readTape();
+        char[] write = value.writeTapes();
+        Movement[] move = value.moveTapes();
+        for (int i = 0; i < read.length; i++) {
+            // the cell already holds the symbol and is within the tracked bounds if it is not blank
+            if (write[i] != read[i]) {
+                src.append(indent).append('t').append(i).append(".write(").append(alphabet.code(write[i])).append(");\n");
+            }
+            if (move[i] == Movement.Left) {
+                src.append(indent).append('t').append(i).append(".moveLeft();\n");
+            } else if (move[i] == Movement.Right) {
+                src.append(indent).append('t').append(i).append(".moveRight();\n");
+            }
+        }
+        src.append(indent).append("return ").append(value.toState()).append(";\n");
+    }
+
+    /**
+     * @return the class file of the generated stepper, null if it could not be compiled
+     */
+    private static byte[] compileSource(String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return null;
+        }
+        var classFile = new ByteArrayOutputStream();
+        var sourceFile = new SimpleJavaFileObject(URI.create("string:///" + CLASS_NAME + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        JavaFileManager standard = compiler.getStandardFileManager(null, null, null);
+        var fileManager = new ForwardingJavaFileManager<>(standard) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                       FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("bytes:///" + className + ".class"), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return classFile;
+                    }
+                };
+            }
+        };
+        List<String> options = List.of("-classpath", classPath(), "-proc:none", "-g:none", "-nowarn");
+        Boolean success = compiler.getTask(null, fileManager, diagnostic -> { }, options, null, List.of(sourceFile)).call();
+        return Boolean.TRUE.equals(success) ? classFile.toByteArray() : null;
+    }
+
+    /**
+     * @return the class path of the application, including the location of this class
+     */
+    private static String classPath() {
+        String classPath = System.getProperty("java.class.path", "");
+        try {
+            var location = StepperCompiler.class.getProtectionDomain().getCodeSource().getLocation();
+            return Path.of(location.toURI()) + File.pathSeparator + classPath;
+        } catch (Exception e) {
+            return classPath;
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+
+/**
+ * Tape that grows amortized O(1) in both directions.
+ * <p>
+ * The cells hold the codes of an {@link Alphabet}, the blank being 0; symbols are only converted to
+ * characters at the {@link #getContent()} boundary. The codes are stored in a byte per cell (two for
+ * the rare alphabets of more than {@value Alphabet#BYTE_CODES} symbols); once the tape grows to
+ * {@link Cells#PACKED_MIN_CAPACITY} cells, they are bit-packed for small alphabets (see {@link Cells}). The format is widened when symbols are added to the alphabet of the tape. Off-heap tapes store
+ * their cells outside the Java heap, see {@link OffHeapCells}.
+ * <p>
+ * The cells are kept in a centered array; whenever the head leaves it, the array is doubled with
+ * headroom on both sides. Tapes too long for an array on the heap move to {@link OffHeapCells}.
+ * Positions are {@code long}s relative to the first input symbol (position 0), so the head may
+ * move to negative positions.
+ * The leftmost and rightmost non-blank positions are tracked incrementally, so the used part of
+ * the tape is known without scanning the array. When a bound is overwritten with a blank, it is
+ * moved inward to the next non-blank symbol on the next query; the cells count their non-blank
+ * symbols per chunk, so the search skips blank chunks and only reads the cells of the chunk holding
+ * the new bound (see {@link Cells#findNonBlank(long, long)}).
+ */
+public final class Tape implements TapeView {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** alphabet of the cells, extended by symbols written that are not part of it */
+    private Alphabet alphabet;
+    private Cells cells;
+    private final boolean offHeap;
+    /** capacity of {@link #cells} */
+    private long capacity;
+    /** array index of position 0 */
+    private long offset;
+    /** array index of the head */
+    private long index;
+    /** leftmost and rightmost non-blank position, leftmost > rightmost if none */
+    private long leftmost;
+    private long rightmost;
+    /** whether a bound was overwritten with a blank since the bounds were last trimmed */
+    private boolean boundsStale;
+    /** notified when the array grows, null if not profiled */
+    private Profiler profiler;
+
+    public Tape() {
+        this(Alphabet.BLANK, "");
+    }
+
+    public Tape(CharSequence input) {
+        this(Alphabet.BLANK, input);
+    }
+
+    /**
+     * Creates a tape containing the given input with the head on its first symbol. Input symbols
+     * outside the alphabet are appended to the alphabet of this tape.
+     *
+     * @throws IllegalArgumentException if the input has too many symbols outside the alphabet
+     */
+    public Tape(Alphabet alphabet, CharSequence input) throws IllegalArgumentException {
+        this(alphabet, input, false);
+    }
+
+    /**
+     * Creates a tape containing the given input with the head on its first symbol, see
+     * {@link #Tape(Alphabet, CharSequence)}.
+     *
+     * @param offHeap whether the cells are stored outside the Java heap
+     */
+    public Tape(Alphabet alphabet, CharSequence input, boolean offHeap) throws IllegalArgumentException {
+        this.offHeap = offHeap;
+        for (int i = 0; i < input.length(); i++) {
+            alphabet = alphabet.with(input.charAt(i));
+        }
+        this.alphabet = alphabet;
+        cells = Cells.create(alphabet.size(), Math.max(INITIAL_CAPACITY, 2L * input.length()), offHeap);
+        capacity = cells.capacity();
+        offset = index = (capacity - input.length()) / 2;
+        leftmost = 0;
+        rightmost = -1;
+        for (int i = 0; i < input.length(); i++) {
+            writeSymbol(input.charAt(i));
+            index++;
+        }
+        index = offset;
+    }
+
+    private Tape(Tape tape) {
+        alphabet = tape.alphabet;
+        offHeap = tape.offHeap;
+        cells = tape.cells.copy();
+        capacity = tape.capacity;
+        offset = tape.offset;
+        index = tape.index;
+        leftmost = tape.leftmost;
+        rightmost = tape.rightmost;
+        boundsStale = tape.boundsStale;
+    }
+
+    /**
+     * @return an independent copy of this tape, sharing the cells copy-on-write (see {@link Cells#copy()})
+     */
+    Tape copy() {
+        return new Tape(this);
+    }
+
+    /**
+     * @return whether the cells were requested to be stored outside the Java heap; tapes too long
+     * for the heap are moved there anyway
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    Cells getCells() {
+        return cells;
+    }
+
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Re-encodes the cells for the given alphabet, unless the alphabet of this tape already
+     * extends it. Symbols outside the given alphabet are appended to it.
+     */
+    void recode(Alphabet target) {
+        if (alphabet.extendsAlphabet(target)) {
+            return;
+        }
+        Alphabet recoded = target;
+        int[] translation = new int[alphabet.size()];
+        for (int code = 0; code < translation.length; code++) {
+            recoded = recoded.with(alphabet.symbol(code));
+            translation[code] = recoded.code(alphabet.symbol(code));
+        }
+        Cells recodedCells = recoded.size() > cells.maxSymbols() ? Cells.create(recoded.size(), capacity, offHeap) : cells;
+        for (long position = leftmost; position <= rightmost; position++) {
+            long i = offset + position;
+            recodedCells.set(i, translation[cells.get(i)]);
+        }
+        cells = recodedCells;
+        alphabet = recoded;
+    }
+
+    /**
+     * @return the code of the symbol below the head
+     */
+    public int read() {
+        return cells.get(index);
+    }
+
+    /**
+     * Writes the symbol with the given code below the head.
+     */
+    public void write(int code) {
+        cells.set(index, code);
+        if (code != 0) {
+            long position = index - offset;
+            if (rightmost < leftmost) {
+                leftmost = rightmost = position;
+            } else if (position < leftmost) {
+                leftmost = position;
+            } else if (position > rightmost) {
+                rightmost = position;
+            }
+        } else if (index - offset == leftmost || index - offset == rightmost) {
+            boundsStale = true;
+        }
+    }
+
+    /**
+     * @return the symbol below the head
+     */
+    public char readSymbol() {
+        return alphabet.symbol(read());
+    }
+
+    /**
+     * Writes the symbol below the head, appending it to the alphabet of this tape if necessary.
+     *
+     * @throws IllegalArgumentException if the symbol does not fit into the alphabet
+     */
+    public void writeSymbol(char symbol) throws IllegalArgumentException {
+        alphabet = alphabet.with(symbol);
+        if (alphabet.size() > cells.maxSymbols()) {
+            Cells widened = Cells.create(alphabet.size(), capacity, offHeap);
+            for (long position = leftmost; position <= rightmost; position++) {
+                widened.set(offset + position, cells.get(offset + position));
+            }
+            cells = widened;
+        }
+        write(alphabet.code(symbol));
+    }
+
+    public void move(TuringMachine.Movement move) {
+        switch (move) {
+            case Left:
+                moveLeft();
+                break;
+            case Right:
+                moveRight();
+                break;
+            case Stay:
+                // nothing to do
+                break;
+        }
+    }
+
+    public void moveLeft() {
+        if (--index < 0) {
+            grow(true);
+        }
+    }
+
+    public void moveRight() {
+        if (++index == capacity) {
+            grow(false);
+        }
+    }
+
+    /**
+     * Moves the head over the cells whose codes are in the given set, as a sweep transition would
+     * (see {@link DispatchTable}), but at most {@code limit} cells. The scan stops at the end of the
+     * array, so a sweep over blanks beyond it continues after the tape has grown.
+     *
+     * @param symbols for each of the first {@value Alphabet#BYTE_CODES} codes, whether the head moves
+     *                over it; the head stops at larger codes
+     * @return number of cells the head moved
+     */
+    long sweep(boolean[] symbols, boolean right, long limit) {
+        long from = index;
+        long cells = Math.min(limit, capacity);
+        long to = right ? Math.min(capacity, index + cells) : Math.max(-1, index - cells);
+        index = this.cells.scan(from, to, symbols);
+        long moved = Math.abs(index - from);
+        if (index == capacity) {
+            grow(false);
+        } else if (index < 0) {
+            grow(true);
+        }
+        return moved;
+    }
+
+    void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Moves the head to the given position.
+     */
+    void moveTo(long position) {
+        ensureCapacity(position, position);
+        index = offset + position;
+    }
+
+    /**
+     * Reads the codes of {@code codes.length} cells starting at the given position.
+     */
+    void read(long position, int[] codes) {
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = codeAt(position + i);
+        }
+    }
+
+    /**
+     * Writes the codes of {@code codes.length} cells starting at the given position, the head is not moved.
+     */
+    void write(long position, int[] codes) {
+        ensureCapacity(position, position + codes.length - 1);
+        long head = getHead();
+        index = offset + position;
+        for (int code : codes) {
+            write(code);
+            index++;
+        }
+        index = offset + head;
+    }
+
+    private void ensureCapacity(long from, long to) {
+        while (offset + from < 0 || offset + to >= capacity) {
+            grow(offset + from < 0);
+        }
+    }
+
+    /**
+     * Doubles the array and centers the current content in it, packing the cells if the tape
+     * reaches {@link Cells#PACKED_MIN_CAPACITY} and moving them off the heap if they no longer fit
+     * into an array.
+     *
+     * @param left whether the tape is expanded because the head left it on the left side
+     * @throws IllegalStateException if the tape would exceed {@link OffHeapCells#MAX_CAPACITY}, or
+     * the heap for alphabets that do not fit off the heap
+     */
+    private void grow(boolean left) throws IllegalStateException {
+        if (capacity * 2 > OffHeapCells.MAX_CAPACITY
+                || capacity * 2 > cells.maxCapacity() && alphabet.size() > Alphabet.BYTE_CODES) {
+            throw new IllegalStateException("tape too long");
+        }
+        if (profiler != null) {
+            profiler.tapeGrown(left);
+        }
+        long shift;
+        if (capacity * 2 > cells.maxCapacity()) {
+            shift = moveCells(new OffHeapCells(capacity * 2));
+        } else if (cells instanceof ByteCells && capacity * 2 >= Cells.PACKED_MIN_CAPACITY
+                && PackedCells.bitsPerCell(alphabet.size()) > 0) {
+            shift = moveCells(Cells.create(alphabet.size(), capacity * 2));
+        } else {
+            shift = capacity / 2;
+            cells.resize(capacity * 2, shift);
+        }
+        capacity = cells.capacity();
+        offset += shift;
+        index += shift;
+    }
+
+    /**
+     * Copies the content into the given larger cells, centered in them.
+     *
+     * @return the number of cells the content was shifted by
+     */
+    private long moveCells(Cells target) {
+        // the capacity of the target is rounded up to whole words or segments
+        long shift = (target.capacity() - capacity) / 2;
+        for (long position = leftmost; position <= rightmost; position++) {
+            target.set(offset + shift + position, cells.get(offset + position));
+        }
+        cells = target;
+        return shift;
+    }
+
+    /**
+     * @return position of the head, relative to the first input symbol
+     */
+    public long getHead() {
+        return index - offset;
+    }
+
+    /**
+     * @return the leftmost non-blank position
+     */
+    public long getLeftmost() {
+        trimBounds();
+        return leftmost;
+    }
+
+    /**
+     * @return the rightmost non-blank position, less than {@link #getLeftmost()} if the tape is blank
+     */
+    public long getRightmost() {
+        trimBounds();
+        return rightmost;
+    }
+
+    /**
+     * Moves bounds that were overwritten with blanks inward to the next non-blank symbols.
+     */
+    private void trimBounds() {
+        if (!boundsStale) {
+            return;
+        }
+        if (leftmost <= rightmost) {
+            leftmost = cells.findNonBlank(offset + leftmost, offset + rightmost + 1) - offset;
+        }
+        if (leftmost <= rightmost) {
+            rightmost = cells.findNonBlank(offset + rightmost, offset + leftmost - 1) - offset;
+        }
+        boundsStale = false;
+    }
+
+    @Override
+    public long start() {
+        return firstUsed();
+    }
+
+    @Override
+    public long length() {
+        return lastUsed() - firstUsed() + 1;
+    }
+
+    @Override
+    public long headPosition() {
+        return getHead();
+    }
+
+    @Override
+    public char symbolAt(long position) {
+        return alphabet.symbol(codeAt(position));
+    }
+
+    @Override
+    public void copyRange(long from, long to, char[] destination) throws IllegalArgumentException {
+        if (from > to || to - from > destination.length)
+            throw new IllegalArgumentException();
+        for (int i = 0; i < to - from; i++) {
+            destination[i] = alphabet.symbol(codeAt(from + i));
+        }
+    }
+
+    /**
+     * @return the leftmost non-blank position, the head position if there is none left of the head
+     */
+    long firstUsed() {
+        long head = getHead();
+        return getLeftmost() <= rightmost ? Math.min(leftmost, head) : head;
+    }
+
+    /**
+     * @return the rightmost non-blank position, the head position if there is none right of the head
+     */
+    long lastUsed() {
+        long head = getHead();
+        return getLeftmost() <= rightmost ? Math.max(rightmost, head) : head;
+    }
+
+    /**
+     * @return number of cells from the leftmost to the rightmost non-blank position, 0 if the tape is blank
+     */
+    public long getUsedLength() {
+        return Math.max(0, getRightmost() - leftmost + 1);
+    }
+
+    /**
+     * @return the non-blank part of the tape around the head, blanks as {@code null}
+     */
+    public TuringMachine.TapeContent getContent() {
+        long head = getHead();
+        return new TuringMachine.TapeContent(toCharacters(firstUsed(), head),
+                alphabet.character(read()),
+                toCharacters(head + 1, lastUsed() + 1));
+    }
+
+    /**
+     * @return the code of the symbol at the given position
+     */
+    int codeAt(long position) {
+        long i = offset + position;
+        return i >= 0 && i < capacity ? cells.get(i) : 0;
+    }
+
+    /**
+     * @return the symbols from position {@code from} (inclusive) to {@code to} (exclusive), blanks as {@code null}
+     * @throws ArithmeticException if there are more symbols than fit into an array
+     */
+    Character[] toCharacters(long from, long to) throws ArithmeticException {
+        Character[] result = new Character[Math.toIntExact(Math.max(0, to - from))];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = alphabet.character(codeAt(from + i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,48 @@
+package ab3.impl.SchachnerIsmailov;
+
+/**
+ * Read-only access to a tape without copying or boxing its cells.
+ * <p>
+ * Positions are relative to the first input symbol, blanks are reported as {@link Constants#SPACE}.
+ * The used part of the tape is the range from {@link #start()} of {@link #length()} cells: it spans
+ * all non-blank symbols and the head. A view obtained from a running machine is live, it reflects
+ * the steps taken afterwards and follows the tape when the machine is reset or gets a new input.
+ */
+public interface TapeView {
+    /**
+     * @return first position of the used part of the tape
+     */
+    long start();
+
+    /**
+     * @return number of cells in the used part of the tape, at least 1 for the cell below the head
+     */
+    long length();
+
+    /**
+     * @return position of the head
+     */
+    long headPosition();
+
+    /**
+     * @return the symbol at the given position, {@link Constants#SPACE} for a blank
+     */
+    char symbolAt(long position);
+
+    /**
+     * Copies the symbols from position {@code from} (inclusive) to {@code to} (exclusive) to the
+     * beginning of the destination.
+     *
+     * @throws IllegalArgumentException if {@code from > to} or the destination is too short
+     */
+    void copyRange(long from, long to, char[] destination) throws IllegalArgumentException;
+
+    /**
+     * Copies the {@code destination.length} symbols around the head, starting {@code before} cells
+     * left of it.
+     */
+    default void copyWindow(int before, char[] destination) {
+        long from = headPosition() - before;
+        copyRange(from, from + destination.length, destination);
+    }
+}
@@ -0,0 +1,161 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+
+import java.util.Arrays;
+
+/**
+ * Transitions in primitive arrays, loaded at once by {@link TuringMachineImpl#addTransitions(TransitionBatch)}.
+ * <p>
+ * Transition {@code i} of a batch for {@code k} tapes reads {@code read[i*k .. i*k+k-1]}, writes
+ * {@code write[i*k .. i*k+k-1]} and moves by {@code moves[i*k .. i*k+k-1]}; blanks are given as
+ * {@link Constants#SPACE}. The batch is not validated before it is loaded.
+ */
+public final class TransitionBatch {
+    private final int numberOfTapes;
+    private int size;
+    private int[] fromStates;
+    private int[] toStates;
+    private char[] read;
+    private char[] write;
+    private Movement[] moves;
+
+    /**
+     * Creates an empty batch.
+     *
+     * @param expectedSize number of transitions the arrays are sized for
+     */
+    public TransitionBatch(int numberOfTapes, int expectedSize) throws IllegalArgumentException {
+        if (numberOfTapes < 1 || expectedSize < 0)
+            throw new IllegalArgumentException();
+        this.numberOfTapes = numberOfTapes;
+        this.fromStates = new int[expectedSize];
+        this.toStates = new int[expectedSize];
+        this.read = new char[expectedSize * numberOfTapes];
+        this.write = new char[expectedSize * numberOfTapes];
+        this.moves = new Movement[expectedSize * numberOfTapes];
+    }
+
+    /**
+     * Creates a batch of the transitions in the given arrays, which are not copied.
+     *
+     * @throws IllegalArgumentException if the lengths of the arrays do not match
+     */
+    public static TransitionBatch of(int numberOfTapes, int[] fromStates, char[] read, int[] toStates, char[] write,
+                                     Movement[] moves) throws IllegalArgumentException {
+        int size = fromStates.length;
+        if (numberOfTapes < 1 || toStates.length != size || read.length != size * numberOfTapes
+                || write.length != size * numberOfTapes || moves.length != size * numberOfTapes)
+            throw new IllegalArgumentException();
+        TransitionBatch batch = new TransitionBatch(numberOfTapes, 0);
+        batch.size = size;
+        batch.fromStates = fromStates;
+        batch.toStates = toStates;
+        batch.read = read;
+        batch.write = write;
+        batch.moves = moves;
+        return batch;
+    }
+
+    /**
+     * Appends a transition of a single-tape machine, blanks given as {@link Constants#SPACE}.
+     */
+    public TransitionBatch add(int fromState, char read, int toState, char write, Movement move) throws IllegalArgumentException {
+        return add(fromState, new char[]{read}, toState, new char[]{write}, new Movement[]{move});
+    }
+
+    /**
+     * Appends a transition, blanks given as {@link Constants#SPACE}.
+     *
+     * @throws IllegalArgumentException if an array does not have one element per tape
+     */
+    public TransitionBatch add(int fromState, char[] read, int toState, char[] write, Movement[] move) throws IllegalArgumentException {
+        if (read.length != numberOfTapes || write.length != numberOfTapes || move.length != numberOfTapes)
+            throw new IllegalArgumentException();
+        if (size == fromStates.length) {
+            int capacity = Math.max(16, size * 2);
+            fromStates = Arrays.copyOf(fromStates, capacity);
+            toStates = Arrays.copyOf(toStates, capacity);
+            this.read = Arrays.copyOf(this.read, capacity * numberOfTapes);
+            this.write = Arrays.copyOf(this.write, capacity * numberOfTapes);
+            moves = Arrays.copyOf(moves, capacity * numberOfTapes);
+        }
+        fromStates[size] = fromState;
+        toStates[size] = toState;
+        System.arraycopy(read, 0, this.read, size * numberOfTapes, numberOfTapes);
+        System.arraycopy(write, 0, this.write, size * numberOfTapes, numberOfTapes);
+        System.arraycopy(move, 0, moves, size * numberOfTapes, numberOfTapes);
+        size++;
+        return this;
+    }
+
+    /**
+     * Appends all transitions of the given batch for the same number of tapes, copying them.
+     */
+    void addAll(TransitionBatch batch) {
+        int total = size + batch.size;
+        if (total > fromStates.length) {
+            int capacity = Math.max(total, size * 2);
+            fromStates = Arrays.copyOf(fromStates, capacity);
+            toStates = Arrays.copyOf(toStates, capacity);
+            read = Arrays.copyOf(read, capacity * numberOfTapes);
+            write = Arrays.copyOf(write, capacity * numberOfTapes);
+            moves = Arrays.copyOf(moves, capacity * numberOfTapes);
+        }
+        System.arraycopy(batch.fromStates, 0, fromStates, size, batch.size);
+        System.arraycopy(batch.toStates, 0, toStates, size, batch.size);
+        System.arraycopy(batch.read, 0, read, size * numberOfTapes, batch.size * numberOfTapes);
+        System.arraycopy(batch.write, 0, write, size * numberOfTapes, batch.size * numberOfTapes);
+        System.arraycopy(batch.moves, 0, moves, size * numberOfTapes, batch.size * numberOfTapes);
+        size = total;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getNumberOfTapes() {
+        return numberOfTapes;
+    }
+
+    int fromState(int i) {
+        return fromStates[i];
+    }
+
+    int toState(int i) {
+        return toStates[i];
+    }
+
+    /**
+     * @return the symbol transition {@code i} reads on the given tape
+     */
+    char read(int i, int tape) {
+        return read[i * numberOfTapes + tape];
+    }
+
+    /**
+     * @return the symbol transition {@code i} writes on the given tape
+     */
+    char write(int i, int tape) {
+        return write[i * numberOfTapes + tape];
+    }
+
+    Movement move(int i, int tape) {
+        return moves[i * numberOfTapes + tape];
+    }
+
+    /**
+     * @return the symbols read by transition {@code i}, as used in a {@link TransitionKey}
+     */
+    char[] readTape(int i) {
+        return Arrays.copyOfRange(read, i * numberOfTapes, (i + 1) * numberOfTapes);
+    }
+
+    char[] writeTapes(int i) {
+        return Arrays.copyOfRange(write, i * numberOfTapes, (i + 1) * numberOfTapes);
+    }
+
+    Movement[] moveTapes(int i) {
+        return Arrays.copyOfRange(moves, i * numberOfTapes, (i + 1) * numberOfTapes);
+    }
+}
@@ -1,7 +1,6 @@
 package ab3.impl.SchachnerIsmailov;
 
 import java.util.Arrays;
-import java.util.Objects;
 import static ab3.impl.SchachnerIsmailov.Constants.*;
 
 public record TransitionKey(int fromState, char... readTape) {
@@ -27,7 +26,8 @@ public record TransitionKey(int fromState, char... readTape) {
 
     @Override
     public int hashCode() {
-        int result = Objects.hash(fromState);
+        // same value as Objects.hash(fromState), but without boxing and a varargs array
+        int result = 31 + fromState;
         result = 31 * result + Arrays.hashCode(readTape);
         return result;
     }
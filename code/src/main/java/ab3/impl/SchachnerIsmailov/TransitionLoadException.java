@@ -0,0 +1,37 @@
+package ab3.impl.SchachnerIsmailov;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Thrown by {@link TuringMachineImpl#addTransitions(TransitionBatch)} with all invalid transitions of a batch.
+ */
+public class TransitionLoadException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+    /** number of errors listed in the message */
+    private static final int MESSAGE_ERRORS = 10;
+
+    /**
+     * @param index position of the transition in the batch, -1 if the error concerns the whole batch
+     * @param reason what is wrong with the transition
+     */
+    public record Error(int index, String reason) implements Serializable {
+        @Override
+        public String toString() {
+            return index < 0 ? reason : "transition " + index + ": " + reason;
+        }
+    }
+
+    private final List<Error> errors;
+
+    public TransitionLoadException(List<Error> errors) {
+        super(errors.size() + " invalid transition(s): " + errors.stream().limit(MESSAGE_ERRORS)
+                .map(Error::toString).collect(Collectors.joining("; ")) + (errors.size() > MESSAGE_ERRORS ? "; ..." : ""));
+        this.errors = List.copyOf(errors);
+    }
+
+    public List<Error> getErrors() {
+        return errors;
+    }
+}
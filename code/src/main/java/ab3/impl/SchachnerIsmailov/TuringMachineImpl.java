@@ -2,39 +2,414 @@ package ab3.impl.SchachnerIsmailov;
 
 import ab3.TuringMachine;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.function.Predicate;
 import static ab3.impl.SchachnerIsmailov.Constants.*;
 
 public class TuringMachineImpl implements TuringMachine {
 
-    private int currentState;
     private Set<Character> alphabet;
+    /** {@link #alphabet} interned into symbol codes */
+    private Alphabet tapeAlphabet = Alphabet.BLANK;
     private int numberOfStates;
     private int numberOfTapes;
     private int initialState;
     private int haltingState;
-    private StringBuilder[] tapes;
-    private int[] heads;
     private LinkedHashMap<TransitionKey, TransitionValue> transitions = new LinkedHashMap<>();
+    /**
+     * program whose transitions are copied into {@link #transitions} and {@link #alternatives} on
+     * first use, see {@link #of(Program)} and {@link #fork()}
+     */
+    private Program source;
+    /**
+     * transitions added by {@link #addTransitions(TransitionBatch)} after those in {@link #transitions},
+     * kept in flat arrays until the map is needed, null if there are none
+     */
+    private TransitionBatch loaded;
+    /** further transitions per key besides the one in {@link #transitions}, only in nondeterministic mode */
+    private LinkedHashMap<TransitionKey, List<TransitionValue>> alternatives = new LinkedHashMap<>();
+    private boolean nondeterministic;
+    /** frozen definition, null if the definition changed since the last freeze */
+    private Program program;
+    private Execution execution = new Execution(null, 0, 0);
+    /** block size for macro steps, 0 if disabled */
+    private int macroBlockSize;
+    private int macroCacheSize;
+    private boolean loopDetection;
+    private boolean codeGeneration;
+    private boolean sweeps = true;
+    private boolean earlyRejection;
+    private boolean offHeapTapes;
+    /** maximum size of the dispatch table in bytes */
+    private long tableMemoryLimit = DispatchTable.MAX_SLOTS * Integer.BYTES;
+    /** profiler of {@link #execution}, null if profiling is disabled */
+    private Profiler profiler;
+
+    /**
+     * Creates a machine with the definition of the given program, e.g. one loaded from a
+     * {@link MachineImage}. The program is used as it is; its transitions are only copied into the
+     * machine when the definition is changed.
+     */
+    public static TuringMachineImpl of(Program program) {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.alphabet = program.getAlphabet();
+        tm.tapeAlphabet = program.getTapeAlphabet();
+        tm.numberOfStates = program.getNumberOfStates();
+        tm.numberOfTapes = program.getNumberOfTapes();
+        tm.initialState = program.getInitialState();
+        tm.haltingState = program.getHaltingState();
+        tm.transitions = null;
+        tm.alternatives = null;
+        tm.source = program;
+        tm.program = program;
+        tm.execution = new Execution(null, program.getInitialState(), program.getNumberOfTapes());
+        return tm;
+    }
+
+    /**
+     * @return the transitions of the definition, copied from {@link #source} if necessary
+     */
+    private LinkedHashMap<TransitionKey, TransitionValue> transitions() {
+        if (transitions == null) {
+            transitions = new LinkedHashMap<>(source.getTransitions());
+            transitions.putAll(source.getWildcards().toMap());
+            alternatives = new LinkedHashMap<>();
+            source.getAlternatives().forEach((key, values) -> alternatives.put(key, new ArrayList<>(values)));
+            source = null;
+        }
+        if (loaded != null) {
+            reserve(loaded.size());
+            for (int i = 0; i < loaded.size(); i++) {
+                transitions.put(new TransitionKey(loaded.fromState(i), loaded.readTape(i)),
+                        new TransitionValue(loaded.toState(i), loaded.writeTapes(i), loaded.moveTapes(i)));
+            }
+            loaded = null;
+        }
+        return transitions;
+    }
+
+    /**
+     * Rebuilds {@link #transitions} once with room for the given number of further transitions if they
+     * would make it grow several times.
+     */
+    private void reserve(int additional) {
+        if (additional > transitions.size()) {
+            var resized = new LinkedHashMap<TransitionKey, TransitionValue>(capacityFor((long) transitions.size() + additional));
+            resized.putAll(transitions);
+            transitions = resized;
+        }
+    }
+
+    /**
+     * @return the initial capacity of a hash map holding the given number of entries without rehashing
+     */
+    private static int capacityFor(long entries) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, entries * 4 / 3 + 1);
+    }
+
+    /**
+     * @return the alternative transitions of the definition, copied from {@link #source} if necessary
+     */
+    private LinkedHashMap<TransitionKey, List<TransitionValue>> alternatives() {
+        transitions();
+        return alternatives;
+    }
 
     @Override
     public void reset() {
-        setNumberOfTapes(numberOfTapes);
-        currentState = initialState;
+        execution().reset();
+    }
+
+    /**
+     * Freezes the current definition into an immutable {@link Program}. Called implicitly before
+     * the first step after the definition of the machine changed.
+     *
+     * @return the program, shared with this machine until its definition changes
+     */
+    public Program freeze() {
+        if (program == null && loaded != null && source == null && alternatives.isEmpty()) {
+            // compiles the loaded transitions without moving them into the transition map
+            TransitionBatch batch = loaded;
+            if (!transitions.isEmpty()) {
+                batch = new TransitionBatch(numberOfTapes, transitions.size() + loaded.size());
+                for (var entry : transitions.entrySet()) {
+                    batch.add(entry.getKey().fromState(), entry.getKey().readTape(), entry.getValue().toState(),
+                            entry.getValue().writeTapes(), entry.getValue().moveTapes());
+                }
+                batch.addAll(loaded);
+            }
+            DispatchTable table = DispatchTable.compile(tapeAlphabet, numberOfStates, batch, tableMemoryLimit / Integer.BYTES);
+            if (table != null) {
+                program = new Program(alphabet, tapeAlphabet, numberOfStates, numberOfTapes, initialState, haltingState, table);
+            }
+        }
+        if (program == null) {
+            program = new Program(alphabet, tapeAlphabet, numberOfStates, numberOfTapes, initialState, haltingState, transitions(), alternatives(),
+                    tableMemoryLimit / Integer.BYTES);
+        }
+        return program;
+    }
+
+    /**
+     * Compiles the transitions into a {@link DispatchTable}, see {@link #freeze()}.
+     *
+     * @return true if the machine runs on the dispatch table, false if it is too large and
+     * falls back to a {@link SparseTable}
+     */
+    public boolean compile() {
+        return freeze().getDispatchTable() != null;
+    }
+
+    /**
+     * @return the execution of this machine, running on the current definition
+     */
+    private Execution execution() {
+        Program current = freeze();
+        if (execution.getProgram() != current) {
+            execution.setProgram(current);
+        }
+        return execution;
+    }
+
+    /**
+     * Immutable snapshot of the execution settings of a machine, see {@link #settings()}.
+     */
+    record Settings(int macroBlockSize, int macroCacheSize, boolean loopDetection, boolean codeGeneration,
+                    boolean sweeps, boolean earlyRejection, boolean offHeapTapes) {
+        /**
+         * Applies the settings to the execution.
+         */
+        Execution configure(Execution execution) {
+            if (macroBlockSize > 0) {
+                execution.setMacroSteps(macroBlockSize, macroCacheSize);
+            }
+            execution.setLoopDetection(loopDetection);
+            execution.setCodeGeneration(codeGeneration);
+            execution.setSweeps(sweeps);
+            execution.setEarlyRejection(earlyRejection);
+            execution.setOffHeapTapes(offHeapTapes);
+            return execution;
+        }
+    }
+
+    /**
+     * @return the current macro step, loop detection and other execution settings of this machine,
+     * not affected by later changes; safe to apply from other threads
+     */
+    Settings settings() {
+        return new Settings(macroBlockSize, macroCacheSize, loopDetection, codeGeneration, sweeps, earlyRejection,
+                offHeapTapes);
+    }
+
+    /**
+     * Applies the current execution settings of this machine to the execution, see {@link #settings()}.
+     */
+    Execution configure(Execution execution) {
+        return settings().configure(execution);
+    }
+
+    /**
+     * Sets the memory limit of the dense {@link DispatchTable}, 4 bytes per combination of state and
+     * symbols read; machines exceeding it run on a {@link SparseTable}. The default is 16 MiB.
+     *
+     * @throws IllegalArgumentException if the limit is negative
+     */
+    public void setTableMemoryLimit(long bytes) throws IllegalArgumentException {
+        if (bytes < 0)
+            throw new IllegalArgumentException();
+        if (bytes != tableMemoryLimit) {
+            tableMemoryLimit = bytes;
+            program = null;
+        }
+    }
+
+    /**
+     * Allows several transitions for the same state and symbols; they are explored by a
+     * {@link NondeterministicSearch} of the frozen program, while stepping follows the transition
+     * added first. Without the mode, a transition for the same state and symbols replaces the earlier
+     * one. Disabling the mode removes all but the first transition per key.
+     */
+    public void setNondeterministic(boolean enabled) {
+        this.nondeterministic = enabled;
+        if (!enabled && !alternatives().isEmpty()) {
+            alternatives.clear();
+            program = null;
+        }
+    }
+
+    /**
+     * Enables macro steps for {@link #run(long)}, see {@link Execution#setMacroSteps(int, int)}.
+     *
+     * @param blockSize number of cells per block, 0 to disable macro steps
+     * @param cacheSize maximum number of cached macro steps
+     */
+    public void setMacroSteps(int blockSize, int cacheSize) throws IllegalArgumentException {
+        execution.setMacroSteps(blockSize, cacheSize);
+        this.macroBlockSize = blockSize;
+        this.macroCacheSize = cacheSize;
+    }
+
+    /**
+     * Enables or disables a generated stepper for {@link #run(long)}, see {@link Execution#setCodeGeneration(boolean)}.
+     */
+    public void setCodeGeneration(boolean enabled) {
+        this.codeGeneration = enabled;
+        execution.setCodeGeneration(enabled);
+    }
+
+    /**
+     * Enables or disables skipping sweeps in {@link #run(long)}, see {@link Execution#setSweeps(boolean)}.
+     */
+    public void setSweeps(boolean enabled) {
+        this.sweeps = enabled;
+        execution.setSweeps(enabled);
+    }
+
+    /**
+     * Enables or disables stopping {@link #run(long)} as soon as the halting state became unreachable,
+     * see {@link Execution#setEarlyRejection(boolean)}; {@link #doNextStep()} is not affected.
+     */
+    public void setEarlyRejection(boolean enabled) {
+        this.earlyRejection = enabled;
+        execution.setEarlyRejection(enabled);
+    }
+
+    /**
+     * @return whether the halting state can still be reached from the current state, see {@link Reachability}
+     */
+    public boolean canHalt() {
+        return execution().canHalt();
+    }
+
+    /**
+     * Stores the tapes created by the next {@link #setInput(String)} or {@link #reset()} outside the
+     * Java heap, see {@link Execution#setOffHeapTapes(boolean)}.
+     */
+    public void setOffHeapTapes(boolean enabled) {
+        this.offHeapTapes = enabled;
+        execution.setOffHeapTapes(enabled);
+    }
+
+    /**
+     * Enables or disables the detection of infinite loops, see {@link Execution#setLoopDetection(boolean)}.
+     */
+    public void setLoopDetection(boolean enabled) {
+        this.loopDetection = enabled;
+        execution.setLoopDetection(enabled);
+    }
+
+    /**
+     * Enables or disables profiling, see {@link Profiler}. The counters start from zero whenever
+     * profiling is enabled or the definition of the machine changes.
+     */
+    public void setProfiling(boolean enabled) {
+        profiler = enabled ? new Profiler() : null;
+        execution.setProfiler(profiler);
+    }
+
+    /**
+     * @return the profiler of this machine, null if profiling is disabled
+     */
+    public Profiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Replaces the definition by its minimized form, see {@link Minimizer}: transitions that can never
+     * fire and unreachable states are dropped, equivalent states merged and the states renumbered
+     * densely, including the initial and the halting state. The machine continues in the counterpart
+     * of its current state, or in the initial state if the current state was dropped.
+     *
+     * @return the size of the definition before and after
+     */
+    public Minimizer.Report minimize() {
+        int current = execution.getCurrentState();
+        boolean error = current >= numberOfStates;
+        Minimizer minimizer = Minimizer.minimize(freeze());
+        numberOfStates = minimizer.getNumberOfStates();
+        initialState = minimizer.mapState(initialState);
+        haltingState = minimizer.mapState(haltingState);
+        transitions = new LinkedHashMap<>(minimizer.getTransitions());
+        source = null;
+        loaded = null;
+        alternatives = new LinkedHashMap<>();
+        minimizer.getAlternatives().forEach((key, values) -> alternatives.put(key, new ArrayList<>(values)));
+        program = null;
+        int state = minimizer.mapState(current);
+        execution.setCurrentState(error ? numberOfStates : state >= 0 ? state : initialState);
+        return minimizer.getReport();
+    }
+
+    /**
+     * @return the current configuration of this machine, see {@link Execution#snapshot()}
+     */
+    public Snapshot snapshot() {
+        return execution().snapshot();
+    }
+
+    /**
+     * Returns to the configuration of the given snapshot, see {@link Execution#restore(Snapshot)}.
+     *
+     * @throws IllegalArgumentException if the snapshot has another number of tapes
+     */
+    public void restore(Snapshot snapshot) throws IllegalArgumentException {
+        execution().restore(snapshot);
+    }
+
+    /**
+     * @return an independent machine with the same definition and settings in the current
+     * configuration, sharing the tapes copy-on-write (see {@link Execution#fork()}); it is not profiled.
+     * The fork shares the frozen definition and only copies the transitions when it changes them.
+     */
+    public TuringMachineImpl fork() {
+        TuringMachineImpl fork = new TuringMachineImpl();
+        fork.alphabet = alphabet;
+        fork.tapeAlphabet = tapeAlphabet;
+        fork.numberOfStates = numberOfStates;
+        fork.numberOfTapes = numberOfTapes;
+        fork.initialState = initialState;
+        fork.haltingState = haltingState;
+        fork.transitions = null;
+        fork.alternatives = null;
+        fork.source = fork.program = freeze();
+        fork.nondeterministic = nondeterministic;
+        fork.macroBlockSize = macroBlockSize;
+        fork.macroCacheSize = macroCacheSize;
+        fork.loopDetection = loopDetection;
+        fork.codeGeneration = codeGeneration;
+        fork.sweeps = sweeps;
+        fork.earlyRejection = earlyRejection;
+        fork.offHeapTapes = offHeapTapes;
+        fork.tableMemoryLimit = tableMemoryLimit;
+        fork.execution = execution().fork();
+        return fork;
+    }
+
+    /**
+     * @return the cycle the machine is in, counted from the last {@link #setInput(String)} or
+     * {@link #reset()}; null if none was found (yet)
+     */
+    public Cycle getDetectedCycle() {
+        return execution.getDetectedCycle();
     }
 
     @Override
     public int getCurrentState() throws IllegalStateException {
-        return currentState;
+        return execution.getCurrentState();
     }
 
     @Override
     public void setAlphabet(Set<Character> alphabet) throws IllegalArgumentException {
+        if (alphabet != null && alphabet.contains(ANY))
+            throw new IllegalArgumentException();
+        this.tapeAlphabet = Alphabet.of(alphabet);
         this.alphabet = alphabet;
+        program = null;
     }
 
     @Override
@@ -60,7 +435,82 @@ public class TuringMachineImpl implements TuringMachine {
         checkAlphabet(read);
         checkAlphabet(write);
         var key = new TransitionKey(fromState, wrapSpace(read));
-        transitions.put(key, new TransitionValue(toState, wrapSpace(write), move));
+        var value = new TransitionValue(toState, wrapSpace(write), move.clone());
+        if (nondeterministic && transitions().containsKey(key)) {
+            if (WildcardIndex.isWildcard(key))
+                throw new IllegalArgumentException(); // wildcard transitions are always deterministic
+            alternatives().computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+        } else {
+            // replaces an earlier transition for the same state and symbols
+            transitions().put(key, value);
+        }
+        program = null;
+    }
+
+    /**
+     * Adds all transitions of the batch, or none of them if any is invalid.
+     * <p>
+     * The batch is validated in a single pass that collects every error instead of stopping at the first.
+     * As with {@link #addTransition(int, Character[], int, Character[], Movement[])}, a transition for a
+     * state and symbols that already have one, in the machine or earlier in the batch, replaces it, or
+     * becomes an alternative if the machine is {@linkplain #setNondeterministic(boolean) nondeterministic};
+     * there a repeated wildcard transition is an error. In deterministic mode the transitions stay in flat
+     * arrays that {@link #freeze()} compiles straight into the {@link DispatchTable}; they are only merged
+     * into the transition map, sized once for all of them, when the definition needs it.
+     *
+     * @throws TransitionLoadException with all invalid transitions of the batch
+     */
+    public void addTransitions(TransitionBatch batch) throws TransitionLoadException {
+        List<TransitionLoadException.Error> errors = new ArrayList<>();
+        if (batch.getNumberOfTapes() != numberOfTapes) {
+            errors.add(new TransitionLoadException.Error(-1, "batch has " + batch.getNumberOfTapes()
+                    + " tapes, machine has " + numberOfTapes));
+            throw new TransitionLoadException(errors);
+        }
+        int size = batch.size();
+        Set<TransitionKey> wildcards = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            int fromState = batch.fromState(i);
+            int toState = batch.toState(i);
+            if (fromState < 0 || fromState >= numberOfStates || fromState == haltingState)
+                errors.add(new TransitionLoadException.Error(i, "invalid from state " + fromState));
+            if (toState < 0 || toState >= numberOfStates)
+                errors.add(new TransitionLoadException.Error(i, "invalid to state " + toState));
+            boolean wildcard = false;
+            for (int tape = 0; tape < numberOfTapes; tape++) {
+                wildcard |= batch.read(i, tape) == ANY;
+                if (batch.read(i, tape) != ANY && !tapeAlphabet.contains(batch.read(i, tape)))
+                    errors.add(new TransitionLoadException.Error(i, "symbol '" + batch.read(i, tape) + "' read on tape " + tape + " not in alphabet"));
+                if (batch.write(i, tape) != ANY && !tapeAlphabet.contains(batch.write(i, tape)))
+                    errors.add(new TransitionLoadException.Error(i, "symbol '" + batch.write(i, tape) + "' written on tape " + tape + " not in alphabet"));
+                if (batch.move(i, tape) == null)
+                    errors.add(new TransitionLoadException.Error(i, "no movement on tape " + tape));
+            }
+            if (nondeterministic && wildcard) {
+                var key = new TransitionKey(fromState, batch.readTape(i));
+                if (!wildcards.add(key) || transitions().containsKey(key))
+                    errors.add(new TransitionLoadException.Error(i, "duplicate wildcard transition for state " + fromState));
+            }
+        }
+        if (!errors.isEmpty())
+            throw new TransitionLoadException(errors);
+
+        if (!nondeterministic) {
+            // the caller may reuse the arrays of the batch
+            if (loaded == null)
+                loaded = new TransitionBatch(numberOfTapes, size);
+            loaded.addAll(batch);
+        } else {
+            var transitions = transitions();
+            reserve(size);
+            for (int i = 0; i < size; i++) {
+                var key = new TransitionKey(batch.fromState(i), batch.readTape(i));
+                var value = new TransitionValue(batch.toState(i), batch.writeTapes(i), batch.moveTapes(i));
+                if (transitions.putIfAbsent(key, value) != null)
+                    alternatives().computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+            }
+        }
+        program = null;
     }
 
     char[] wrapSpace(Character[] src) {
@@ -70,13 +520,10 @@ public class TuringMachineImpl implements TuringMachine {
         }
         return chars;
     }
-    Character unwrapSpace(char src) {
-        return src == SPACE ? null :src;
-    }
 
     void checkAlphabet(Character... symbols) throws IllegalArgumentException {
         for (Character c : symbols) {
-            if (c != null && !alphabet.contains(c)) {
+            if (c != null && c != ANY && !tapeAlphabet.contains(c)) {
                 throw new IllegalArgumentException();
             }
         }
@@ -97,6 +544,7 @@ public class TuringMachineImpl implements TuringMachine {
         if (numStates < 2)
             throw new IllegalArgumentException();
         this.numberOfStates = numStates;
+        program = null;
     }
 
     @Override
@@ -104,10 +552,9 @@ public class TuringMachineImpl implements TuringMachine {
         if (numTapes < 1)
             throw new IllegalArgumentException();
         this.numberOfTapes = numTapes;
-        this.tapes = IntStream.range(0, numTapes)
-                .mapToObj(i -> new StringBuilder().append(SPACE))
-                .toArray(StringBuilder[]::new);
-        this.heads = new int[numTapes];
+        program = null;
+        execution = configure(new Execution(null, execution.getCurrentState(), numTapes));
+        execution.setProfiler(profiler);
     }
 
     @Override
@@ -115,95 +562,62 @@ public class TuringMachineImpl implements TuringMachine {
         if(haltingState >= numberOfStates)
             throw new IllegalArgumentException();
         this.haltingState = haltingState;
+        program = null;
     }
 
     @Override
     public void setInitialState(int initialState) throws IllegalArgumentException {
         this.initialState = initialState;
-        currentState = initialState;
+        program = null;
+        execution.setCurrentState(initialState);
     }
 
     @Override
     public void setInput(String content) {
-        this.tapes[0] = new StringBuilder(content).append(SPACE);
-        this.heads[0] = 0;
+        execution().setInput(content);
     }
 
-    Character[] str2TapeContent(CharSequence content) {
-        return content.chars().mapToObj(c -> unwrapSpace((char)c)).toArray(Character[]::new);
+    @Override
+    public void doNextStep() throws IllegalStateException {
+        execution().doNextStep();
     }
 
     @Override
-    public void doNextStep() throws IllegalStateException {
-        if(isInHaltingState() || isInErrorState())
-            throw new IllegalStateException();
+    public RunResult run(long maxSteps) throws IllegalArgumentException {
+        return execution().run(maxSteps);
+    }
 
-        char[] read = new char[numberOfTapes];
-        for(int i = 0; i < numberOfTapes; i++) {
-            read[i] = tapes[i].charAt(heads[i]);
-        }
-        TransitionKey tKey = new TransitionKey(currentState, read);
-        TransitionValue tValue = transitions.get(tKey);
-        if (tValue == null) {
-            currentState = numberOfStates; ///< error state
-        } else {
-            currentState = tValue.toState();
-
-            for (int i = 0; i < numberOfTapes; i++) {
-                var write = tValue.writeTapes()[i];
-                var move = tValue.moveTapes()[i];
-                StringBuilder tape = tapes[i];
-                int head = heads[i];
-                tape.setCharAt(head, write);
-                switch (move) {
-                    case Left:
-                        if (head == 0) {
-                            tape.insert(0, SPACE);
-                        } else {
-                            heads[i]--;
-                        }
-                        break;
-                    case Right:
-                        if (head == tape.length() - 1) {
-                            tape.append(SPACE);
-                        }
-                        heads[i]++;
-                        break;
-                    case Stay:
-                        // nothing to do
-                        break;
-                }
-            }
-        }
+    @Override
+    public RunResult runUntil(Predicate<? super TuringMachine> condition, long maxSteps) throws IllegalArgumentException {
+        Objects.requireNonNull(condition);
+        return execution().runUntil(e -> condition.test(this), maxSteps);
     }
 
     @Override
     public boolean isInHaltingState() {
-        return currentState == haltingState;
+        return execution.getCurrentState() == haltingState;
     }
 
     @Override
     public boolean isInErrorState() {
-        return currentState >= numberOfStates;
+        return execution.getCurrentState() >= numberOfStates;
     }
 
     @Override
     public List<TapeContent> getTapeContents() {
-        if(isInErrorState())
-            return null;
-        return IntStream.range(0, numberOfTapes)
-                .mapToObj(this::getTapeContent)
-                .collect(Collectors.toList());
+        return execution().getTapeContents();
     }
 
     @Override
     public TapeContent getTapeContent(int tape) {
-        if (isInErrorState())
-            return null;
-        StringBuilder t = tapes[tape];
-        int h = heads[tape];
-        return new TapeContent(str2TapeContent(h > 0 ? t.substring(0, h).stripLeading() : ""),
-                unwrapSpace(t.charAt(h)),
-                str2TapeContent(t.substring(h + 1).stripTrailing()));
+        return execution().getTapeContent(tape);
+    }
+
+    /**
+     * @return a live, read-only view of the given tape, null if the machine is in the error state,
+     * see {@link Execution#getTapeView(int)}; it is tied to the current number of tapes
+     */
+    public TapeView getTapeView(int tape) {
+        return execution().getTapeView(tape);
     }
 }
@@ -0,0 +1,168 @@
+package ab3.impl.SchachnerIsmailov;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ab3.impl.SchachnerIsmailov.Constants.*;
+
+/**
+ * Transitions that read {@link Constants#ANY} on some tapes, with a per-tape index for finding the
+ * transition that matches the symbols read.
+ * <p>
+ * A k-tape machine that only looks at some of its tapes needs a single wildcard transition instead of
+ * one per combination of the symbols on the other tapes. If several wildcard transitions of a state
+ * match, the most specific one wins, i.e. the one with the fewest wildcards; among equally specific
+ * ones the one added first. Transitions without wildcards always take precedence (see {@link Program}).
+ * <p>
+ * The wildcard transitions of a state are numbered in the order they are tried. For every tape and
+ * symbol code, the index holds a bit set of the transitions that accept the code on that tape; a lookup
+ * intersects the sets of the symbols read and takes the lowest bit, so it costs k word operations per
+ * 64 transitions of the state.
+ */
+final class WildcardIndex {
+    static final WildcardIndex EMPTY = new WildcardIndex(Alphabet.BLANK, 0, 1, Map.of());
+
+    private final Alphabet alphabet;
+    private final int numberOfTapes;
+    /** the wildcard transitions in the order they were added */
+    private final Map<TransitionKey, TransitionValue> transitions;
+    private final TransitionKey[] keys;
+    private final TransitionValue[] values;
+    /** state -> wildcard ids in the order they are tried, null if the state has none */
+    private final int[][] order;
+    /**
+     * state -> tape -> code -> bit set over {@link #order}; code {@code |Γ|} stands for symbols outside
+     * the alphabet, which only wildcards accept
+     */
+    private final long[][][][] masks;
+
+    /**
+     * @param wildcards transitions whose keys contain {@link Constants#ANY}, in the order they were added
+     */
+    WildcardIndex(Alphabet alphabet, int numberOfStates, int numberOfTapes, Map<TransitionKey, TransitionValue> wildcards) {
+        this.alphabet = alphabet;
+        this.numberOfTapes = numberOfTapes;
+        this.transitions = Collections.unmodifiableMap(new LinkedHashMap<>(wildcards));
+        this.keys = wildcards.keySet().toArray(new TransitionKey[0]);
+        this.values = wildcards.values().toArray(new TransitionValue[0]);
+        this.order = new int[numberOfStates][];
+        this.masks = new long[numberOfStates][][][];
+
+        List<List<Integer>> byState = new ArrayList<>(Collections.nCopies(numberOfStates, null));
+        for (int id = 0; id < keys.length; id++) {
+            int state = keys[id].fromState();
+            if (state < 0 || state >= numberOfStates) {
+                continue; // never matched, like a transition map entry of a state that does not exist
+            }
+            if (byState.get(state) == null) {
+                byState.set(state, new ArrayList<>());
+            }
+            byState.get(state).add(id);
+        }
+        for (int state = 0; state < numberOfStates; state++) {
+            List<Integer> ids = byState.get(state);
+            if (ids == null) {
+                continue;
+            }
+            // stable sort: equally specific transitions stay in the order they were added
+            ids.sort(Comparator.comparingInt(id -> wildcards(keys[id])));
+            order[state] = ids.stream().mapToInt(Integer::intValue).toArray();
+            int words = (ids.size() + 63) >>> 6;
+            masks[state] = new long[numberOfTapes][alphabet.size() + 1][words];
+            for (int position = 0; position < ids.size(); position++) {
+                char[] read = keys[ids.get(position)].readTape();
+                for (int t = 0; t < numberOfTapes; t++) {
+                    for (int code = 0; code <= alphabet.size(); code++) {
+                        if (read[t] == ANY || code < alphabet.size() && alphabet.symbol(code) == read[t]) {
+                            masks[state][t][code][position >>> 6] |= 1L << position;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static int wildcards(TransitionKey key) {
+        int count = 0;
+        for (char c : key.readTape()) {
+            if (c == ANY) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return whether the key reads {@link Constants#ANY} on some tape
+     */
+    static boolean isWildcard(TransitionKey key) {
+        return wildcards(key) > 0;
+    }
+
+    /**
+     * @return number of wildcard transitions
+     */
+    int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return whether the state has wildcard transitions
+     */
+    boolean hasWildcards(int state) {
+        return state >= 0 && state < order.length && order[state] != null;
+    }
+
+    /**
+     * @param read the symbols read on the tapes
+     * @return the id of the wildcard transition matching the symbols read in the given state, -1 if none matches
+     */
+    int match(int state, char[] read) {
+        if (!hasWildcards(state)) {
+            return -1;
+        }
+        long[][][] stateMasks = masks[state];
+        for (int word = 0; word < stateMasks[0][0].length; word++) {
+            long bits = -1L;
+            for (int t = 0; t < numberOfTapes && bits != 0; t++) {
+                int code = alphabet.code(read[t]);
+                bits &= stateMasks[t][code < 0 ? alphabet.size() : code][word];
+            }
+            if (bits != 0) {
+                return order[state][(word << 6) + Long.numberOfTrailingZeros(bits)];
+            }
+        }
+        return -1;
+    }
+
+    TransitionKey key(int id) {
+        return keys[id];
+    }
+
+    /**
+     * @return the transition with the given id, {@link Constants#ANY} written on the tapes it keeps
+     */
+    TransitionValue value(int id) {
+        return values[id];
+    }
+
+    /**
+     * @return the wildcard transitions in the order they were added
+     */
+    Map<TransitionKey, TransitionValue> toMap() {
+        return transitions;
+    }
+
+    /**
+     * @return the transition with the given id as applied to the symbols read: the kept tapes write what was read
+     */
+    TransitionValue resolve(int id, char[] read) {
+        char[] write = values[id].writeTapes().clone();
+        for (int t = 0; t < write.length; t++) {
+            if (write[t] == ANY) write[t] = read[t];
+        }
+        return new TransitionValue(values[id].toState(), write, values[id].moveTapes());
+    }
+}
@@ -0,0 +1,72 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.RunResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchEvaluatorTest {
+    @Test
+    void testEvaluateAll() {
+        TuringMachineImpl tm = TuringMachineImplTest.getMachineScanRight();
+        List<String> inputs = IntStream.range(0, 1000)
+                .mapToObj(i -> "a".repeat(i % 50) + (i % 7 == 0 ? "b" : ""))
+                .collect(Collectors.toList());
+
+        List<BatchEvaluator.Result> results = new BatchEvaluator(tm).evaluateAll(inputs, 40).toList();
+
+        assertEquals(inputs.size(), results.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            BatchEvaluator.Result result = results.get(i);
+            assertEquals(i, result.index());
+            tm.reset();
+            tm.setInput(inputs.get(i));
+            assertEquals(tm.run(40), result.result());
+            assertEquals(tm.getTapeContents(), result.tapeContents());
+        }
+    }
+
+    @Test
+    void testEvaluateAllUnordered() {
+        TuringMachineImpl tm = TuringMachineImplTest.getMachineScanRight();
+        List<String> inputs = List.of("aaaa", "ab", "", "aaaaaaaaaaaaaaaaaaaa");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<BatchEvaluator.Result> results = new BatchEvaluator(tm, executor)
+                    .evaluateAllUnordered(inputs, 10)
+                    .sorted(Comparator.comparingInt(BatchEvaluator.Result::index))
+                    .toList();
+
+            assertEquals(new RunResult(RunResult.Outcome.Halted, 5), results.get(0).result());
+            assertEquals(new RunResult(RunResult.Outcome.Error, 2), results.get(1).result());
+            assertNull(results.get(1).tapeContents());
+            assertEquals(new RunResult(RunResult.Outcome.Halted, 1), results.get(2).result());
+            assertEquals(new RunResult(RunResult.Outcome.BudgetExhausted, 10), results.get(3).result());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testSettingsCapturedOnCreation() {
+        TuringMachineImpl tm = ReachabilityTest.getMachineRejectB();
+        tm.setEarlyRejection(true);
+        List<Runnable> tasks = new ArrayList<>();
+        BatchEvaluator evaluator = new BatchEvaluator(tm, tasks::add);
+        Stream<BatchEvaluator.Result> results = evaluator.evaluateAll(List.of("aaab"), 1000);
+
+        // changed while the batch is queued
+        tm.setEarlyRejection(false);
+        tasks.forEach(Runnable::run);
+        assertEquals(new RunResult(RunResult.Outcome.CannotAccept, 4), results.findFirst().orElseThrow().result());
+    }
+}
@@ -0,0 +1,73 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispatchTableTest {
+    @Test
+    void testLookup() {
+        var transitions = new LinkedHashMap<TransitionKey, TransitionValue>();
+        transitions.put(new TransitionKey(1, 'a', ' '),
+                new TransitionValue(2, new char[]{'b', 'a'}, new Movement[]{Movement.Right, Movement.Left}));
+        Alphabet alphabet = Alphabet.of(Set.of('a', 'b'));
+        DispatchTable table = DispatchTable.compile(alphabet, 3, 2, transitions);
+
+        assertNotNull(table);
+        assertEquals(3, table.getNumberOfSymbols());
+        int slot = (1 * 3 + alphabet.code(' ')) * 3 + alphabet.code('a');
+        int transition = table.transition(slot);
+        assertEquals(2, table.toState(transition));
+        assertEquals(alphabet.code('b'), table.write(transition, 0));
+        assertEquals(Movement.Left, table.move(transition, 1));
+        assertEquals(-1, table.transition(slot + 1));
+    }
+
+    @Test
+    void testSweeps() {
+        var transitions = new LinkedHashMap<TransitionKey, TransitionValue>();
+        transitions.put(new TransitionKey(1, 'a', ' '),
+                new TransitionValue(1, new char[]{'a', ' '}, new Movement[]{Movement.Right, Movement.Stay}));
+        transitions.put(new TransitionKey(1, 'b', ' '),
+                new TransitionValue(1, new char[]{'b', ' '}, new Movement[]{Movement.Right, Movement.Stay}));
+        transitions.put(new TransitionKey(1, ' ', 'a'),
+                new TransitionValue(1, new char[]{' ', 'a'}, new Movement[]{Movement.Left, Movement.Stay}));
+        transitions.put(new TransitionKey(1, ' ', ' '),
+                new TransitionValue(1, new char[]{' ', 'a'}, new Movement[]{Movement.Right, Movement.Stay}));
+        transitions.put(new TransitionKey(1, 'a', 'a'),
+                new TransitionValue(2, new char[]{'a', 'a'}, new Movement[]{Movement.Right, Movement.Stay}));
+        transitions.put(new TransitionKey(2, 'a', 'b'),
+                new TransitionValue(2, new char[]{'a', 'b'}, new Movement[]{Movement.Right, Movement.Right}));
+        Alphabet alphabet = Alphabet.of(Set.of('a', 'b'));
+        DispatchTable table = DispatchTable.compile(alphabet, 3, 2, transitions);
+
+        assertNotNull(table);
+        assertEquals(0, table.sweepTape(0));
+        assertSame(table.sweepSymbols(0), table.sweepSymbols(1));
+        assertTrue(table.sweepSymbols(0)[alphabet.code('a')]);
+        assertTrue(table.sweepSymbols(0)[alphabet.code('b')]);
+        assertFalse(table.sweepSymbols(0)[0]);
+        assertEquals(0, table.sweepTape(2));
+        assertNotSame(table.sweepSymbols(0), table.sweepSymbols(2));
+        for (int transition = 3; transition < 6; transition++) {
+            assertEquals(-1, table.sweepTape(transition));
+            assertNull(table.sweepSymbols(transition));
+        }
+    }
+
+    @Test
+    void testTooLarge() {
+        assertNull(DispatchTable.compile(Alphabet.of(Set.of('a', 'b', 'c')), 1000, 12, new LinkedHashMap<>()));
+    }
+
+    @Test
+    void testSymbolOutsideAlphabet() {
+        var transitions = new LinkedHashMap<TransitionKey, TransitionValue>();
+        transitions.put(new TransitionKey(1, 'c'), new TransitionValue(0, new char[]{'a'}, new Movement[]{Movement.Stay}));
+        assertNull(DispatchTable.compile(Alphabet.of(Set.of('a')), 2, 1, transitions));
+    }
+}
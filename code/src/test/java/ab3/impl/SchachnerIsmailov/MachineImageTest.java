@@ -0,0 +1,107 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MachineImageTest {
+    private static byte[] image(Program program) throws IOException {
+        var out = new ByteArrayOutputStream();
+        MachineImage.write(program, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        TuringMachineImpl original = MacroEngineTest.getBusyBeaver();
+        Program loaded = MachineImage.load(ByteBuffer.wrap(image(original.freeze())));
+
+        assertNotNull(loaded.getDispatchTable());
+        assertEquals(original.freeze().getAlphabet(), loaded.getAlphabet());
+        assertEquals(original.freeze().getTapeAlphabet(), loaded.getTapeAlphabet());
+        assertEquals(original.freeze().getTransitions().toString(), loaded.getTransitions().toString());
+
+        TuringMachineImpl tm = TuringMachineImpl.of(loaded);
+        original.setInput("");
+        tm.setInput("");
+        assertEquals(original.run(100_000), tm.run(100_000));
+        assertEquals(original.getTapeContent(0), tm.getTapeContent(0));
+    }
+
+    @Test
+    void testFile() throws IOException {
+        TuringMachineImpl original = new TuringMachineImpl();
+        original.setAlphabet(Set.of('a', 'b'));
+        original.setNumberOfTapes(2);
+        original.setNumberOfStates(3);
+        original.setHaltingState(0);
+        original.setInitialState(1);
+        original.addTransition(1, new Character[]{'a', null}, 1, new Character[]{'b', 'a'}, new Movement[]{Movement.Right, Movement.Right});
+        original.addTransition(1, new Character[]{null, null}, 2, new Character[]{null, null}, new Movement[]{Movement.Left, Movement.Left});
+        original.addTransition(2, new Character[]{'b', 'a'}, 0, new Character[]{'a', 'b'}, new Movement[]{Movement.Stay, Movement.Stay});
+        Path file = Files.createTempFile("machine", ".tmim");
+        try {
+            MachineImage.write(original.freeze(), file);
+            TuringMachineImpl tm = TuringMachineImpl.of(MachineImage.load(file));
+            original.setInput("aaa");
+            tm.setInput("aaa");
+            assertEquals(original.run(100), tm.run(100));
+            assertEquals(original.getTapeContents(), tm.getTapeContents());
+
+            tm.addTransition(2, new Character[]{'a', 'a'}, 0, new Character[]{'a', 'a'}, new Movement[]{Movement.Stay, Movement.Stay});
+            assertEquals(4, tm.freeze().getTransitions().size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testInvalidImage() throws IOException {
+        byte[] image = image(TuringMachineImplTest.getMachineScanRight().freeze());
+        assertThrows(IllegalArgumentException.class, () -> MachineImage.load(ByteBuffer.wrap(image, 0, image.length - 1)));
+        byte[] version = image.clone();
+        version[7]++;
+        assertThrows(IllegalArgumentException.class, () -> MachineImage.load(ByteBuffer.wrap(version)));
+        byte[] movement = image.clone();
+        movement[movement.length - 1] = 3;
+        assertThrows(IllegalArgumentException.class, () -> MachineImage.load(ByteBuffer.wrap(movement)));
+        assertThrows(IllegalArgumentException.class,
+                () -> image(NondeterministicSearchTest.getMachineGuessAb().freeze()));
+    }
+
+    @Test
+    void testInvalidInitialState() throws IOException {
+        byte[] image = image(TuringMachineImplTest.getMachineScanRight().freeze());
+        // header: magic, version, numberOfStates, numberOfTapes, initialState
+        for (int initialState : new int[]{-1, 2}) {
+            byte[] corrupt = image.clone();
+            ByteBuffer.wrap(corrupt).putInt(16, initialState);
+            assertThrows(IllegalArgumentException.class, () -> MachineImage.load(ByteBuffer.wrap(corrupt)));
+        }
+    }
+
+    @Test
+    void testTableMemoryLimit() throws IOException {
+        TuringMachineImpl original = MacroEngineTest.getBusyBeaver();
+        byte[] image = image(original.freeze());
+        original.setTableMemoryLimit(4);
+        Program loaded = MachineImage.load(ByteBuffer.wrap(image), 4);
+
+        assertNull(original.freeze().getDispatchTable());
+        assertNull(loaded.getDispatchTable());
+        TuringMachineImpl tm = TuringMachineImpl.of(loaded);
+        original.setInput("");
+        tm.setInput("");
+        assertEquals(original.run(100_000), tm.run(100_000));
+        assertEquals(original.getTapeContent(0), tm.getTapeContent(0));
+        assertThrows(IllegalArgumentException.class, () -> MachineImage.load(ByteBuffer.wrap(image), -1));
+    }
+}
@@ -0,0 +1,98 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+import ab3.TuringMachine.RunResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MacroEngineTest {
+    /**
+     * 5-state busy beaver champion, halts after 47,176,870 steps.
+     */
+    static TuringMachineImpl getBusyBeaver() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('1'));
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(6);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        tm.addTransition(1, null, 2, '1', Movement.Right);
+        tm.addTransition(1, '1', 3, '1', Movement.Left);
+        tm.addTransition(2, null, 3, '1', Movement.Right);
+        tm.addTransition(2, '1', 2, '1', Movement.Right);
+        tm.addTransition(3, null, 4, '1', Movement.Right);
+        tm.addTransition(3, '1', 5, null, Movement.Left);
+        tm.addTransition(4, null, 1, '1', Movement.Left);
+        tm.addTransition(4, '1', 4, '1', Movement.Left);
+        tm.addTransition(5, null, 0, '1', Movement.Right);
+        tm.addTransition(5, '1', 1, null, Movement.Left);
+        return tm;
+    }
+
+    @Test
+    void testBusyBeaver() {
+        TuringMachineImpl plain = getBusyBeaver();
+        TuringMachineImpl macro = getBusyBeaver();
+        macro.setMacroSteps(16, 1 << 12);
+        plain.reset();
+        plain.setInput("");
+        macro.reset();
+        macro.setInput("");
+
+        RunResult result = macro.run(Long.MAX_VALUE);
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 47_176_870), result);
+        assertEquals(result, plain.run(Long.MAX_VALUE));
+        assertEquals(plain.getTapeContents(), macro.getTapeContents());
+    }
+
+    @Test
+    void testRandomMachines() {
+        Random random = new Random(42);
+        for (int n = 0; n < 500; n++) {
+            long seed = random.nextLong();
+            int blockSize = 1 + random.nextInt(6);
+            TuringMachineImpl plain = getRandomMachine(new Random(seed));
+            TuringMachineImpl macro = getRandomMachine(new Random(seed));
+            macro.setMacroSteps(blockSize, 8);
+            String input = random.ints(random.nextInt(12), 0, 3)
+                    .mapToObj(i -> String.valueOf("ab ".charAt(i)))
+                    .reduce("", String::concat);
+            plain.reset();
+            plain.setInput(input);
+            macro.reset();
+            macro.setInput(input);
+
+            for (int run = 0; run < 4; run++) {
+                long budget = random.nextInt(500);
+                RunResult expected = plain.run(budget);
+                assertEquals(expected, macro.run(budget), "seed " + seed);
+                assertEquals(plain.getCurrentState(), macro.getCurrentState(), "seed " + seed);
+                assertEquals(plain.getTapeContents(), macro.getTapeContents(), "seed " + seed);
+            }
+        }
+    }
+
+    private static TuringMachineImpl getRandomMachine(Random random) {
+        Character[] symbols = {'a', 'b', null};
+        int states = 2 + random.nextInt(5);
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a', 'b'));
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(states);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        for (int state = 1; state < states; state++) {
+            for (Character read : symbols) {
+                if (random.nextInt(10) > 0) {
+                    tm.addTransition(state, read, random.nextInt(states), symbols[random.nextInt(3)],
+                            Movement.values()[random.nextInt(3)]);
+                }
+            }
+        }
+        return tm;
+    }
+}
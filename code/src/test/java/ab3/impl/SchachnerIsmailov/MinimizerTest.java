@@ -0,0 +1,123 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+import ab3.TuringMachine.RunResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinimizerTest {
+    /**
+     * Moves right over the a's in two equivalent states and halts on the first blank; state 4 is
+     * unreachable and the transition reading b on tape 1 can never fire.
+     */
+    private static TuringMachineImpl getMachineRedundant() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a', 'b'));
+        tm.setNumberOfTapes(2);
+        tm.setNumberOfStates(5);
+        tm.setHaltingState(3);
+        tm.setInitialState(1);
+        Movement[] right = {Movement.Right, Movement.Stay};
+        Movement[] stay = {Movement.Stay, Movement.Stay};
+        tm.addTransition(1, new Character[]{'a', null}, 2, new Character[]{'a', null}, right);
+        tm.addTransition(2, new Character[]{'a', null}, 1, new Character[]{'a', null}, right);
+        tm.addTransition(1, new Character[]{null, null}, 3, new Character[]{null, 'a'}, stay);
+        tm.addTransition(2, new Character[]{null, null}, 3, new Character[]{null, 'a'}, stay);
+        tm.addTransition(1, new Character[]{'a', 'b'}, 0, new Character[]{'b', 'b'}, right);
+        tm.addTransition(0, new Character[]{'a', null}, 3, new Character[]{'a', null}, stay);
+        tm.addTransition(4, new Character[]{'a', null}, 1, new Character[]{'a', null}, stay);
+        return tm;
+    }
+
+    @Test
+    void testMinimize() {
+        TuringMachineImpl original = getMachineRedundant();
+        TuringMachineImpl minimized = getMachineRedundant();
+        Minimizer.Report report = minimized.minimize();
+
+        assertEquals(new Minimizer.Report(5, 2, 7, 2), report);
+        assertEquals(2, minimized.getNumberOfStates());
+        assertEquals(0, minimized.freeze().getInitialState());
+        assertEquals(1, minimized.freeze().getHaltingState());
+        for (String input : new String[]{"", "a", "aaaa", "aab"}) {
+            original.reset();
+            original.setInput(input);
+            minimized.reset();
+            minimized.setInput(input);
+            RunResult expected = original.run(100);
+            assertEquals(expected, minimized.run(100));
+            assertEquals(original.isInHaltingState(), minimized.isInHaltingState());
+            assertEquals(original.getTapeContents(), minimized.getTapeContents());
+        }
+    }
+
+    @Test
+    void testRandomMachines() {
+        Random random = new Random(23);
+        for (int n = 0; n < 200; n++) {
+            long seed = random.nextLong();
+            int tapes = 1 + random.nextInt(2);
+            TuringMachineImpl original = getRandomMachine(new Random(seed), tapes);
+            TuringMachineImpl minimized = getRandomMachine(new Random(seed), tapes);
+            Minimizer.Report report = minimized.minimize();
+            assertTrue(report.statesAfter() <= report.statesBefore(), "seed " + seed);
+            assertTrue(report.transitionsAfter() <= report.transitionsBefore(), "seed " + seed);
+
+            for (int run = 0; run < 3; run++) {
+                String input = random.ints(random.nextInt(12), 0, 3)
+                        .mapToObj(i -> String.valueOf("ab ".charAt(i)))
+                        .reduce("", String::concat);
+                original.reset();
+                original.setInput(input);
+                minimized.reset();
+                minimized.setInput(input);
+                long budget = random.nextInt(500);
+                assertEquals(original.run(budget), minimized.run(budget), "seed " + seed);
+                assertEquals(original.isInHaltingState(), minimized.isInHaltingState(), "seed " + seed);
+                assertEquals(original.isInErrorState(), minimized.isInErrorState(), "seed " + seed);
+                assertEquals(original.getTapeContents(), minimized.getTapeContents(), "seed " + seed);
+            }
+        }
+    }
+
+    /**
+     * @return a random machine with many states, most of them equivalent or unreachable
+     */
+    private static TuringMachineImpl getRandomMachine(Random random, int tapes) {
+        Character[] symbols = {'a', 'b', null};
+        int states = 4 + random.nextInt(12);
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a', 'b'));
+        tm.setNumberOfTapes(tapes);
+        tm.setNumberOfStates(states);
+        int haltingState = random.nextInt(states);
+        tm.setHaltingState(haltingState);
+        tm.setInitialState(random.nextInt(states));
+        for (int state = 0; state < states; state++) {
+            if (state == haltingState) {
+                continue;
+            }
+            // few distinct behaviors, so that many states are equivalent
+            Random behavior = new Random(random.nextInt(3));
+            for (int i = 0; i < (tapes == 1 ? 3 : 9); i++) {
+                if (behavior.nextInt(5) > 0) {
+                    Character[] read = new Character[tapes];
+                    Character[] write = new Character[tapes];
+                    Movement[] move = new Movement[tapes];
+                    for (int t = 0; t < tapes; t++) {
+                        read[t] = symbols[(t == 0 ? i : i / 3) % 3];
+                        write[t] = symbols[behavior.nextInt(3)];
+                        move[t] = Movement.values()[behavior.nextInt(3)];
+                    }
+                    int target = behavior.nextInt(4) == 0 ? haltingState : random.nextInt(states);
+                    tm.addTransition(state, read, target, write, move);
+                }
+            }
+        }
+        return tm;
+    }
+}
@@ -0,0 +1,118 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+import ab3.TuringMachine.RunResult;
+import ab3.impl.SchachnerIsmailov.NondeterministicSearch.Result;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NondeterministicSearchTest {
+    /**
+     * Guesses the position of an "ab" in the input and halts if the guess was right.
+     */
+    static TuringMachineImpl getMachineGuessAb() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setNondeterministic(true);
+        tm.setAlphabet(Set.of('a', 'b'));
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(3);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        tm.addTransition(1, 'a', 1, 'a', Movement.Right);
+        tm.addTransition(1, 'b', 1, 'b', Movement.Right);
+        tm.addTransition(1, 'a', 2, 'a', Movement.Right);
+        tm.addTransition(2, 'b', 0, 'b', Movement.Stay);
+        return tm;
+    }
+
+    @Test
+    void testAccept() {
+        TuringMachineImpl tm = getMachineGuessAb();
+        NondeterministicSearch search = new NondeterministicSearch(tm.freeze());
+        Result result = search.search("bbab", 100);
+
+        assertEquals(Result.Outcome.Accepted, result.outcome());
+        assertEquals(4, result.depth());
+        tm.restore(result.accepting());
+        assertTrue(tm.isInHaltingState());
+        assertEquals(3, tm.getTapeContent(0).getLeftOfHead().length);
+        assertEquals(4, search.getStatistics().depth());
+    }
+
+    @Test
+    void testReject() {
+        NondeterministicSearch search = new NondeterministicSearch(getMachineGuessAb().freeze());
+
+        assertEquals(Result.Outcome.Rejected, search.search("bbba", 100).outcome());
+        assertEquals(Result.Outcome.DepthExhausted, search.search("bbbbbab", 3).outcome());
+    }
+
+    @Test
+    void testDeduplication() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setNondeterministic(true);
+        tm.setAlphabet(Set.of('a'));
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(2);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        tm.addTransition(1, 'a', 1, 'a', Movement.Stay);
+        tm.addTransition(1, 'a', 1, 'a', Movement.Right);
+        tm.addTransition(1, null, 1, null, Movement.Left);
+        NondeterministicSearch search = new NondeterministicSearch(tm.freeze());
+
+        assertEquals(Result.Outcome.Rejected, search.search("aaa", 100).outcome());
+        NondeterministicSearch.Statistics statistics = search.getStatistics();
+        assertEquals(4, statistics.configurations());
+        assertTrue(statistics.duplicates() > 0);
+        assertTrue(statistics.dedupHitRate() > 0 && statistics.dedupHitRate() < 1);
+    }
+
+    @Test
+    void testMemoryLimit() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setNondeterministic(true);
+        tm.setAlphabet(Set.of('a', 'b'));
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(2);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        tm.addTransition(1, null, 1, 'a', Movement.Right);
+        tm.addTransition(1, null, 1, 'b', Movement.Right);
+        NondeterministicSearch search = new NondeterministicSearch(tm.freeze());
+        search.setMaxConfigurations(1000);
+
+        assertEquals(Result.Outcome.MemoryExhausted, search.search("", 100).outcome());
+        assertTrue(search.getStatistics().configurations() > 1000);
+        assertTrue(search.getStatistics().peakFrontier() <= 512);
+        assertThrows(IllegalArgumentException.class, () -> search.setMaxConfigurations(0));
+    }
+
+    @Test
+    void testDeterministicMode() {
+        TuringMachineImpl tm = getMachineGuessAb();
+        assertTrue(tm.freeze().isNondeterministic());
+        tm.setInput("ab");
+        assertEquals(RunResult.Outcome.Error, tm.run(100).outcome());
+
+        tm.setNondeterministic(false);
+        assertFalse(tm.freeze().isNondeterministic());
+        assertEquals(Result.Outcome.Rejected, new NondeterministicSearch(tm.freeze()).search("ab", 100).outcome());
+    }
+
+    @Test
+    void testFork() {
+        TuringMachineImpl tm = getMachineGuessAb();
+        TuringMachineImpl fork = tm.fork();
+        assertSame(tm.freeze(), fork.freeze());
+
+        // the fork copies the shared definition, including the alternatives, when it changes it
+        fork.addTransition(2, 'a', 0, 'a', Movement.Stay);
+        assertTrue(fork.freeze().isNondeterministic());
+        assertEquals(Result.Outcome.Accepted, new NondeterministicSearch(fork.freeze()).search("aa", 100).outcome());
+        assertEquals(Result.Outcome.Rejected, new NondeterministicSearch(tm.freeze()).search("aa", 100).outcome());
+    }
+}
@@ -0,0 +1,47 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfilerTest {
+    @Test
+    void testCounters() {
+        TuringMachineImpl tm = TuringMachineImplTest.getMachineScanRight();
+        tm.setProfiling(true);
+        tm.reset();
+        tm.setInput("aaaa");
+        tm.run(100);
+
+        Profiler profiler = tm.getProfiler();
+        assertEquals(5, profiler.getSteps());
+        assertArrayEquals(new long[]{0, 5}, profiler.getStateHits());
+        assertArrayEquals(new long[]{4, 1}, profiler.getTransitionHits());
+        assertTrue(profiler.report(10).contains("(1, a)"));
+
+        profiler.reset();
+        assertEquals(0, profiler.getSteps());
+        assertArrayEquals(new long[]{0, 0}, profiler.getTransitionHits());
+    }
+
+    @Test
+    void testTapeGrowth() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a'));
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(2);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        tm.addTransition(1, null, 1, 'a', Movement.Right);
+        tm.setProfiling(true);
+        tm.reset();
+        tm.setInput("");
+        tm.run(1000);
+
+        assertEquals(0, tm.getProfiler().getLeftGrowths());
+        assertTrue(tm.getProfiler().getRightGrowths() > 0);
+    }
+}
@@ -0,0 +1,40 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+import ab3.TuringMachine.RunResult;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProgramTest {
+    @Test
+    void testExecutionsAreIndependent() {
+        Program program = TuringMachineImplTest.getMachineScanRight().freeze();
+        Execution first = program.newExecution();
+        Execution second = program.newExecution();
+        first.setInput("aaaa");
+        second.setInput("ab");
+
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 5), first.run(100));
+        assertEquals(new RunResult(RunResult.Outcome.Error, 2), second.run(100));
+        assertEquals(4, first.getTapeContent(0).getLeftOfHead().length);
+        assertNull(second.getTapeContents());
+    }
+
+    @Test
+    void testFreezeIsImmutable() {
+        TuringMachineImpl tm = TuringMachineImplTest.getMachineScanRight();
+        Program program = tm.freeze();
+        assertSame(program, tm.freeze());
+
+        tm.addTransition(1, 'b', 1, 'b', Movement.Right);
+        assertNotSame(program, tm.freeze());
+
+        Execution execution = program.newExecution();
+        execution.setInput("ab");
+        assertEquals(new RunResult(RunResult.Outcome.Error, 2), execution.run(100));
+        tm.reset();
+        tm.setInput("ab");
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 3), tm.run(100));
+    }
+}
@@ -0,0 +1,142 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+import ab3.TuringMachine.RunResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static ab3.impl.SchachnerIsmailov.Constants.ANY;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReachabilityTest {
+    /**
+     * Halts at the end of a word of a's; a b leads to state 2, which scans right forever.
+     */
+    static TuringMachineImpl getMachineRejectB() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a', 'b'));
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(5);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        tm.addTransition(1, 'a', 1, 'a', Movement.Right);
+        tm.addTransition(1, 'b', 2, 'b', Movement.Right);
+        tm.addTransition(1, null, 0, null, Movement.Stay);
+        tm.addTransition(2, 'a', 2, 'a', Movement.Right);
+        tm.addTransition(2, 'b', 2, 'b', Movement.Right);
+        tm.addTransition(2, null, 3, 'a', Movement.Right);
+        tm.addTransition(3, null, 2, 'b', Movement.Left);
+        tm.addTransition(4, 'a', 0, 'a', Movement.Stay);
+        return tm;
+    }
+
+    @Test
+    void testAnalysis() {
+        Reachability reachability = getMachineRejectB().freeze().getReachability();
+
+        assertTrue(reachability.canHalt(0));
+        assertTrue(reachability.canHalt(1));
+        assertFalse(reachability.canHalt(2));
+        assertFalse(reachability.canHalt(3));
+        assertTrue(reachability.canHalt(4));
+        assertFalse(reachability.canHalt(5));
+        assertFalse(reachability.canHalt(-1));
+
+        assertFalse(reachability.isIncomplete(0));
+        assertFalse(reachability.isIncomplete(1));
+        assertFalse(reachability.isIncomplete(2));
+        assertTrue(reachability.isIncomplete(3));
+        assertTrue(reachability.isIncomplete(4));
+        assertArrayEquals(new int[]{2, 3}, reachability.getDoomedStates());
+    }
+
+    @Test
+    void testTransitionMap() {
+        TuringMachineImpl tm = getMachineRejectB();
+        tm.setNumberOfStates((int) DispatchTable.MAX_SLOTS);
+        assertFalse(tm.compile());
+        Reachability reachability = tm.freeze().getReachability();
+        assertTrue(reachability.canHalt(1));
+        assertFalse(reachability.canHalt(2));
+        assertFalse(reachability.canHalt(3));
+        assertTrue(reachability.canHalt(4));
+        assertFalse(reachability.canHalt(5));
+        assertFalse(reachability.isIncomplete(2));
+        assertTrue(reachability.isIncomplete(3));
+        assertTrue(reachability.isIncomplete(4));
+    }
+
+    /**
+     * Two tapes; the second only ever holds blanks and x's, so only those need transitions there.
+     */
+    @Test
+    void testWildcardsAndReadableSymbols() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a', 'b', 'x'));
+        tm.setNumberOfTapes(2);
+        tm.setNumberOfStates(5);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        Movement[] stay = {Movement.Stay, Movement.Stay};
+        // 1: everything by a wildcard
+        tm.addTransition(1, new Character[]{ANY, ANY}, 2, new Character[]{ANY, 'x'}, stay);
+        // 2: every input symbol, but only the blank on the second tape
+        tm.addTransition(2, new Character[]{ANY, null}, 3, new Character[]{ANY, ANY}, stay);
+        // never fires, so its b does not count as readable
+        tm.addTransition(2, new Character[]{'a', 'b'}, 0, new Character[]{ANY, 'b'}, stay);
+        // 3: blank and x on the second tape, b never being written there
+        tm.addTransition(3, new Character[]{ANY, null}, 4, new Character[]{ANY, ANY}, stay);
+        tm.addTransition(3, new Character[]{'a', 'x'}, 0, new Character[]{ANY, ANY}, stay);
+        tm.addTransition(3, new Character[]{'b', 'x'}, 0, new Character[]{ANY, ANY}, stay);
+        tm.addTransition(3, new Character[]{'x', 'x'}, 0, new Character[]{ANY, ANY}, stay);
+        tm.addTransition(3, new Character[]{null, ANY}, 0, new Character[]{ANY, ANY}, stay);
+        // 4: the wildcard leaves out x on the input tape
+        tm.addTransition(4, new Character[]{'a', ANY}, 0, new Character[]{ANY, ANY}, stay);
+        tm.addTransition(4, new Character[]{'b', ANY}, 0, new Character[]{ANY, ANY}, stay);
+        tm.addTransition(4, new Character[]{null, ANY}, 0, new Character[]{ANY, ANY}, stay);
+
+        assertTrue(tm.compile());
+        Reachability table = tm.freeze().getReachability();
+        tm.setNumberOfStates((int) DispatchTable.MAX_SLOTS);
+        assertFalse(tm.compile());
+        Reachability map = tm.freeze().getReachability();
+        for (Reachability reachability : new Reachability[]{table, map}) {
+            assertFalse(reachability.isIncomplete(0));
+            assertFalse(reachability.isIncomplete(1));
+            assertTrue(reachability.isIncomplete(2));
+            assertFalse(reachability.isIncomplete(3));
+            assertTrue(reachability.isIncomplete(4));
+        }
+    }
+
+    @Test
+    void testEarlyRejection() {
+        TuringMachineImpl tm = getMachineRejectB();
+        tm.setEarlyRejection(true);
+        tm.reset();
+        tm.setInput("aaab");
+        assertTrue(tm.canHalt());
+        assertEquals(new RunResult(RunResult.Outcome.CannotAccept, 4), tm.run(1_000_000));
+        assertFalse(tm.canHalt());
+        assertEquals(2, tm.getCurrentState());
+
+        // stepping is not stopped early
+        tm.reset();
+        tm.setInput("aaab");
+        for (int i = 0; i < 10; i++) {
+            tm.doNextStep();
+        }
+        assertFalse(tm.canHalt());
+        assertFalse(tm.isInErrorState());
+
+        tm.reset();
+        tm.setInput("aaa");
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 4), tm.run(1_000_000));
+
+        tm.setEarlyRejection(false);
+        tm.reset();
+        tm.setInput("aaab");
+        assertEquals(new RunResult(RunResult.Outcome.BudgetExhausted, 1000), tm.run(1000));
+    }
+}
@@ -0,0 +1,118 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+import ab3.TuringMachine.RunResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SparseTableTest {
+    /**
+     * @return a random machine over a, b and c, some combinations of state and symbols without transition
+     */
+    private static TuringMachineImpl getRandomMachine(Random random, int tapes) {
+        Character[] symbols = {'a', 'b', 'c', null};
+        int states = 2 + random.nextInt(5);
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a', 'b', 'c'));
+        tm.setNumberOfTapes(tapes);
+        tm.setNumberOfStates(states);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        int combinations = (int) Math.pow(symbols.length, tapes);
+        for (int state = 1; state < states; state++) {
+            for (int combination = 0; combination < combinations; combination++) {
+                if (random.nextInt(8) == 0) {
+                    continue;
+                }
+                Character[] read = new Character[tapes];
+                Character[] write = new Character[tapes];
+                Movement[] move = new Movement[tapes];
+                for (int i = 0, rest = combination; i < tapes; i++, rest /= symbols.length) {
+                    read[i] = symbols[rest % symbols.length];
+                    write[i] = symbols[random.nextInt(symbols.length)];
+                    move[i] = Movement.values()[random.nextInt(3)];
+                }
+                tm.addTransition(state, read, random.nextInt(20) == 0 ? 0 : 1 + random.nextInt(states - 1), write, move);
+            }
+        }
+        return tm;
+    }
+
+    @Test
+    void testRandomMachines() {
+        Random random = new Random(5);
+        for (int n = 0; n < 100; n++) {
+            long seed = random.nextLong();
+            int tapes = 1 + random.nextInt(3);
+            TuringMachineImpl dense = getRandomMachine(new Random(seed), tapes);
+            TuringMachineImpl sparse = getRandomMachine(new Random(seed), tapes);
+            sparse.setTableMemoryLimit(0);
+            assertTrue(dense.compile());
+            assertFalse(sparse.compile());
+            assertNotNull(sparse.freeze().getSparseTable());
+            dense.setProfiling(true);
+            sparse.setProfiling(true);
+
+            StringBuilder input = new StringBuilder();
+            for (int i = random.nextInt(20); i > 0; i--) {
+                input.append("abcd".charAt(random.nextInt(4)));
+            }
+            dense.reset();
+            dense.setInput(input.toString());
+            sparse.reset();
+            sparse.setInput(input.toString());
+            RunResult expected = dense.run(500);
+            assertEquals(expected, sparse.run(500), "seed " + seed);
+            assertEquals(dense.getCurrentState(), sparse.getCurrentState(), "seed " + seed);
+            assertEquals(dense.getTapeContents(), sparse.getTapeContents(), "seed " + seed);
+            assertEquals(Arrays.toString(dense.getProfiler().getTransitionHits()),
+                    Arrays.toString(sparse.getProfiler().getTransitionHits()), "seed " + seed);
+        }
+    }
+
+    @Test
+    void testWideKeys() {
+        // 12 tapes of 64 symbols do not fit into a single long
+        Set<Character> alphabet = new HashSet<>();
+        for (char c = '0'; c < '0' + 63; c++) {
+            alphabet.add(c);
+        }
+        int tapes = 12;
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(alphabet);
+        tm.setNumberOfTapes(tapes);
+        tm.setNumberOfStates(2);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        Movement[] right = new Movement[tapes];
+        Arrays.fill(right, Movement.Right);
+        for (char c : alphabet) {
+            Character[] read = new Character[tapes];
+            read[0] = c;
+            Character[] write = new Character[tapes];
+            Arrays.fill(write, c);
+            tm.addTransition(1, read, 1, write, right);
+        }
+        Movement[] stay = new Movement[tapes];
+        Arrays.fill(stay, Movement.Stay);
+        tm.addTransition(1, new Character[tapes], 0, new Character[tapes], stay);
+        assertFalse(tm.compile());
+
+        tm.setInput("0a9Z");
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 5), tm.run(100));
+        for (int i = 0; i < tapes; i++) {
+            assertArrayEquals(new Character[]{'0', 'a', '9', 'Z'}, tm.getTapeContent(i).getLeftOfHead());
+        }
+
+        // a symbol outside the alphabet has no transition
+        tm.reset();
+        tm.setInput("0~");
+        assertEquals(new RunResult(RunResult.Outcome.Error, 2), tm.run(100));
+    }
+}
@@ -0,0 +1,96 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+import ab3.TuringMachine.RunResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StepperCompilerTest {
+    @Test
+    void testBusyBeaver() {
+        TuringMachineImpl plain = MacroEngineTest.getBusyBeaver();
+        TuringMachineImpl generated = MacroEngineTest.getBusyBeaver();
+        generated.setCodeGeneration(true);
+        plain.reset();
+        plain.setInput("");
+        generated.reset();
+        generated.setInput("");
+
+        RunResult result = generated.run(Long.MAX_VALUE);
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 47_176_870), result);
+        assertEquals(result, plain.run(Long.MAX_VALUE));
+        assertEquals(plain.getTapeContents(), generated.getTapeContents());
+    }
+
+    @Test
+    void testRandomMachines() {
+        Random random = new Random(7);
+        for (int n = 0; n < 100; n++) {
+            long seed = random.nextLong();
+            int tapes = 1 + random.nextInt(2);
+            TuringMachineImpl plain = getRandomMachine(new Random(seed), tapes);
+            TuringMachineImpl generated = getRandomMachine(new Random(seed), tapes);
+            generated.setCodeGeneration(true);
+            String input = random.ints(random.nextInt(12), 0, 4)
+                    .mapToObj(i -> String.valueOf("abc ".charAt(i)))
+                    .reduce("", String::concat);
+            plain.reset();
+            plain.setInput(input);
+            generated.reset();
+            generated.setInput(input);
+
+            for (int run = 0; run < 4; run++) {
+                long budget = random.nextInt(500);
+                RunResult expected = plain.run(budget);
+                assertEquals(expected, generated.run(budget), "seed " + seed);
+                assertEquals(plain.getCurrentState(), generated.getCurrentState(), "seed " + seed);
+                assertEquals(plain.getTapeContents(), generated.getTapeContents(), "seed " + seed);
+            }
+        }
+    }
+
+    @Test
+    void testTooLarge() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a'));
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(StepperCompiler.MAX_STATES + 1);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        tm.addTransition(1, 'a', 0, 'a', Movement.Right);
+
+        assertNull(StepperCompiler.generate(tm.freeze()));
+        assertNotNull(StepperCompiler.generate(TuringMachineImplTest.getMachineScanRight().freeze()));
+    }
+
+    private static TuringMachineImpl getRandomMachine(Random random, int tapes) {
+        Character[] symbols = {'a', 'b', null};
+        int states = 2 + random.nextInt(5);
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a', 'b'));
+        tm.setNumberOfTapes(tapes);
+        tm.setNumberOfStates(states);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        for (int state = 1; state < states; state++) {
+            for (int i = 0; i < 9; i++) {
+                if (random.nextInt(10) > 0) {
+                    Character[] read = new Character[tapes];
+                    Character[] write = new Character[tapes];
+                    Movement[] move = new Movement[tapes];
+                    for (int t = 0; t < tapes; t++) {
+                        read[t] = symbols[(t == 0 ? i : i / 3) % 3];
+                        write[t] = symbols[random.nextInt(3)];
+                        move[t] = Movement.values()[random.nextInt(3)];
+                    }
+                    tm.addTransition(state, read, random.nextInt(states), write, move);
+                }
+            }
+        }
+        return tm;
+    }
+}
@@ -0,0 +1,470 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+import ab3.TuringMachine.TapeContent;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TapeTest {
+    @Test
+    void testGrowBothDirections() {
+        Tape tape = new Tape("ab");
+        for (int i = 0; i < 40; i++) {
+            tape.moveLeft();
+        }
+        tape.writeSymbol('c');
+        for (int i = 0; i < 100; i++) {
+            tape.moveRight();
+        }
+        tape.writeSymbol('d');
+        tape.moveLeft();
+
+        assertEquals(59, tape.getHead());
+        assertEquals(-40, tape.getLeftmost());
+        assertEquals(60, tape.getRightmost());
+        TapeContent content = tape.getContent();
+        assertEquals(99, content.getLeftOfHead().length);
+        assertEquals('c', content.getLeftOfHead()[0]);
+        assertEquals('a', content.getLeftOfHead()[40]);
+        assertNull(content.getBelowHead());
+        assertArrayEquals(new Character[]{'d'}, content.getRightOfHead());
+    }
+
+    @Test
+    void testBlank() {
+        Tape tape = new Tape();
+        tape.moveLeft();
+        tape.writeSymbol(' ');
+        TapeContent content = tape.getContent();
+        assertArrayEquals(new Character[0], content.getLeftOfHead());
+        assertNull(content.getBelowHead());
+        assertArrayEquals(new Character[0], content.getRightOfHead());
+    }
+
+    @Test
+    void testBoundsAfterErasing() {
+        Tape tape = new Tape("abcd");
+        tape.write(0);
+        tape.moveTo(3);
+        tape.write(0);
+        assertEquals(1, tape.getLeftmost());
+        assertEquals(2, tape.getRightmost());
+        assertEquals(2, tape.getUsedLength());
+        assertArrayEquals(new Character[]{'b', 'c'}, tape.getContent().getLeftOfHead());
+
+        tape.moveTo(1);
+        tape.write(0);
+        tape.moveRight();
+        tape.write(0);
+        assertEquals(0, tape.getUsedLength());
+        assertTrue(tape.getLeftmost() > tape.getRightmost());
+        assertEquals(1, tape.length());
+        tape.moveTo(-5);
+        tape.writeSymbol('e');
+        assertEquals(-5, tape.getLeftmost());
+        assertEquals(-5, tape.getRightmost());
+    }
+
+    @Test
+    void testRecode() {
+        Tape tape = new Tape(Alphabet.of(Set.of('a', 'b')), "bax");
+        assertEquals(4, tape.getAlphabet().size());
+        assertEquals(2, tape.read());
+
+        tape.recode(Alphabet.of(Set.of('b', 'c')));
+        assertEquals(1, tape.read());
+        assertEquals('b', tape.readSymbol());
+        assertArrayEquals(new Character[]{'a', 'x'}, tape.getContent().getRightOfHead());
+    }
+
+    @Test
+    void testCellFormat() {
+        int large = Cells.PACKED_MIN_CAPACITY;
+        assertInstanceOf(ByteCells.class, Cells.create(3, 16));
+        assertInstanceOf(PackedCells.class, Cells.create(3, large));
+        assertEquals(4, Cells.create(4, large).maxSymbols());
+        assertEquals(16, Cells.create(5, large).maxSymbols());
+        assertInstanceOf(ByteCells.class, Cells.create(17, large));
+    }
+
+    @Test
+    void testPackedWhenGrown() {
+        Tape tape = new Tape(Alphabet.of(Set.of('0', '1')), "10");
+        assertInstanceOf(ByteCells.class, tape.getCells());
+        tape.moveTo(Cells.PACKED_MIN_CAPACITY);
+        tape.writeSymbol('1');
+        assertInstanceOf(PackedCells.class, tape.getCells());
+        assertEquals(Cells.PACKED_MIN_CAPACITY + 1, tape.getUsedLength());
+        tape.moveTo(0);
+        assertEquals('1', tape.readSymbol());
+        tape.moveRight();
+        assertEquals('0', tape.readSymbol());
+
+        // a capacity that is not a multiple of the cells per word
+        String input = "10".repeat(150_000) + "1";
+        tape = new Tape(Alphabet.of(Set.of('0', '1')), input);
+        tape.moveTo(-3 * Cells.PACKED_MIN_CAPACITY);
+        tape.writeSymbol('1');
+        tape.moveTo(3 * Cells.PACKED_MIN_CAPACITY);
+        assertInstanceOf(PackedCells.class, tape.getCells());
+        assertEquals(-3 * Cells.PACKED_MIN_CAPACITY, tape.getLeftmost());
+        for (int position = 0; position < input.length(); position++) {
+            assertEquals(input.charAt(position), tape.symbolAt(position));
+        }
+    }
+
+    @Test
+    void testPackedMatchesBytes() {
+        for (int size : new int[]{4, 16}) {
+            Cells packed = new PackedCells(100, PackedCells.bitsPerCell(size));
+            Cells bytes = new ByteCells(packed.capacity());
+            Random random = new Random(size);
+            for (int n = 0; n < 10_000; n++) {
+                long i = random.nextInt((int) packed.capacity());
+                int code = random.nextInt(size);
+                packed.set(i, code);
+                bytes.set(i, code);
+                if (n % 1000 == 0) {
+                    long shift = packed.capacity() / 2;
+                    packed.resize(packed.capacity() * 2, shift);
+                    bytes.resize(bytes.capacity() * 2, shift);
+                }
+            }
+            assertEquals(bytes.capacity(), packed.capacity());
+            for (long i = 0; i < packed.capacity(); i++) {
+                assertEquals(bytes.get(i), packed.get(i));
+            }
+        }
+    }
+
+    @Test
+    void testChunksCopiedOnWrite() {
+        Cells[] formats = {new ByteCells(1 << 20), new PackedCells(1 << 20, 2)};
+        for (Cells cells : formats) {
+            Cells bytes = new ByteCells(cells.capacity());
+            Random random = new Random(3);
+            for (int n = 0; n < 10_000; n++) {
+                long i = random.nextInt((int) cells.capacity());
+                int code = random.nextInt(4);
+                cells.set(i, code);
+                bytes.set(i, code);
+            }
+            Cells copy = cells.copy();
+            copy.set(0, 3);
+            cells.set(cells.capacity() - 1, 2);
+            int chunks = (int) (cells.capacity() >>> (cells instanceof ByteCells
+                    ? ByteCells.CHUNK_SHIFT : PackedCells.CHUNK_SHIFT + 5));
+            assertEquals(chunks - 1, sharedChunks(cells));
+
+            // moving whole chunks keeps them shared
+            long shift = cells.capacity() / 2;
+            copy.resize(copy.capacity() * 2, shift);
+            assertEquals(chunks - 1, sharedChunks(copy));
+            assertEquals(3, copy.get(shift));
+            assertEquals(bytes.get(0), cells.get(0));
+            assertEquals(2, cells.get(cells.capacity() - 1));
+            for (long i = 1; i < cells.capacity() - 1; i++) {
+                assertEquals(bytes.get(i), cells.get(i));
+                assertEquals(bytes.get(i), copy.get(shift + i));
+            }
+        }
+    }
+
+    private static int sharedChunks(Cells cells) {
+        return cells instanceof ByteCells ? ((ByteCells) cells).sharedChunks() : ((PackedCells) cells).sharedChunks();
+    }
+
+    private static long findNonBlankNaive(Cells cells, long from, long to) {
+        int step = to < from ? -1 : 1;
+        long i = from;
+        while (i != to && cells.get(i) == 0) {
+            i += step;
+        }
+        return i;
+    }
+
+    @Test
+    void testFindNonBlank() {
+        Cells[] formats = {new ByteCells(1000), new ByteCells(3 << ByteCells.CHUNK_SHIFT),
+                new CharCells(3 << CharCells.CHUNK_SHIFT), new PackedCells(3L << (PackedCells.CHUNK_SHIFT + 5), 2),
+                new PackedCells(3L << (PackedCells.CHUNK_SHIFT + 4), 4), new OffHeapCells(3 << OffHeapCells.SEGMENT_SHIFT)};
+        Random random = new Random(16);
+        for (Cells cells : formats) {
+            int symbols = Math.min(cells.maxSymbols(), 300);
+            for (int round = 0; round < 3; round++) {
+                // sparse writes, about half of them blanks over earlier ones
+                for (int n = 0; n < 2000; n++) {
+                    long i = random.nextInt((int) Math.min(cells.capacity(), Integer.MAX_VALUE));
+                    cells.set(i, random.nextBoolean() ? 0 : 1 + random.nextInt(symbols - 1));
+                }
+                Cells copy = cells.copy();
+                for (int n = 0; n < 20; n++) {
+                    long from = random.nextInt((int) cells.capacity());
+                    long to = random.nextBoolean() ? cells.capacity() : -1;
+                    assertEquals(findNonBlankNaive(cells, from, to), cells.findNonBlank(from, to));
+                    assertEquals(findNonBlankNaive(copy, from, to), copy.findNonBlank(from, to));
+                }
+                cells.set(0, 0);
+                assertEquals(findNonBlankNaive(copy, 0, copy.capacity()), copy.findNonBlank(0, copy.capacity()));
+                cells.resize(cells.capacity() * 2, cells.capacity() / 2);
+            }
+        }
+    }
+
+    @Test
+    void testTrimFarBounds() {
+        Tape tape = new Tape(Alphabet.of(Set.of('0', '1')), "1");
+        long far = 5L << ByteCells.CHUNK_SHIFT;
+        tape.moveTo(far);
+        tape.writeSymbol('1');
+        for (int n = 0; n < 100; n++) {
+            tape.moveTo(far);
+            tape.writeSymbol(Constants.SPACE);
+            assertEquals(0, tape.getRightmost());
+            tape.writeSymbol('0');
+            assertEquals(far, tape.getRightmost());
+        }
+        tape.moveTo(0);
+        tape.writeSymbol(Constants.SPACE);
+        assertEquals(far, tape.getLeftmost());
+        tape.moveTo(far);
+        tape.writeSymbol(Constants.SPACE);
+        assertTrue(tape.getLeftmost() > tape.getRightmost());
+        assertEquals(0, tape.getUsedLength());
+    }
+
+    @Test
+    void testOffHeapMatchesBytes() {
+        Cells offHeap = Cells.create(256, 100, true);
+        Cells bytes = new ByteCells(offHeap.capacity());
+        Random random = new Random(256);
+        for (int n = 0; n < 10_000; n++) {
+            long i = random.nextInt((int) offHeap.capacity());
+            int code = random.nextInt(256);
+            offHeap.set(i, code);
+            bytes.set(i, code);
+        }
+        long shift = offHeap.capacity() / 2;
+        offHeap.resize(offHeap.capacity() * 2, shift);
+        bytes.resize(bytes.capacity() * 2, shift);
+        Cells copy = offHeap.copy();
+        offHeap.set(shift, 7);
+        for (long i = 0; i < bytes.capacity(); i++) {
+            assertEquals(bytes.get(i), copy.get(i));
+        }
+    }
+
+    @Test
+    void testOffHeapAllocatesWrittenSegments() {
+        Tape tape = new Tape(Alphabet.of(Set.of('0', '1')), "1", true);
+        int cells = 3 << OffHeapCells.SEGMENT_SHIFT;
+        for (int i = 0; i < cells; i++) {
+            tape.moveRight();
+        }
+        tape.writeSymbol('1');
+        assertTrue(tape.isOffHeap());
+        assertEquals(2, ((OffHeapCells) tape.copy().getCells()).allocatedSegments());
+        assertEquals(cells, tape.getRightmost());
+        assertEquals('1', tape.readSymbol());
+        tape.moveTo(0);
+        assertEquals('1', tape.readSymbol());
+        assertEquals(0, tape.getContent().getLeftOfHead().length);
+        assertEquals(cells, tape.getContent().getRightOfHead().length);
+    }
+
+    @Test
+    void testOffHeapEvictsMappings() {
+        Tape tape = new Tape(Alphabet.of(Set.of('0', '1')), "", true);
+        int segments = OffHeapCells.RESIDENT_SEGMENTS + 8;
+        for (int segment = 0; segment < segments; segment++) {
+            tape.moveTo((long) segment << OffHeapCells.SEGMENT_SHIFT);
+            tape.writeSymbol(segment % 2 == 0 ? '0' : '1');
+        }
+        OffHeapCells cells = (OffHeapCells) tape.getCells();
+        assertEquals(segments, cells.allocatedSegments());
+        assertEquals(OffHeapCells.RESIDENT_SEGMENTS, cells.mappedSegments());
+
+        // evicted segments are mapped again, a copy keeps the cells until either tape writes
+        Tape copy = tape.copy();
+        for (int segment = 0; segment < segments; segment++) {
+            tape.moveTo((long) segment << OffHeapCells.SEGMENT_SHIFT);
+            assertEquals(segment % 2 == 0 ? '0' : '1', tape.readSymbol());
+            tape.writeSymbol('1');
+        }
+        for (int segment = 0; segment < segments; segment++) {
+            assertEquals(segment % 2 == 0 ? '0' : '1', copy.symbolAt((long) segment << OffHeapCells.SEGMENT_SHIFT));
+            assertEquals('1', tape.symbolAt((long) segment << OffHeapCells.SEGMENT_SHIFT));
+        }
+    }
+
+    @Test
+    void testCharCells() {
+        var input = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            input.append((char) (0x100 + i));
+        }
+        Tape tape = new Tape(Alphabet.of(Set.of('0')), input, true);
+        assertInstanceOf(CharCells.class, tape.getCells());
+        assertFalse(tape.getCells() instanceof OffHeapCells);
+        Tape copy = tape.copy();
+        int cells = 3 << CharCells.CHUNK_SHIFT;
+        tape.moveTo(-cells);
+        tape.writeSymbol('0');
+        tape.moveTo(299);
+        tape.writeSymbol('0');
+
+        assertEquals(-cells, tape.getLeftmost());
+        assertEquals('\u0100', tape.symbolAt(0));
+        assertEquals('\u022a', tape.symbolAt(298));
+        assertEquals('0', tape.symbolAt(299));
+        assertEquals('\u022b', copy.symbolAt(299));
+        boolean[] symbols = new boolean[Alphabet.BYTE_CODES];
+        symbols[0] = true;
+        tape.moveTo(-cells + 1);
+        assertEquals(cells - 1, tape.sweep(symbols, true, Long.MAX_VALUE));
+        assertEquals(0, tape.getHead());
+    }
+
+    @Test
+    void testSegmentFileBlanksReusedSlots() {
+        int size = (3 << 16) + 5;
+        SegmentFile file = new SegmentFile(size);
+        int slot = file.allocate(true);
+        ByteBuffer mapping = file.map(slot);
+        for (int i = 0; i < size; i++) {
+            mapping.put(i, (byte) 1);
+        }
+        file.release(slot);
+        assertEquals(slot, file.allocate(true));
+        mapping = file.map(slot);
+        for (int i = 0; i < size; i++) {
+            assertEquals(0, mapping.get(i));
+        }
+    }
+
+    @Test
+    void testPositionsBeyondInt() {
+        long far = 3L << 31;
+        Tape tape = new Tape(Alphabet.of(Set.of('0', '1')), "1", true);
+        tape.moveTo(far);
+        tape.writeSymbol('0');
+        tape.moveTo(-far);
+        tape.writeSymbol('1');
+        assertEquals(-far, tape.getHead());
+        assertEquals(-far, tape.getLeftmost());
+        assertEquals(far, tape.getRightmost());
+        assertEquals(2 * far + 1, tape.getUsedLength());
+        assertEquals(3, ((OffHeapCells) tape.getCells()).allocatedSegments());
+        assertEquals('0', tape.symbolAt(far));
+        assertEquals('1', tape.symbolAt(0));
+        assertEquals(Constants.SPACE, tape.symbolAt(far - 1));
+    }
+
+    @Test
+    void testView() {
+        Tape tape = new Tape(Alphabet.of(Set.of('a', 'b')), "ab");
+        tape.moveLeft();
+        tape.moveLeft();
+        assertEquals(-2, tape.start());
+        assertEquals(4, tape.length());
+        assertEquals(-2, tape.headPosition());
+        assertEquals('b', tape.symbolAt(1));
+        assertEquals(' ', tape.symbolAt(Long.MAX_VALUE));
+        char[] range = new char[5];
+        tape.copyRange(-1, 3, range);
+        assertArrayEquals(new char[]{' ', 'a', 'b', ' ', '\0'}, range);
+        assertThrows(IllegalArgumentException.class, () -> tape.copyRange(0, 6, range));
+    }
+
+    @Test
+    void testCopyOnWrite() {
+        for (boolean offHeap : new boolean[]{false, true}) {
+            Tape tape = new Tape(Alphabet.of(Set.of('a', 'b')), "ab", offHeap);
+            Tape copy = tape.copy();
+            tape.writeSymbol('b');
+            copy.moveRight();
+            copy.writeSymbol('a');
+            Tape copyOfCopy = copy.copy();
+            copy.writeSymbol(' ');
+            assertArrayEquals(new Character[]{'b'}, tape.getContent().getRightOfHead());
+            assertEquals('b', tape.getContent().getBelowHead());
+            assertArrayEquals(new Character[]{'a'}, copy.getContent().getLeftOfHead());
+            assertNull(copy.getContent().getBelowHead());
+            assertEquals('a', copyOfCopy.getContent().getBelowHead());
+        }
+    }
+
+    @Test
+    void testWiden() {
+        Tape tape = new Tape(Alphabet.of(Set.of('0', '1')), "0110");
+        tape.moveLeft();
+        tape.writeSymbol('x');
+        tape.writeSymbol('y');
+        tape.moveRight();
+        tape.moveRight();
+        tape.writeSymbol('z');
+        assertArrayEquals(new Character[]{'y', '0'}, tape.getContent().getLeftOfHead());
+        assertEquals('z', tape.getContent().getBelowHead());
+        assertArrayEquals(new Character[]{'1', '0'}, tape.getContent().getRightOfHead());
+    }
+
+    @Test
+    void testSweep() {
+        for (String symbols : new String[]{"ab", "abcdefghijklmnopqrst"}) {
+            Tape tape = new Tape(Alphabet.of(symbols.chars().mapToObj(c -> (char) c).collect(java.util.stream.Collectors.toSet())),
+                    "b" + "a".repeat(200) + "b");
+            boolean[] a = new boolean[Alphabet.BYTE_CODES];
+            a[tape.getAlphabet().code('a')] = true;
+            tape.moveRight();
+
+            assertEquals(50, tape.sweep(a, true, 50));
+            assertEquals(51, tape.getHead());
+            assertEquals(150, tape.sweep(a, true, Long.MAX_VALUE));
+            assertEquals('b', tape.readSymbol());
+            tape.moveLeft();
+            assertEquals(200, tape.sweep(a, false, Long.MAX_VALUE));
+            assertEquals(0, tape.getHead());
+            assertEquals(0, tape.sweep(a, false, Long.MAX_VALUE));
+
+            // blanks continue to the end of the array, the tape grows for the rest of the sweep
+            boolean[] blank = new boolean[Alphabet.BYTE_CODES];
+            blank[0] = true;
+            tape.moveLeft();
+            long moved = tape.sweep(blank, false, Long.MAX_VALUE);
+            assertTrue(moved > 0);
+            assertEquals(-1 - moved, tape.getHead());
+            assertEquals(0, tape.read());
+            assertEquals(202, tape.getUsedLength());
+        }
+    }
+
+    /**
+     * A machine that writes while sweeping left has to run in linear time: the tape doubles, so it
+     * grows O(log n) times and copies O(n) cells in total (see TapeBenchmark for the timing).
+     */
+    @Test
+    void testLeftSweepGrowsLogarithmically() {
+        int cells = 1_000_000;
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a'));
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(2);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        tm.addTransition(1, null, 1, 'a', Movement.Left);
+        tm.setProfiling(true);
+        tm.reset();
+        tm.setInput("");
+        for (int i = 0; i < cells; i++) {
+            tm.doNextStep();
+        }
+        assertEquals(cells, tm.getTapeContent(0).getRightOfHead().length);
+        assertTrue(tm.getProfiler().getLeftGrowths() <= Integer.SIZE - Integer.numberOfLeadingZeros(cells));
+        assertEquals(0, tm.getProfiler().getRightGrowths());
+    }
+}
@@ -0,0 +1,151 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static ab3.impl.SchachnerIsmailov.Constants.ANY;
+import static ab3.impl.SchachnerIsmailov.Constants.SPACE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransitionBatchTest {
+    private static TuringMachineImpl getMachine() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('0', '1'));
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(3);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        return tm;
+    }
+
+    @Test
+    void testLoad() {
+        TuringMachineImpl tm = getMachine();
+        TransitionBatch batch = new TransitionBatch(1, 2)
+                .add(1, '0', 1, '1', Movement.Right)
+                .add(1, '1', 1, '0', Movement.Right)
+                .add(1, SPACE, 2, SPACE, Movement.Left);
+        tm.addTransitions(batch);
+        tm.addTransitions(TransitionBatch.of(1, new int[]{2}, new char[]{'1'}, new int[]{0}, new char[]{'1'},
+                new Movement[]{Movement.Stay}));
+
+        assertEquals(4, tm.freeze().getTransitions().size());
+        tm.setInput("0110");
+        tm.run(100);
+        assertTrue(tm.isInHaltingState());
+        assertArrayEquals(new Character[]{'1', '0', '0'}, tm.getTapeContent(0).getLeftOfHead());
+        assertEquals('1', tm.getTapeContent(0).getBelowHead());
+    }
+
+    @Test
+    void testAllErrorsReported() {
+        TuringMachineImpl tm = getMachine();
+        TransitionBatch batch = new TransitionBatch(1, 0)
+                .add(0, '0', 1, '0', Movement.Right)
+                .add(1, '0', 1, '0', Movement.Right)
+                .add(1, 'x', 3, '1', Movement.Right)
+                .add(2, '1', 1, '1', null);
+
+        TransitionLoadException e = assertThrows(TransitionLoadException.class, () -> tm.addTransitions(batch));
+        assertEquals(4, e.getErrors().size());
+        assertEquals(0, e.getErrors().get(0).index());
+        assertEquals(2, e.getErrors().get(1).index());
+        assertEquals(2, e.getErrors().get(2).index());
+        assertEquals(3, e.getErrors().get(3).index());
+        assertThrows(TransitionLoadException.class, () -> tm.addTransitions(new TransitionBatch(2, 0)));
+    }
+
+    @Test
+    void testAtomic() {
+        TuringMachineImpl tm = getMachine();
+        tm.addTransition(1, '0', 1, '0', Movement.Right);
+        TransitionBatch batch = new TransitionBatch(1, 0)
+                .add(1, '1', 1, '1', Movement.Right)
+                .add(1, '0', 2, '0', Movement.Right)
+                .add(2, '0', 3, '0', Movement.Right);
+
+        TransitionLoadException e = assertThrows(TransitionLoadException.class, () -> tm.addTransitions(batch));
+        assertEquals(1, e.getErrors().size());
+        assertEquals(2, e.getErrors().get(0).index());
+        assertEquals(1, tm.freeze().getTransitions().size());
+        assertEquals(1, tm.freeze().getTransitions().get(new TransitionKey(1, new char[]{'0'})).toState());
+    }
+
+    @Test
+    void testDuplicates() {
+        TuringMachineImpl tm = getMachine();
+        tm.addTransition(1, '0', 1, '0', Movement.Right);
+        tm.addTransitions(new TransitionBatch(1, 0)
+                .add(1, '0', 2, '0', Movement.Right)
+                .add(1, '1', 1, '1', Movement.Right)
+                .add(1, '1', 2, '1', Movement.Right));
+        assertEquals(2, tm.freeze().getTransitions().size());
+        assertEquals(2, tm.freeze().getTransitions().get(new TransitionKey(1, new char[]{'0'})).toState());
+        assertEquals(2, tm.freeze().getTransitions().get(new TransitionKey(1, new char[]{'1'})).toState());
+
+        tm.setNondeterministic(true);
+        tm.addTransitions(new TransitionBatch(1, 0)
+                .add(1, '0', 1, '0', Movement.Right)
+                .add(1, '0', 0, '0', Movement.Right));
+        assertEquals(3, tm.freeze().getChoices(new TransitionKey(1, new char[]{'0'})).size());
+
+        tm.addTransition(2, ANY, 0, ANY, Movement.Stay);
+        TransitionBatch wildcards = new TransitionBatch(1, 0)
+                .add(2, '1', 0, '1', Movement.Stay)
+                .add(2, ANY, 1, ANY, Movement.Stay);
+        TransitionLoadException e = assertThrows(TransitionLoadException.class, () -> tm.addTransitions(wildcards));
+        assertEquals(1, e.getErrors().size());
+        assertEquals(1, e.getErrors().get(0).index());
+        assertNull(tm.freeze().getTransitions().get(new TransitionKey(2, new char[]{'1'})));
+    }
+
+    @Test
+    void testDuplicateWildcardsReportedWithOtherErrors() {
+        TuringMachineImpl tm = getMachine();
+        tm.setNondeterministic(true);
+        TransitionBatch batch = new TransitionBatch(1, 0)
+                .add(2, ANY, 1, ANY, Movement.Stay)
+                .add(1, '0', 3, '0', Movement.Right)
+                .add(2, ANY, 0, ANY, Movement.Stay);
+
+        TransitionLoadException e = assertThrows(TransitionLoadException.class, () -> tm.addTransitions(batch));
+        assertEquals(2, e.getErrors().size());
+        assertEquals(1, e.getErrors().get(0).index());
+        assertEquals(2, e.getErrors().get(1).index());
+    }
+
+    @Test
+    void testCompiledFromBatches() {
+        TuringMachineImpl tm = getMachine();
+        int[] from = {1, 1};
+        char[] read = {'0', '1'};
+        int[] to = {1, 2};
+        char[] write = {'1', '1'};
+        Movement[] move = {Movement.Right, Movement.Right};
+        tm.addTransitions(TransitionBatch.of(1, from, read, to, write, move));
+        // the machine keeps its own copy of the batch
+        to[1] = 1;
+        tm.addTransitions(new TransitionBatch(1, 0)
+                .add(1, SPACE, 2, SPACE, Movement.Left)
+                .add(1, '0', 1, '0', Movement.Right)
+                .add(2, '0', 0, '0', Movement.Stay));
+
+        Program program = tm.freeze();
+        assertNotNull(program.getDispatchTable());
+        var keys = program.getTransitions().keySet().stream().map(key -> key.fromState() + ":" + key.readTape()[0]).toList();
+        assertEquals(List.of("1:0", "1:1", "1: ", "2:0"), keys);
+        assertEquals('0', program.getTransitions().get(new TransitionKey(1, new char[]{'0'})).writeTapes()[0]);
+        assertEquals(2, program.getTransitions().get(new TransitionKey(1, new char[]{'1'})).toState());
+
+        tm.setInput("00");
+        tm.run(100);
+        assertTrue(tm.isInHaltingState());
+
+        tm.addTransition(2, '1', 0, '1', Movement.Stay);
+        assertEquals(5, tm.freeze().getTransitions().size());
+        assertEquals(0, tm.freeze().getTransitions().get(new TransitionKey(2, new char[]{'1'})).toState());
+    }
+}
@@ -9,4 +9,13 @@ class TransitionKeyTest {
     void testEquals() {
         assertEquals(new TransitionKey(0, 'a'), new TransitionKey(0, 'a'));
     }
+
+    @Test
+    void testHashCode() {
+        char[] read = {'a', 'b'};
+        var probe = new TransitionKey(3, read);
+        assertEquals(new TransitionKey(3, 'a', 'b').hashCode(), probe.hashCode());
+        read[1] = 'c';
+        assertEquals(new TransitionKey(3, 'a', 'c').hashCode(), probe.hashCode());
+    }
 }
\ No newline at end of file
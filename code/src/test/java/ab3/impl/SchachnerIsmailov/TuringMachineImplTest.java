@@ -0,0 +1,319 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine.Movement;
+import ab3.TuringMachine.RunResult;
+import ab3.TuringMachine.TapeContent;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TuringMachineImplTest {
+    /**
+     * Moves right over the a's and halts on the first blank.
+     */
+    static TuringMachineImpl getMachineScanRight() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a', 'b'));
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(2);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        tm.addTransition(1, 'a', 1, 'a', Movement.Right);
+        tm.addTransition(1, null, 0, null, Movement.Stay);
+        return tm;
+    }
+
+    @Test
+    void testRunHalts() {
+        TuringMachineImpl tm = getMachineScanRight();
+        tm.reset();
+        tm.setInput("aaaa");
+
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 5), tm.run(100));
+        assertTrue(tm.isInHaltingState());
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 0), tm.run(100));
+    }
+
+    @Test
+    void testRunError() {
+        TuringMachineImpl tm = getMachineScanRight();
+        tm.reset();
+        tm.setInput("aab");
+
+        assertEquals(new RunResult(RunResult.Outcome.Error, 3), tm.run(100));
+        assertTrue(tm.isInErrorState());
+    }
+
+    @Test
+    void testRunBudgetExhausted() {
+        TuringMachineImpl tm = getMachineScanRight();
+        tm.reset();
+        tm.setInput("aaaa");
+
+        assertEquals(new RunResult(RunResult.Outcome.BudgetExhausted, 3), tm.run(3));
+        assertEquals(3, tm.getTapeContent(0).getLeftOfHead().length);
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 2), tm.run(3));
+        assertThrows(IllegalArgumentException.class, () -> tm.run(-1));
+    }
+
+    @Test
+    void testRunUntil() {
+        TuringMachineImpl tm = getMachineScanRight();
+        tm.reset();
+        tm.setInput("aaaa");
+
+        RunResult result = tm.runUntil(m -> m.getTapeContent(0).getLeftOfHead().length == 2);
+        assertEquals(new RunResult(RunResult.Outcome.ConditionMet, 2), result);
+    }
+
+    @Test
+    void testLoopDetection() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a'));
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(5);
+        tm.setHaltingState(0);
+        tm.setInitialState(3);
+        tm.addTransition(3, 'a', 3, 'a', Movement.Right);
+        tm.addTransition(3, null, 4, null, Movement.Left);
+        tm.addTransition(4, 'a', 1, 'a', Movement.Stay);
+        tm.addTransition(1, 'a', 2, 'a', Movement.Right);
+        tm.addTransition(2, null, 1, null, Movement.Left);
+        tm.setLoopDetection(true);
+        tm.reset();
+        tm.setInput("aa");
+
+        RunResult result = tm.run(1000);
+        assertEquals(RunResult.Outcome.Loop, result.outcome());
+        assertEquals(new Cycle(4, 2), tm.getDetectedCycle());
+
+        tm.reset();
+        tm.setInput("aa");
+        assertNull(tm.getDetectedCycle());
+    }
+
+    @Test
+    void testLoopDetectionNoCycle() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a'));
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(2);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        tm.addTransition(1, null, 1, 'a', Movement.Right);
+        tm.setLoopDetection(true);
+        tm.reset();
+        tm.setInput("");
+
+        assertEquals(RunResult.Outcome.BudgetExhausted, tm.run(10_000).outcome());
+        assertNull(tm.getDetectedCycle());
+    }
+
+    @Test
+    void testOffHeapTapes() {
+        TuringMachineImpl tm = getMachineScanRight();
+        tm.setOffHeapTapes(true);
+        tm.reset();
+        tm.setInput("aaaa");
+
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 5), tm.run(100));
+        assertArrayEquals(new Character[]{'a', 'a', 'a', 'a'}, tm.getTapeContent(0).getLeftOfHead());
+    }
+
+    @Test
+    void testLargeAlphabet() {
+        int size = 300;
+        Set<Character> alphabet = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            alphabet.add((char) (0x100 + i));
+        }
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(alphabet);
+        tm.setNumberOfTapes(1);
+        tm.setNumberOfStates(2);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        // replaces every symbol by the next one
+        for (int i = 0; i < size; i++) {
+            tm.addTransition(1, (char) (0x100 + i), 1, (char) (0x100 + (i + 1) % size), Movement.Right);
+        }
+        tm.addTransition(1, null, 0, null, Movement.Stay);
+        tm.reset();
+        tm.setInput("\u0100\u01ff\u022b");
+
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 4), tm.run(100));
+        assertArrayEquals(new Character[]{'\u0101', '\u0200', '\u0100'}, tm.getTapeContent(0).getLeftOfHead());
+        assertTrue(tm.freeze().getTapeAlphabet().size() > Alphabet.BYTE_CODES);
+        assertNull(tm.freeze().getDispatchTable());
+    }
+
+    @Test
+    void testInputBeyondByteCodes() {
+        TuringMachineImpl tm = getMachineScanRight();
+        var input = new StringBuilder("aaaa");
+        for (int i = 0; i < 300; i++) {
+            input.append((char) (0x100 + i));
+        }
+        tm.reset();
+        tm.setInput(input.toString());
+
+        // the sweep over the a's stops at the first symbol outside the alphabet of the machine
+        assertEquals(new RunResult(RunResult.Outcome.Error, 5), tm.run(100));
+    }
+
+    @Test
+    void testTapeContentIsSnapshot() {
+        TuringMachineImpl tm = getMachineScanRight();
+        tm.reset();
+        tm.setInput("aaaa");
+        tm.run(2);
+        TapeContent before = tm.getTapeContent(0);
+        TapeContent expected = new TapeContent(new Character[]{'a', 'a'}, 'a', new Character[]{'a'});
+
+        tm.run(100);
+        assertEquals(expected, before);
+        assertArrayEquals(new Character[]{'a', 'a', 'a', 'a'}, tm.getTapeContent(0).getLeftOfHead());
+    }
+
+    @Test
+    void testTapeView() {
+        TuringMachineImpl tm = getMachineScanRight();
+        tm.reset();
+        tm.setInput("aaaa");
+        TapeView view = tm.getTapeView(0);
+        tm.run(100);
+
+        assertEquals(0, view.start());
+        assertEquals(5, view.length());
+        assertEquals(4, view.headPosition());
+        char[] window = new char[4];
+        view.copyWindow(2, window);
+        assertArrayEquals(new char[]{'a', 'a', ' ', ' '}, window);
+        assertFalse(view instanceof Tape);
+
+        // the view follows the tape that replaces the old one
+        tm.reset();
+        tm.setInput("aa");
+        assertEquals(2, view.length());
+        assertEquals(0, view.headPosition());
+        tm.run(1);
+        assertEquals(1, view.headPosition());
+    }
+
+    @Test
+    void testTapeContentIsShared() {
+        TuringMachineImpl tm = getMachineScanRight();
+        tm.reset();
+        tm.setInput("aaaa");
+        TapeContent content = tm.getTapeContent(0);
+        assertSame(content, tm.getTapeContent(0));
+        tm.run(1);
+        assertNotSame(content, tm.getTapeContent(0));
+        tm.setInput("a");
+        assertEquals(0, tm.getTapeContent(0).getRightOfHead().length);
+        assertEquals(3, content.getRightOfHead().length);
+    }
+
+    @Test
+    void testSnapshotRestore() {
+        TuringMachineImpl tm = getMachineScanRight();
+        tm.reset();
+        tm.setInput("aaaa");
+        tm.run(2);
+        Snapshot snapshot = tm.snapshot();
+
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 3), tm.run(100));
+        tm.restore(snapshot);
+        assertEquals(1, tm.getCurrentState());
+        assertEquals(2, tm.getTapeContent(0).getLeftOfHead().length);
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 3), tm.run(100));
+        tm.restore(snapshot);
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 3), tm.run(100));
+    }
+
+    @Test
+    void testFork() {
+        TuringMachineImpl tm = getMachineScanRight();
+        tm.reset();
+        tm.setInput("aaaa");
+        tm.run(2);
+        TuringMachineImpl fork = tm.fork();
+        fork.addTransition(1, 'b', 0, 'b', Movement.Stay);
+
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 3), tm.run(100));
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 3), fork.run(100));
+        assertEquals(tm.getTapeContent(0), fork.getTapeContent(0));
+        assertEquals(2, tm.freeze().getTransitions().size());
+        assertEquals(3, fork.freeze().getTransitions().size());
+    }
+
+    @Test
+    void testSweeps() {
+        TuringMachineImpl tm = getMachineScanRight();
+        tm.reset();
+        tm.setInput("a".repeat(1000));
+        assertEquals(new RunResult(RunResult.Outcome.BudgetExhausted, 700), tm.run(700));
+        assertEquals(700, tm.getTapeContent(0).getLeftOfHead().length);
+        assertEquals(new RunResult(RunResult.Outcome.Halted, 301), tm.run(1000));
+
+        Random random = new Random(11);
+        for (int n = 0; n < 200; n++) {
+            long seed = random.nextLong();
+            int tapes = 1 + random.nextInt(2);
+            TuringMachineImpl plain = getSweepingMachine(new Random(seed), tapes);
+            TuringMachineImpl swept = getSweepingMachine(new Random(seed), tapes);
+            plain.setSweeps(false);
+            StringBuilder input = new StringBuilder();
+            for (int run = random.nextInt(8); run > 0; run--) {
+                input.append(String.valueOf("ab ".charAt(random.nextInt(3))).repeat(random.nextInt(100)));
+            }
+            plain.reset();
+            plain.setInput(input.toString());
+            swept.reset();
+            swept.setInput(input.toString());
+
+            for (int run = 0; run < 4; run++) {
+                long budget = random.nextInt(1000);
+                RunResult expected = plain.run(budget);
+                assertEquals(expected, swept.run(budget), "seed " + seed);
+                assertEquals(plain.getCurrentState(), swept.getCurrentState(), "seed " + seed);
+                assertEquals(plain.getTapeContents(), swept.getTapeContents(), "seed " + seed);
+            }
+        }
+    }
+
+    /**
+     * @return a random machine in which most transitions are sweeps
+     */
+    private static TuringMachineImpl getSweepingMachine(Random random, int tapes) {
+        Character[] symbols = {'a', 'b', null};
+        int states = 2 + random.nextInt(4);
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a', 'b'));
+        tm.setNumberOfTapes(tapes);
+        tm.setNumberOfStates(states);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        for (int state = 1; state < states; state++) {
+            int sweepTape = random.nextInt(tapes);
+            Movement direction = random.nextBoolean() ? Movement.Left : Movement.Right;
+            for (int i = 0; i < (tapes == 1 ? 3 : 9); i++) {
+                Character[] read = new Character[tapes];
+                Character[] write = new Character[tapes];
+                Movement[] move = new Movement[tapes];
+                boolean sweep = random.nextInt(4) > 0;
+                for (int t = 0; t < tapes; t++) {
+                    read[t] = symbols[(t == 0 ? i : i / 3) % 3];
+                    write[t] = sweep ? read[t] : symbols[random.nextInt(3)];
+                    move[t] = sweep ? (t == sweepTape ? direction : Movement.Stay) : Movement.values()[random.nextInt(3)];
+                }
+                tm.addTransition(state, read, sweep ? state : random.nextInt(states), write, move);
+            }
+        }
+        return tm;
+    }
+}
@@ -0,0 +1,139 @@
+package ab3.impl.SchachnerIsmailov;
+
+import ab3.TuringMachine;
+import ab3.TuringMachine.Movement;
+import ab3.TuringMachine.RunResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static ab3.impl.SchachnerIsmailov.Constants.ANY;
+import static org.junit.jupiter.api.Assertions.*;
+
+class WildcardIndexTest {
+    /**
+     * Copies the input on tape 0 to tape 1, writes c on tape 2 and walks back, turning the b's on
+     * tape 1 into a's. Only tape 0 decides which transition is taken, apart from the final one.
+     */
+    static TuringMachineImpl getMachineCopy() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a', 'b', 'c'));
+        tm.setNumberOfTapes(3);
+        tm.setNumberOfStates(3);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        Movement[] right = {Movement.Right, Movement.Right, Movement.Stay};
+        Movement[] left = {Movement.Left, Movement.Left, Movement.Stay};
+        tm.addTransition(1, new Character[]{'a', ANY, ANY}, 1, new Character[]{ANY, 'a', ANY}, right);
+        tm.addTransition(1, new Character[]{'b', ANY, ANY}, 1, new Character[]{ANY, 'b', ANY}, right);
+        tm.addTransition(1, new Character[]{null, ANY, ANY}, 2, new Character[]{ANY, ANY, 'c'}, left);
+        tm.addTransition(2, new Character[]{ANY, ANY, ANY}, 2, new Character[]{ANY, ANY, ANY}, left);
+        tm.addTransition(2, new Character[]{'b', ANY, ANY}, 2, new Character[]{ANY, 'a', ANY}, left);
+        tm.addTransition(2, new Character[]{null, null, 'c'}, 0, new Character[]{null, null, 'c'},
+                new Movement[]{Movement.Right, Movement.Right, Movement.Stay});
+        return tm;
+    }
+
+    private static List<String> run(TuringMachineImpl tm, String input) {
+        tm.reset();
+        tm.setInput(input);
+        RunResult result = tm.run(1000);
+        List<String> tapes = new ArrayList<>();
+        tapes.add(result.toString());
+        tm.getTapeContents().forEach(tape -> tapes.add(tape.toString()));
+        return tapes;
+    }
+
+    private static String choice(Program program, int state, String read) {
+        return program.getChoices(new TransitionKey(state, read.toCharArray())).get(0).toString();
+    }
+
+    @Test
+    void testMostSpecificMatch() {
+        TuringMachineImpl tm = new TuringMachineImpl();
+        tm.setAlphabet(Set.of('a', 'b', 'c'));
+        tm.setNumberOfTapes(2);
+        tm.setNumberOfStates(3);
+        tm.setHaltingState(0);
+        tm.setInitialState(1);
+        Movement[] stay = {Movement.Stay, Movement.Stay};
+        tm.addTransition(1, new Character[]{ANY, ANY}, 0, new Character[]{ANY, 'c'}, stay);
+        tm.addTransition(1, new Character[]{'a', ANY}, 1, new Character[]{'a', 'a'}, stay);
+        tm.addTransition(1, new Character[]{ANY, 'b'}, 2, new Character[]{'b', 'b'}, stay);
+        tm.addTransition(1, new Character[]{'a', 'b'}, 0, new Character[]{'c', 'c'}, stay);
+        tm.addTransition(2, new Character[]{ANY, 'b'}, 1, new Character[]{'b', ANY}, stay);
+        tm.addTransition(2, new Character[]{'a', ANY}, 0, new Character[]{'a', ANY}, stay);
+        Program program = tm.freeze();
+        assertEquals(5, program.getWildcards().size());
+
+        // exact before wildcards, fewer wildcards before more, equally specific ones in the order they were added
+        assertEquals("(0, cc, ••)", choice(program, 1, "ab"));
+        assertEquals("(1, aa, ••)", choice(program, 1, "aa"));
+        assertEquals("(2, bb, ••)", choice(program, 1, "cb"));
+        assertEquals("(0, bc, ••)", choice(program, 1, "b "));
+        assertEquals("(1, bb, ••)", choice(program, 2, "ab"));
+        assertEquals("(0, ac, ••)", choice(program, 2, "ac"));
+        assertTrue(program.getChoices(new TransitionKey(2, new char[]{'b', 'a'})).isEmpty());
+
+        // the dispatch table resolves the same transitions
+        DispatchTable table = program.getDispatchTable();
+        assertNotNull(table);
+        Alphabet alphabet = program.getTapeAlphabet();
+        for (int slot = table.stateSlots(); slot < table.slots(); slot++) {
+            int state = slot / table.stateSlots();
+            char[] read = {alphabet.symbol(slot % alphabet.size()), alphabet.symbol(slot / alphabet.size() % alphabet.size())};
+            List<TransitionValue> choices = program.getChoices(new TransitionKey(state, read));
+            int transition = table.transition(slot);
+            assertEquals(choices.isEmpty(), transition < 0);
+            if (transition >= 0) {
+                assertEquals(choices.get(0).toState(), table.toState(transition));
+                assertEquals(alphabet.code(choices.get(0).writeTapes()[1]), table.write(transition, 1));
+            }
+        }
+    }
+
+    @Test
+    void testRun() {
+        TuringMachineImpl tm = getMachineCopy();
+        assertTrue(tm.compile());
+        List<String> expected = run(tm, "abba");
+        assertTrue(expected.get(0).contains("Halted"));
+        assertEquals(new TuringMachine.TapeContent(new Character[0], 'a', new Character[]{'b', 'b', 'a'}).toString(), expected.get(1));
+        assertEquals(new TuringMachine.TapeContent(new Character[0], 'a', new Character[]{'a', 'a', 'a'}).toString(), expected.get(2));
+        assertEquals(new TuringMachine.TapeContent(new Character[0], 'c', new Character[0]).toString(), expected.get(3));
+
+        // interpreted on the transition map
+        TuringMachineImpl large = getMachineCopy();
+        large.setNumberOfStates((int) DispatchTable.MAX_SLOTS);
+        assertFalse(large.compile());
+        assertEquals(expected, run(large, "abba"));
+
+        tm.setProfiling(true);
+        assertEquals(expected, run(tm, "abba"));
+        assertEquals(10, tm.getProfiler().getSteps());
+        assertTrue(tm.getProfiler().report(10).contains("(2, b**)"));
+
+        for (String input : List.of("", "a", "b", "bab", "aabbab")) {
+            assertEquals(run(getMachineCopy(), input), run(large, input));
+        }
+    }
+
+    @Test
+    void testDefinition() {
+        TuringMachineImpl tm = getMachineCopy();
+        assertThrows(IllegalArgumentException.class, () -> tm.setAlphabet(Set.of('a', ANY)));
+        assertThrows(IllegalArgumentException.class, () -> MachineImage.write(tm.freeze(), new ByteArrayOutputStream()));
+        assertNull(tm.freeze().newStepper());
+
+        tm.setNondeterministic(true);
+        assertThrows(IllegalArgumentException.class, () -> tm.addTransition(2, new Character[]{ANY, ANY, ANY}, 1,
+                new Character[]{ANY, ANY, ANY}, new Movement[]{Movement.Stay, Movement.Stay, Movement.Stay}));
+
+        Minimizer.Report report = tm.minimize();
+        assertEquals(6, report.transitionsAfter());
+        assertEquals(run(getMachineCopy(), "abba"), run(tm, "abba"));
+    }
+}